@@ -0,0 +1,64 @@
+package liquibase.benchmarks;
+
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.RanChangeSet;
+import liquibase.exception.UnappliedChangeSetsException;
+import liquibase.exception.UnexpectedChangeSetsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the {@link UnappliedChangeSetsException} and {@link UnexpectedChangeSetsException} messages, as logged
+ * when validating a database which is far behind (or ahead of) the changelog
+ *
+ * @author Eric Benzacar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeSetsExceptionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int changeSets;
+
+    private List<ChangeSet> unapplied;
+    private List<RanChangeSet> unexpected;
+
+    @Setup
+    public void createChangeSets() {
+        unapplied = new ArrayList<>(changeSets);
+        unexpected = new ArrayList<>(changeSets);
+        for (int i = 0; i < changeSets; i++) {
+            ChangeSet changeSet = new ChangeSet(String.valueOf(i), "benchmark", false, false,
+                    "db/changelog/changelog-" + (i / 100) + ".xml", null, null, null);
+            unapplied.add(changeSet);
+            unexpected.add(new RanChangeSet(changeSet));
+        }
+    }
+
+    @Benchmark
+    public String unappliedMessage() {
+        return new UnappliedChangeSetsException(unapplied).getMessage();
+    }
+
+    @Benchmark
+    public String unexpectedMessage() {
+        return new UnexpectedChangeSetsException(unexpected).getMessage();
+    }
+}
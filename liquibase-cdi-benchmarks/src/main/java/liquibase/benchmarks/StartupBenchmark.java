@@ -0,0 +1,108 @@
+package liquibase.benchmarks;
+
+import liquibase.CDIBootstrapConfiguration;
+import liquibase.CDILiquibase;
+import liquibase.LiquibaseConfig;
+import liquibase.LiquibaseMigrationExecutor;
+import liquibase.configuration.LiquibaseConfiguration;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CDILiquibase#onStartup()} for a number of configs migrated concurrently by the {@link LiquibaseMigrationExecutor},
+ * as done by {@link liquibase.CDILiquibaseBootstrap}.
+ *
+ * Each invocation runs against new in-memory databases: empty ones for the update modes and
+ * {@link CDIBootstrapConfiguration.ExecutionMode#GENERATE_SQL}, whose scripts are written to a temporary directory, and fully migrated ones for
+ * {@link CDIBootstrapConfiguration.ExecutionMode#VALIDATE}, which therefore measures a restart with nothing to do.  For
+ * {@link CDIBootstrapConfiguration.ExecutionMode#INCREMENTAL_VALIDATE} the databases have also been validated once, so the
+ * validation state is recorded.
+ *
+ * @author Eric Benzacar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int changeSets;
+
+    @Param({"1", "4", "32"})
+    public int configs;
+
+    @Param({"UPDATE", "ASYNC_UPDATE", "VALIDATE", "INCREMENTAL_VALIDATE", "GENERATE_SQL"})
+    public CDIBootstrapConfiguration.ExecutionMode mode;
+
+    private Path changeLogDirectory;
+    private Path sqlOutputDirectory;
+    private List<LiquibaseConfig> liquibaseConfigs;
+
+    @Setup(Level.Trial)
+    public void writeChangeLog() throws IOException {
+        changeLogDirectory = SyntheticChangeLog.write(changeSets);
+        sqlOutputDirectory = Files.createTempDirectory("liquibase-benchmark-sql");
+    }
+
+    @Setup(Level.Invocation)
+    public void createDatabases() {
+        liquibaseConfigs = new ArrayList<>();
+        for (int i = 0; i < configs; i++) {
+            liquibaseConfigs.add(SyntheticChangeLog.newConfig(changeLogDirectory));
+        }
+        if (mode == CDIBootstrapConfiguration.ExecutionMode.VALIDATE || mode == CDIBootstrapConfiguration.ExecutionMode.INCREMENTAL_VALIDATE) {
+            run(CDIBootstrapConfiguration.ExecutionMode.UPDATE);
+        }
+        if (mode == CDIBootstrapConfiguration.ExecutionMode.INCREMENTAL_VALIDATE) {
+            run(CDIBootstrapConfiguration.ExecutionMode.INCREMENTAL_VALIDATE);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void dropDatabases() throws SQLException {
+        for (LiquibaseConfig config : liquibaseConfigs) {
+            SyntheticChangeLog.shutdown(config);
+        }
+    }
+
+    @Benchmark
+    public void onStartup() {
+        run(mode);
+    }
+
+    private void run(CDIBootstrapConfiguration.ExecutionMode executionMode) {
+        LiquibaseConfiguration.getInstance().getConfiguration(CDIBootstrapConfiguration.class).setExecutionMode(executionMode)
+                .setSqlOutputDirectory(sqlOutputDirectory.toString());
+        try (LiquibaseMigrationExecutor executor = new LiquibaseMigrationExecutor(configs, null, LiquibaseInstrumentation.NONE)) {
+            List<CompletableFuture<CDILiquibase>> migrations = new ArrayList<>();
+            for (LiquibaseConfig config : liquibaseConfigs) {
+                migrations.add(executor.submit(config));
+            }
+            LiquibaseMigrationExecutor.whenAll(migrations).join();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package liquibase.benchmarks;
+
+import liquibase.LiquibaseConfig;
+import liquibase.resource.FileSystemResourceAccessor;
+import org.hsqldb.jdbc.JDBCDataSource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates changelogs and in-memory HSQLDB databases for the benchmarks
+ *
+ * @author Eric Benzacar
+ */
+final class SyntheticChangeLog {
+
+    static final String CHANGELOG = "changelog.xml";
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private SyntheticChangeLog() {
+    }
+
+    /**
+     * Writes a changelog made of one table creation followed by single row inserts
+     * @param changeSets total number of changesets
+     * @return directory holding the {@link #CHANGELOG} file
+     * @throws IOException
+     */
+    static Path write(int changeSets) throws IOException {
+        Path directory = Files.createTempDirectory("liquibase-cdi-benchmark");
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve(CHANGELOG), StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\"\n");
+            out.write("        xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+            out.write("        xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-3.6.xsd\">\n");
+            out.write("    <changeSet id=\"1\" author=\"benchmark\">\n");
+            out.write("        <createTable tableName=\"BENCHMARK\">\n");
+            out.write("            <column name=\"ID\" type=\"INT\"><constraints primaryKey=\"true\"/></column>\n");
+            out.write("            <column name=\"NAME\" type=\"VARCHAR(255)\"/>\n");
+            out.write("        </createTable>\n");
+            out.write("    </changeSet>\n");
+            for (int i = 2; i <= changeSets; i++) {
+                out.write("    <changeSet id=\"" + i + "\" author=\"benchmark\">\n");
+                out.write("        <insert tableName=\"BENCHMARK\">\n");
+                out.write("            <column name=\"ID\" valueNumeric=\"" + i + "\"/>\n");
+                out.write("            <column name=\"NAME\" value=\"row " + i + "\"/>\n");
+                out.write("        </insert>\n");
+                out.write("    </changeSet>\n");
+            }
+            out.write("</databaseChangeLog>\n");
+        }
+        return directory;
+    }
+
+    /**
+     * @param directory as returned by {@link #write(int)}
+     * @return a config applying the changelog to a new, empty, in-memory database
+     */
+    static LiquibaseConfig newConfig(Path directory) {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setUrl("jdbc:hsqldb:mem:benchmark" + DATABASES.incrementAndGet());
+        dataSource.setUser("SA");
+        dataSource.setPassword("");
+
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        config.setDataSource(dataSource);
+        config.setResourceAccessor(new FileSystemResourceAccessor(directory.toString()));
+        return config;
+    }
+
+    /**
+     * Drops the in-memory database of the config
+     * @param config
+     * @throws SQLException
+     */
+    static void shutdown(LiquibaseConfig config) throws SQLException {
+        try (Connection connection = config.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+}
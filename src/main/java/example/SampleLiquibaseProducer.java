@@ -2,7 +2,8 @@ package example;
 
 import liquibase.LiquibaseConfig;
 import liquibase.annotation.LiquibaseType;
-import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.IndexedResourceAccessor;
+import liquibase.resource.ResourceAccessor;
 
 import javax.annotation.Resource;
 import javax.enterprise.context.ApplicationScoped;
@@ -11,6 +12,11 @@ import javax.naming.NamingException;
 import javax.sql.DataSource;
 import java.sql.SQLException;
 
+/**
+ * Sample producer of two configs.  The application bundling the changelogs would also annotate one of its classes with
+ * <code>@PrecompileChangeLog({"db/changelog/changelog-master.xml", "db2/changelog/changelog-master.xml"})</code> so they are
+ * served precompiled (see {@link liquibase.precompile.PrecompileChangeLog}); this module does not ship them.
+ */
 @ApplicationScoped
 public class SampleLiquibaseProducer {
 
@@ -25,6 +31,11 @@ public class SampleLiquibaseProducer {
     @Resource(lookup = "java:datasources/Database2")
     private DataSource dataSource2;
 
+    /**
+     * Shared by both configs, so the changelog resources are only indexed once
+     */
+    private final ResourceAccessor resourceAccessor = new IndexedResourceAccessor(getClass().getClassLoader(), "db/", "db2/");
+
     /**
      * Bean used to initialize an existing DB with liquibase changeset entries
      * @return
@@ -37,9 +48,10 @@ public class SampleLiquibaseProducer {
         LiquibaseConfig config = new LiquibaseConfig();
         config.setChangeLog("db/changelog/changelog-master.xml");
         config.setDataSource(dataSource);
-        config.setResourceAccessor(new ClassLoaderResourceAccessor(getClass().getClassLoader()));
+        config.setResourceAccessor(resourceAccessor);
         config.setDefaultSchema(defaultSchema);
         config.setVerifyUnexpectedChangeSets(false);
+        config.setUsePrecompiledChangeLog(true);
         return config;
     }
 
@@ -55,9 +67,10 @@ public class SampleLiquibaseProducer {
         LiquibaseConfig config = new LiquibaseConfig();
         config.setChangeLog("db2/changelog/changelog-master.xml");
         config.setDataSource(dataSource2);
-        config.setResourceAccessor(new ClassLoaderResourceAccessor(getClass().getClassLoader()));
+        config.setResourceAccessor(resourceAccessor);
         config.setDefaultSchema(defaultSchema);
         config.setVerifyUnexpectedChangeSets(true);
+        config.setUsePrecompiledChangeLog(true);
         return config;
     }
 }
@@ -15,10 +15,25 @@ public class CDIBootstrapConfiguration extends AbstractConfigurationContainer {
          * Updates the schema with Liquibase changesets
          */
         UPDATE,
+        /**
+         * Updates the schema with Liquibase changesets in the background; application startup does not wait for the update to
+         * complete (see {@link LiquibaseReadiness})
+         */
+        ASYNC_UPDATE,
         /**
          * Validates that all changesets have been applied.  Does not perform any UPDATE
          */
         VALIDATE,
+        /**
+         * Validates that all changesets have been applied, only comparing the changelog files changed since the last successful
+         * validation (see {@link liquibase.validation.IncrementalValidator}).  Does not perform any UPDATE
+         */
+        INCREMENTAL_VALIDATE,
+        /**
+         * Writes the SQL of the pending changesets of each config to a file of {@link #getSqlOutputDirectory()}.  Does not
+         * perform any UPDATE
+         */
+        GENERATE_SQL,
 
         /**
          * Disables Liquibase altogether
@@ -28,16 +43,75 @@ public class CDIBootstrapConfiguration extends AbstractConfigurationContainer {
 
     public static final String EXECUTION_MODE = "executionMode";
     public static final String HALT_ON_UNEXPECTED_CHANGESETS = "haltUnexpectedChangeSets";
+    public static final String POOL_SIZE = "poolSize";
+    public static final String CLUSTER_COORDINATION = "clusterCoordination";
+    public static final String CLUSTER_WAIT_TIMEOUT = "clusterWaitTimeout";
+    public static final String CLUSTER_POLL_INTERVAL = "clusterPollInterval";
+    public static final String CLUSTER_MAX_POLL_INTERVAL = "clusterMaxPollInterval";
+    public static final String SQL_OUTPUT_DIRECTORY = "sqlOutputDirectory";
+    public static final String MIGRATION_TIMEOUT = "migrationTimeout";
+    public static final String GLOBAL_TIMEOUT = "globalTimeout";
+    public static final String SLOW_CHANGESET_THRESHOLD = "slowChangeSetThreshold";
+    public static final String RUN_REPORT_FILE = "runReportFile";
+    public static final String RUN_REPORT_TABLE = "runReportTable";
+    public static final String MIGRATION_REGISTRY = "migrationRegistry";
 
     public CDIBootstrapConfiguration() {
         super("liquibase");
         getContainer().addProperty(EXECUTION_MODE, String.class)
-                .setDescription("In which mode should Liquibase run; valid options are [VALIDATE, UPDATE, DISABLE]?  ")
+                .setDescription("In which mode should Liquibase run; valid options are [VALIDATE, INCREMENTAL_VALIDATE, UPDATE, ASYNC_UPDATE, GENERATE_SQL, DISABLE]?  ")
                 .setDefaultValue("UPDATE");
 
         getContainer().addProperty(HALT_ON_UNEXPECTED_CHANGESETS, Boolean.class)
                 .setDescription("Should Liquibase halt deployment if unexpected changesets are detected?  (Defaults to false)")
                 .setDefaultValue(false);
+
+        getContainer().addProperty(POOL_SIZE, Integer.class)
+                .setDescription("Maximum number of Liquibase configurations migrated concurrently  (Defaults to 1, i.e. sequentially)")
+                .setDefaultValue(1);
+
+        getContainer().addProperty(CLUSTER_COORDINATION, Boolean.class)
+                .setDescription("Should a single node of the cluster migrate each changelog while the other nodes wait for it?  (Defaults to false)")
+                .setDefaultValue(false);
+
+        getContainer().addProperty(CLUSTER_WAIT_TIMEOUT, Integer.class)
+                .setDescription("Seconds a node waits for another node to migrate a changelog before failing  (Defaults to 600)")
+                .setDefaultValue(600);
+
+        getContainer().addProperty(CLUSTER_POLL_INTERVAL, Integer.class)
+                .setDescription("Initial milliseconds between two polls of the status of a migration run by another node  (Defaults to 500)")
+                .setDefaultValue(500);
+
+        getContainer().addProperty(CLUSTER_MAX_POLL_INTERVAL, Integer.class)
+                .setDescription("Maximum milliseconds between two polls of the status of a migration run by another node  (Defaults to 10000)")
+                .setDefaultValue(10000);
+
+        getContainer().addProperty(SQL_OUTPUT_DIRECTORY, String.class)
+                .setDescription("Directory receiving the SQL scripts in GENERATE_SQL mode  (Defaults to the working directory)")
+                .setDefaultValue(".");
+
+        getContainer().addProperty(MIGRATION_TIMEOUT, Integer.class)
+                .setDescription("Maximum seconds the migration of each config may take before its statements are cancelled, 0 for no limit  (Defaults to 0)")
+                .setDefaultValue(0);
+
+        getContainer().addProperty(GLOBAL_TIMEOUT, Integer.class)
+                .setDescription("Maximum seconds the migration of all configs may take before their statements are cancelled, 0 for no limit  (Defaults to 0)")
+                .setDefaultValue(0);
+
+        getContainer().addProperty(SLOW_CHANGESET_THRESHOLD, Integer.class)
+                .setDescription("Seconds after which a running changeset is logged as slow, 0 to not log any  (Defaults to 60)")
+                .setDefaultValue(60);
+
+        getContainer().addProperty(RUN_REPORT_FILE, String.class)
+                .setDescription("File the run report of each config is appended to  (Defaults to none)");
+
+        getContainer().addProperty(RUN_REPORT_TABLE, Boolean.class)
+                .setDescription("Should the run report of each config also be recorded in the database  (Defaults to false)")
+                .setDefaultValue(false);
+
+        getContainer().addProperty(MIGRATION_REGISTRY, Boolean.class)
+                .setDescription("Should configs already brought up to date by this JVM be skipped by the following bootstraps  (Defaults to false)")
+                .setDefaultValue(false);
     }
 
     /**
@@ -61,4 +135,144 @@ public class CDIBootstrapConfiguration extends AbstractConfigurationContainer {
         return this;
     }
 
+    /**
+     * Maximum number of {@link LiquibaseConfig} instances migrated at the same time.  Configs always wait for their
+     * dependencies (see {@link LiquibaseConfigGraph}), regardless of this value.
+     */
+    public int getPoolSize(){
+        return getContainer().getValue(POOL_SIZE, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setPoolSize( int poolSize){
+        getContainer().setValue(POOL_SIZE, poolSize);
+        return this;
+    }
+
+    /**
+     * Whether updates are coordinated across the nodes of a cluster sharing the database (see {@link liquibase.cluster.ClusterCoordinator})
+     */
+    public boolean getClusterCoordination(){
+        return getContainer().getValue(CLUSTER_COORDINATION, Boolean.class);
+    }
+
+    public CDIBootstrapConfiguration setClusterCoordination( boolean clusterCoordination){
+        getContainer().setValue(CLUSTER_COORDINATION, clusterCoordination);
+        return this;
+    }
+
+    /**
+     * Seconds a node waits for another node to migrate a changelog
+     */
+    public int getClusterWaitTimeout(){
+        return getContainer().getValue(CLUSTER_WAIT_TIMEOUT, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setClusterWaitTimeout( int seconds){
+        getContainer().setValue(CLUSTER_WAIT_TIMEOUT, seconds);
+        return this;
+    }
+
+    /**
+     * Initial milliseconds between two polls of the status row; doubled after each poll up to {@link #getClusterMaxPollInterval()}
+     */
+    public int getClusterPollInterval(){
+        return getContainer().getValue(CLUSTER_POLL_INTERVAL, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setClusterPollInterval( int millis){
+        getContainer().setValue(CLUSTER_POLL_INTERVAL, millis);
+        return this;
+    }
+
+    public int getClusterMaxPollInterval(){
+        return getContainer().getValue(CLUSTER_MAX_POLL_INTERVAL, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setClusterMaxPollInterval( int millis){
+        getContainer().setValue(CLUSTER_MAX_POLL_INTERVAL, millis);
+        return this;
+    }
+
+    /**
+     * Directory receiving one SQL script per config in {@link ExecutionMode#GENERATE_SQL} mode
+     */
+    public String getSqlOutputDirectory(){
+        return getContainer().getValue(SQL_OUTPUT_DIRECTORY, String.class);
+    }
+
+    public CDIBootstrapConfiguration setSqlOutputDirectory( String directory){
+        getContainer().setValue(SQL_OUTPUT_DIRECTORY, directory);
+        return this;
+    }
+
+    /**
+     * Maximum duration of the migration of each config (see {@link liquibase.watchdog.MigrationWatchdog})
+     */
+    public int getMigrationTimeout(){
+        return getContainer().getValue(MIGRATION_TIMEOUT, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setMigrationTimeout( int seconds){
+        getContainer().setValue(MIGRATION_TIMEOUT, seconds);
+        return this;
+    }
+
+    /**
+     * Maximum duration of the migration of all configs (see {@link liquibase.watchdog.MigrationWatchdog})
+     */
+    public int getGlobalTimeout(){
+        return getContainer().getValue(GLOBAL_TIMEOUT, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setGlobalTimeout( int seconds){
+        getContainer().setValue(GLOBAL_TIMEOUT, seconds);
+        return this;
+    }
+
+    public int getSlowChangeSetThreshold(){
+        return getContainer().getValue(SLOW_CHANGESET_THRESHOLD, Integer.class);
+    }
+
+    public CDIBootstrapConfiguration setSlowChangeSetThreshold( int seconds){
+        getContainer().setValue(SLOW_CHANGESET_THRESHOLD, seconds);
+        return this;
+    }
+
+    /**
+     * File the {@link liquibase.report.MigrationRunReport} of each config is appended to, or null to not write any
+     */
+    public String getRunReportFile(){
+        return getContainer().getValue(RUN_REPORT_FILE, String.class);
+    }
+
+    public CDIBootstrapConfiguration setRunReportFile( String file){
+        getContainer().setValue(RUN_REPORT_FILE, file);
+        return this;
+    }
+
+    /**
+     * Whether the {@link liquibase.report.MigrationRunReport} of each config is also recorded in the database (see
+     * {@link liquibase.report.RunReportTable})
+     */
+    public boolean getRunReportTable(){
+        return getContainer().getValue(RUN_REPORT_TABLE, Boolean.class);
+    }
+
+    public CDIBootstrapConfiguration setRunReportTable( boolean runReportTable){
+        getContainer().setValue(RUN_REPORT_TABLE, runReportTable);
+        return this;
+    }
+
+    /**
+     * Whether configs already brought up to date by this JVM are skipped (see {@link liquibase.registry.MigrationRegistry})
+     */
+    public boolean getMigrationRegistry(){
+        return getContainer().getValue(MIGRATION_REGISTRY, Boolean.class);
+    }
+
+    public CDIBootstrapConfiguration setMigrationRegistry( boolean migrationRegistry){
+        getContainer().setValue(MIGRATION_REGISTRY, migrationRegistry);
+        return this;
+    }
+
 }
@@ -1,8 +1,13 @@
 package liquibase;
 
 import liquibase.annotation.LiquibaseType;
+import liquibase.cache.ChangeLogCache;
+import liquibase.cache.PrecompiledChangeLogCache;
 import liquibase.changelog.ChangeSet;
 import liquibase.changelog.RanChangeSet;
+import liquibase.checksum.ParallelCheckSumVerifier;
+import liquibase.chunked.ChunkedUpdateRunner;
+import liquibase.cluster.ClusterCoordinator;
 import liquibase.configuration.GlobalConfiguration;
 import liquibase.configuration.LiquibaseConfiguration;
 import liquibase.database.Database;
@@ -13,18 +18,39 @@ import liquibase.exception.LiquibaseException;
 import liquibase.exception.UnappliedChangeSetsException;
 import liquibase.exception.UnexpectedChangeSetsException;
 import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.fingerprint.ChangeLogFingerprint;
+import liquibase.fingerprint.ChangeLogFingerprintService;
+import liquibase.instrumentation.CompositeLiquibaseInstrumentation;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import liquibase.registry.MigrationRegistry;
+import liquibase.report.MigrationRunReport;
+import liquibase.report.RunReportCollector;
+import liquibase.report.RunReportFile;
+import liquibase.report.RunReportTable;
 import liquibase.resource.ResourceAccessor;
+import liquibase.tenant.SharedChangeLog;
 import liquibase.util.LiquibaseUtil;
 import liquibase.util.NetUtil;
+import liquibase.validation.IncrementalValidator;
+import liquibase.watchdog.MigrationWatchdog;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -44,6 +70,11 @@ public class CDILiquibase{
     private LiquibaseConfig config;
     private boolean initialized;
     private boolean executionSuccessful;
+    private LiquibaseInstrumentation instrumentation = LiquibaseInstrumentation.NONE;
+    private MigrationWatchdog watchdog;
+    private MigrationWatchdog.Watch watch;
+    private SharedChangeLog sharedChangeLog;
+    private RunReportCollector reportCollector;
 
     @Inject
     public CDILiquibase(@LiquibaseType LiquibaseConfig config, @LiquibaseType DataSource dataSource, @LiquibaseType ResourceAccessor resourceAccessor){
@@ -59,6 +90,27 @@ public class CDILiquibase{
         return executionSuccessful;
     }
 
+    /**
+     * @param instrumentation receiving the timings of the phases of the startup; defaults to {@link LiquibaseInstrumentation#NONE}
+     */
+    public void setInstrumentation(LiquibaseInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * @param watchdog logging the slow changesets and cancelling the migration on timeout, or null to not watch it
+     */
+    public void setWatchdog(MigrationWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * @param sharedChangeLog parsed changelog files shared with the other targets of the same template config, or null
+     */
+    public void setSharedChangeLog(SharedChangeLog sharedChangeLog) {
+        this.sharedChangeLog = sharedChangeLog;
+    }
+
     @PostConstruct
     public void onStartup() {
         logger.info("Booting Liquibase {}.", LiquibaseUtil.getBuildVersion());
@@ -82,119 +134,359 @@ public class CDILiquibase{
         }
         initialized = true;
 
-        try{
-            logger.info("Running Liquibase in {} mode", liquibaseConfiguration.getConfiguration(CDIBootstrapConfiguration.class).getExecutionMode());
-            // check to see which mode to run liquibase in
-            switch(liquibaseConfiguration.getConfiguration(CDIBootstrapConfiguration.class).getExecutionMode()){
-                case UPDATE:
-                    // run the full automated liquibase updates
-                    performUpdate();
-                    break;
-                case VALIDATE:
-                    // validate that all changesets have been applied
-                    List<ChangeSet> unrun = getUnrunChangeSets();
-                    if( !unrun.isEmpty()){
-                        throw new UnappliedChangeSetsException(unrun);
-                    }
-                    executionSuccessful = true;
-                    break;
-                case DISABLE:
-                    // do nothing
-                    logger.info("Skipping liquibase execution");
-                    return;
+        CDIBootstrapConfiguration bootstrapConfiguration = liquibaseConfiguration.getConfiguration(CDIBootstrapConfiguration.class);
+        CDIBootstrapConfiguration.ExecutionMode executionMode = bootstrapConfiguration.getExecutionMode();
+        logger.info("Running Liquibase in {} mode", executionMode);
+        if (executionMode == CDIBootstrapConfiguration.ExecutionMode.DISABLE) {
+            // do nothing
+            logger.info("Skipping liquibase execution");
+            return;
+        }
+
+        String registryFingerprint = registryFingerprint(bootstrapConfiguration, executionMode);
+        if (registryFingerprint != null && MigrationRegistry.getInstance().isMigrated(registryTarget(), registryFingerprint)) {
+            logger.info("Changelog {} was already brought up to date by this JVM, skipping Liquibase", config.getChangeLog());
+            executionSuccessful = true;
+            if (isUpdate(executionMode)) {
+                // no connection is open here, so leave the lookup of the deferred updates to the background thread
+                ChunkedUpdateRunner.runDeferredInBackground(LiquibaseMigrationExecutor.describe(config), () -> createDatabase(acquireConnection()));
             }
+            return;
+        }
 
-            // load any unexpected changesets from the database
-            if( config.isVerifyUnexpectedChangeSets() ) {
-                logger.info("Verifying if any unexpected changesets are detected by Liquibase in the database compared to the changelog({})", config.getChangeLog());
-                Collection<RanChangeSet> ranChangeSets = getUnexpectedChangeSets();
-                if (!ranChangeSets.isEmpty()) {
-                    UnexpectedChangeSetsException exception = new UnexpectedChangeSetsException(ranChangeSets);
-                    if (liquibaseConfiguration.getConfiguration(CDIBootstrapConfiguration.class).getHaltOnUnexpectedChangesets()) {
-                        throw exception;
-                    } else {
-                        logger.warn(exception.getMessage());
-                    }
+        watch = watchdog == null ? null : watchdog.watch(config);
+        if (bootstrapConfiguration.getRunReportFile() != null || bootstrapConfiguration.getRunReportTable()) {
+            reportCollector = new RunReportCollector(hostName, LiquibaseMigrationExecutor.describe(config), executionMode.name());
+        }
+        // a single session (connection, parsed changelog and DATABASECHANGELOG snapshot) is shared by all phases
+        try (CDILiquibaseSession session = openSession()) {
+            Exception failure = null;
+            try {
+                migrate(session, executionMode, bootstrapConfiguration);
+                if (registryFingerprint != null && executionSuccessful) {
+                    MigrationRegistry.getInstance().register(registryTarget(), registryFingerprint);
                 }
-            } else {
-                // display a warning if the halt on unexpected changesets is enabled but verification is disabled
-                if( liquibaseConfiguration.getConfiguration(CDIBootstrapConfiguration.class).getHaltOnUnexpectedChangesets() ){
-                    logger.warn("Configuration warning: This changelog configuration ({}) skips UnexpectedChangeset Verification, so application will not halt if unexpected changesets are encountered", config.getChangeLog());
+            } catch (LiquibaseException | RuntimeException e) {
+                failure = e;
+                throw e;
+            } finally {
+                if (reportCollector != null) {
+                    report(session, reportCollector.build(failure), executionMode, bootstrapConfiguration);
                 }
             }
         } catch (LiquibaseException e) {
-            throw new UnexpectedLiquibaseException(e);
+            executionSuccessful = false;
+            // the lock has been released by the session; report the timeout rather than the resulting SQL error
+            throw new UnexpectedLiquibaseException(watch != null && watch.isCancelled() ? watch.timeoutException(e) : e);
+        } finally {
+            if (watch != null) {
+                watch.close();
+                watch = null;
+            }
+            reportCollector = null;
         }
     }
 
-
     /**
-     * Validates that all changesets in the changelog have been applied
-     * @return list of any changeSets that haven't been applied in the DB
+     * Skips the run if the changelog is unchanged or was migrated by another node, then runs Liquibase
+     * @param session
+     * @param executionMode
+     * @param bootstrapConfiguration
      * @throws LiquibaseException
      */
-    private List<ChangeSet> getUnrunChangeSets() throws LiquibaseException {
-        Liquibase liquibase = null;
+    private void migrate(CDILiquibaseSession session, CDIBootstrapConfiguration.ExecutionMode executionMode,
+                         CDIBootstrapConfiguration bootstrapConfiguration) throws LiquibaseException {
+        ChangeLogFingerprintService fingerprintService = null;
+        if (config.isUseChangeLogFingerprint()) {
+            fingerprintService = new ChangeLogFingerprintService(session.getDatabase(), config, resourceAccessor);
+            if (fingerprintService.isUpToDate()) {
+                logger.info("Changelog {} is unchanged since the last successful run, skipping Liquibase", config.getChangeLog());
+                executionSuccessful = true;
+                if (isUpdate(executionMode)) {
+                    resumeDeferredUpdates(session);
+                }
+                return;
+            }
+        }
+
+        ClusterCoordinator coordinator = null;
+        if (bootstrapConfiguration.getClusterCoordination() && isUpdate(executionMode)) {
+            coordinator = new ClusterCoordinator(session.getDatabase(), config.getChangeLog(), deploymentKey());
+            if (!coordinator.awaitLeadership(bootstrapConfiguration.getClusterWaitTimeout() * 1000L,
+                    bootstrapConfiguration.getClusterPollInterval(), bootstrapConfiguration.getClusterMaxPollInterval(), TimeUnit.MILLISECONDS)) {
+                // another node has migrated the changelog; only the remaining checks are left to this node
+                coordinator = null;
+                if (fingerprintService != null && fingerprintService.isUpToDate()) {
+                    logger.info("Changelog {} was migrated by another node, skipping Liquibase", config.getChangeLog());
+                    executionSuccessful = true;
+                    resumeDeferredUpdates(session);
+                    return;
+                }
+            }
+        }
+
+        boolean successful = false;
         try {
-            Database database = createDatabase(config.getDataSource().getConnection());
-            liquibase = createLiquibase(database);
-            return liquibase.listUnrunChangeSets(new Contexts(config.getContexts()), new LabelExpression(config.getLabels()));
-        } catch (SQLException e) {
-            executionSuccessful = false;
-            throw new LiquibaseException(e);
-        } catch (LiquibaseException ex) {
-            executionSuccessful = false;
-            throw ex;
+            if (coordinator != null) {
+                // keeps the other nodes from taking over while this one migrates
+                coordinator.startHeartbeat(() -> createDatabase(acquireConnection()));
+            }
+            run(session, executionMode, bootstrapConfiguration, fingerprintService);
+            successful = true;
         } finally {
-            if ((liquibase != null) && (liquibase.getDatabase() != null)) {
-                liquibase.getDatabase().close();
+            if (coordinator != null) {
+                coordinator.complete(successful);
+            }
+        }
+    }
+
+    /**
+     * Runs the deferred chunked updates of the database, if any, on a connection of their own once the schema is up-to-date,
+     * including the updates left over by a previous run which skipped Liquibase or stopped before completing them
+     * @param session
+     */
+    private void resumeDeferredUpdates(CDILiquibaseSession session) {
+        if (new ChunkedUpdateRunner(session.getDatabase()).hasDeferred()) {
+            ChunkedUpdateRunner.runDeferredInBackground(LiquibaseMigrationExecutor.describe(config), () -> createDatabase(acquireConnection()));
+        }
+    }
+
+    /**
+     * Appends the report to the run report file and table, as configured.  Failures are logged rather than thrown, so they
+     * never alter the outcome of the run.
+     * @param session
+     * @param report
+     * @param executionMode
+     * @param bootstrapConfiguration
+     */
+    private void report(CDILiquibaseSession session, MigrationRunReport report, CDIBootstrapConfiguration.ExecutionMode executionMode,
+                        CDIBootstrapConfiguration bootstrapConfiguration) {
+        logger.info("Run report: {}", report);
+        if (bootstrapConfiguration.getRunReportFile() != null) {
+            RunReportFile file = new RunReportFile(Paths.get(bootstrapConfiguration.getRunReportFile()));
+            try {
+                file.append(report);
+            } catch (IOException e) {
+                logger.warn("Could not append the run report to {}", file.getFile(), e);
+            }
+        }
+        // the database must be left untouched when only generating SQL
+        if (bootstrapConfiguration.getRunReportTable() && executionMode != CDIBootstrapConfiguration.ExecutionMode.GENERATE_SQL) {
+            new RunReportTable(session.getDatabase()).append(report);
+        }
+    }
+
+    /**
+     * Runs Liquibase in the given mode and verifies the unexpected changesets
+     * @param session
+     * @param executionMode
+     * @param bootstrapConfiguration
+     * @param fingerprintService recording the fingerprint of a clean run, or null
+     * @throws LiquibaseException
+     */
+    private void run(CDILiquibaseSession session, CDIBootstrapConfiguration.ExecutionMode executionMode,
+                     CDIBootstrapConfiguration bootstrapConfiguration, ChangeLogFingerprintService fingerprintService) throws LiquibaseException {
+        // check to see which mode to run liquibase in
+        switch(executionMode){
+            case UPDATE:
+            case ASYNC_UPDATE:
+                // run the full automated liquibase updates
+                session.update();
+                executionSuccessful = true;
+                resumeDeferredUpdates(session);
+                break;
+            case VALIDATE:
+                // validate that all changesets have been applied
+                List<ChangeSet> unrun = session.listUnrunChangeSets();
+                if( !unrun.isEmpty()){
+                    throw new UnappliedChangeSetsException(unrun);
+                }
+                executionSuccessful = true;
+                break;
+            case INCREMENTAL_VALIDATE:
+                // validate that all changesets of the files changed since the last validation have been applied
+                List<ChangeSet> unrunChanges = new IncrementalValidator(session, resourceAccessor).listUnrunChangeSets();
+                if( !unrunChanges.isEmpty()){
+                    throw new UnappliedChangeSetsException(unrunChanges);
+                }
+                executionSuccessful = true;
+                break;
+            case GENERATE_SQL:
+                // write the pending changes to a script instead of applying them; the database must be left untouched
+                generateSql(session, Paths.get(bootstrapConfiguration.getSqlOutputDirectory()));
+                executionSuccessful = true;
+                return;
+        }
+
+        // load any unexpected changesets from the database
+        boolean unexpectedChangeSets = false;
+        if( config.isVerifyUnexpectedChangeSets() ) {
+            logger.info("Verifying if any unexpected changesets are detected by Liquibase in the database compared to the changelog({})", config.getChangeLog());
+            Collection<RanChangeSet> ranChangeSets = session.listUnexpectedChangeSets();
+            if (!ranChangeSets.isEmpty()) {
+                unexpectedChangeSets = true;
+                UnexpectedChangeSetsException exception = new UnexpectedChangeSetsException(ranChangeSets);
+                if (bootstrapConfiguration.getHaltOnUnexpectedChangesets()) {
+                    throw exception;
+                } else {
+                    logger.warn(exception.getMessage());
+                }
+            }
+        } else {
+            // display a warning if the halt on unexpected changesets is enabled but verification is disabled
+            if( bootstrapConfiguration.getHaltOnUnexpectedChangesets() ){
+                logger.warn("Configuration warning: This changelog configuration ({}) skips UnexpectedChangeset Verification, so application will not halt if unexpected changesets are encountered", config.getChangeLog());
             }
         }
 
+        // only fingerprint a clean update, so unexpected changesets keep being reported on the following startups, and
+        // validations leave the database untouched
+        if (fingerprintService != null && !unexpectedChangeSets && isUpdate(executionMode)) {
+            fingerprintService.record(session.getDatabaseChangeLog());
+        }
     }
 
     /**
-     * Checks the DB to see if there are any changesets in the DB that have already been run which are not part of the changelog(s)
-     * @return Collection of any changeSets that have been applied in the DB but are not part of the changelog
+     * Writes the SQL of the pending changesets to a file of the directory, named after the config
+     * @param session
+     * @param directory
      * @throws LiquibaseException
      */
-    private Collection<RanChangeSet> getUnexpectedChangeSets() throws LiquibaseException {
-        Liquibase liquibase = null;
+    private void generateSql(CDILiquibaseSession session, Path directory) throws LiquibaseException {
+        Path file = directory.resolve(LiquibaseMigrationExecutor.describe(config).replaceAll("[^A-Za-z0-9._-]", "_") + ".sql");
+        logger.info("Writing the pending SQL of changelog {} to {}", config.getChangeLog(), file);
         try {
-            Database database = createDatabase(config.getDataSource().getConnection());
-            liquibase = createLiquibase(database);
-            return liquibase.listUnexpectedChangeSets(new Contexts(config.getContexts()), new LabelExpression(config.getLabels()));
-        } catch (LiquibaseException ex) {
-            executionSuccessful = false;
-            throw ex;
-        } catch (SQLException e) {
-            executionSuccessful = false;
-            throw new LiquibaseException(e);
-        } finally {
-            if ((liquibase != null) && (liquibase.getDatabase() != null)) {
-                liquibase.getDatabase().close();
+            Files.createDirectories(directory);
+            try (Writer output = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                session.generateSql(output);
             }
+        } catch (IOException e) {
+            throw new LiquibaseException("Could not write " + file, e);
         }
     }
 
-    private void performUpdate() throws LiquibaseException {
-        Liquibase liquibase = null;
+    /**
+     * @param bootstrapConfiguration
+     * @param executionMode
+     * @return fingerprint of the config in the {@link MigrationRegistry}, or null if the registry is not used
+     */
+    private String registryFingerprint(CDIBootstrapConfiguration bootstrapConfiguration, CDIBootstrapConfiguration.ExecutionMode executionMode) {
+        // scripts must be written on every run, even if the database is up to date
+        if (!bootstrapConfiguration.getMigrationRegistry() || executionMode == CDIBootstrapConfiguration.ExecutionMode.GENERATE_SQL) {
+            return null;
+        }
         try {
-            Database database = createDatabase(config.getDataSource().getConnection());
-            liquibase = createLiquibase(database);
-            liquibase.update(new Contexts(config.getContexts()), new LabelExpression(config.getLabels()));
-            executionSuccessful = true;
-        } catch (LiquibaseException ex) {
-            executionSuccessful = false;
-            throw ex;
+            return deploymentKey();
+        } catch (LiquibaseException e) {
+            logger.warn("Not using the migration registry for changelog {}", config.getChangeLog(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the data source of the config, or the identification of its dedicated connection
+     */
+    private Object registryTarget() {
+        if (config.getConnectionPolicy() == LiquibaseConfig.ConnectionPolicy.DEDICATED) {
+            return config.getJdbcUrl() + "|" + config.getUsername();
+        }
+        return config.getDataSource();
+    }
+
+    private static boolean isUpdate(CDIBootstrapConfiguration.ExecutionMode executionMode) {
+        return executionMode == CDIBootstrapConfiguration.ExecutionMode.UPDATE || executionMode == CDIBootstrapConfiguration.ExecutionMode.ASYNC_UPDATE;
+    }
+
+    /**
+     * @return key identifying the version of the changelog bundled with this node, identical on all nodes bundling the same changelog
+     * @throws LiquibaseException
+     */
+    private String deploymentKey() throws LiquibaseException {
+        try {
+            return ChangeLogFingerprint.compute(config, resourceAccessor, ChangeLogFingerprint.defaultRoots(config.getChangeLog()));
+        } catch (IOException e) {
+            throw new LiquibaseException("Could not compute the fingerprint of changelog " + config.getChangeLog(), e);
+        }
+    }
+
+    /**
+     * Opens the session used for all phases of this configuration: acquires a single connection (see {@link #acquireConnection()}),
+     * detects the {@link Database} once and creates the {@link Liquibase} instance for it.
+     * @return a new session, which must be closed by the caller
+     * @throws LiquibaseException
+     */
+    protected CDILiquibaseSession openSession() throws LiquibaseException {
+        long started = System.nanoTime();
+        Connection connection;
+        try {
+            connection = acquireConnection();
+            if (watch != null) {
+                // lets the watchdog cancel the statements of the migration on timeout
+                connection = watch.track(connection);
+            }
+            if (reportCollector != null) {
+                connection = reportCollector.track(connection);
+            }
         } catch (SQLException e) {
-            executionSuccessful = false;
             throw new LiquibaseException(e);
-        } finally {
-            if ((liquibase != null) && (liquibase.getDatabase() != null)) {
-                liquibase.getDatabase().close();
+        }
+
+        try {
+            LiquibaseInstrumentation instrumentation = reportCollector == null ? this.instrumentation
+                    : new CompositeLiquibaseInstrumentation(Arrays.asList(this.instrumentation, reportCollector));
+            Database database = createDatabase(connection);
+            instrumentation.connectionAcquired(config, System.nanoTime() - started);
+            CDILiquibaseSession session = new CDILiquibaseSession(config, createLiquibase(database));
+            session.setInstrumentation(instrumentation);
+            if (reportCollector != null) {
+                session.addChangeExecListener(reportCollector.getListener());
+            }
+            if (watch != null) {
+                session.addChangeExecListener(watch.getListener());
+            }
+            if (config.getCheckSumParallelism() > 0) {
+                session.setCheckSumVerifier(new ParallelCheckSumVerifier(config, resourceAccessor, config.getCheckSumParallelism()));
+            }
+            if (config.getBatchSize() > 1) {
+                session.enableBatching(config.getBatchSize());
+            }
+            if (config.getExecutionStrategy() != null) {
+                session.setExecutionStrategy(config.getExecutionStrategy());
+            }
+            ChangeLogCache changeLogCache = null;
+            if (config.getChangeLogCacheDirectory() != null) {
+                changeLogCache = new ChangeLogCache(Paths.get(config.getChangeLogCacheDirectory()));
+            }
+            if (config.isUsePrecompiledChangeLog()) {
+                changeLogCache = new PrecompiledChangeLogCache(resourceAccessor, changeLogCache);
+            }
+            session.setChangeLogCache(changeLogCache);
+            session.setSharedChangeLog(sharedChangeLog);
+            return session;
+        } catch (LiquibaseException | RuntimeException e) {
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                logger.debug("Could not close connection", ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Acquires the connection according to the {@link LiquibaseConfig.ConnectionPolicy} of the config
+     * @return a new connection, closed along with the session
+     * @throws SQLException
+     */
+    protected Connection acquireConnection() throws SQLException {
+        if (config.getConnectionPolicy() == LiquibaseConfig.ConnectionPolicy.DEDICATED) {
+            if (config.getJdbcUrl() == null) {
+                throw new SQLException("A jdbcUrl is required by the DEDICATED connection policy of changelog " + config.getChangeLog());
             }
+            logger.debug("Opening a dedicated connection to {}", config.getJdbcUrl());
+            return DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(), config.getPassword());
         }
+        return config.getDataSource().getConnection();
     }
 
     protected Liquibase createLiquibase(Database database) throws LiquibaseException {
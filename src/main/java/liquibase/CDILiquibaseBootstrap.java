@@ -1,15 +1,29 @@
 package liquibase;
 
 import liquibase.annotation.LiquibaseType;
+import liquibase.configuration.LiquibaseConfiguration;
 import liquibase.exception.LiquibaseException;
+import liquibase.instrumentation.CompositeLiquibaseInstrumentation;
+import liquibase.instrumentation.JmxLiquibaseInstrumentation;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import liquibase.watchdog.MigrationWatchdog;
 import org.slf4j.Logger;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.CDI;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -21,38 +35,150 @@ public class CDILiquibaseBootstrap {
     // get a static slf4j logger for the class
     protected static final Logger logger = getLogger(CDILiquibaseBootstrap.class);
 
+    @Inject
+    private LiquibaseReadiness readiness;
+
+    // default instrumentation created by this bootstrap, whose MBeans must be unregistered on shutdown
+    private JmxLiquibaseInstrumentation jmxInstrumentation;
+
     /**
-     * Launches the Liquibase startup process
+     * Launches the Liquibase startup process.  Blocks until all configs have been processed, unless running in
+     * {@link CDIBootstrapConfiguration.ExecutionMode#ASYNC_UPDATE} mode, in which case the progress is reported through
+     * {@link LiquibaseReadiness} and the migration events only.
      * @param o
      * @param beanManager
      */
     public void initializeLiquibase(@Observes @Initialized(ApplicationScoped.class) Object o, BeanManager beanManager) {
         logger.info("Application has started up, so launch Liquibase startup");
 
-        // retrieve all instances of the liquibase configuration classes defined for DB initialization
-        processLiquibaseConfigBeans(new LiquibaseType.Literal(true));
-        processLiquibaseConfigBeans(new LiquibaseType.Literal());
+        CDIBootstrapConfiguration configuration = LiquibaseConfiguration.getInstance().getConfiguration(CDIBootstrapConfiguration.class);
+        // retrieve all instances of the liquibase configuration classes up front, so producers run on the container thread
+        List<LiquibaseConfig> initConfigs = findLiquibaseConfigBeans(new LiquibaseType.Literal(true));
+        List<LiquibaseConfig> liveConfigs = findLiquibaseConfigBeans(new LiquibaseType.Literal());
+
+        CompletableFuture<Void> bootstrap;
+        try {
+            LiquibaseConfigGraph graph = LiquibaseConfigGraph.build(initConfigs, liveConfigs);
+            MigrationWatchdog watchdog = MigrationWatchdog.create(configuration.getMigrationTimeout(), configuration.getGlobalTimeout(),
+                    configuration.getSlowChangeSetThreshold());
+            LiquibaseMigrationExecutor executor = new LiquibaseMigrationExecutor(configuration.getPoolSize(), beanManager, findInstrumentation(), watchdog);
+            bootstrap = processLiquibaseConfigGraph(graph, executor);
+            bootstrap.whenComplete((result, error) -> {
+                executor.close();
+                if (watchdog != null) {
+                    watchdog.close();
+                }
+            });
+        } catch (LiquibaseException e) {
+            // invalid dependencies: fail before migrating anything
+            bootstrap = new CompletableFuture<>();
+            bootstrap.completeExceptionally(e);
+        }
+        readiness.complete(bootstrap);
+
+        if (configuration.getExecutionMode() == CDIBootstrapConfiguration.ExecutionMode.ASYNC_UPDATE) {
+            logger.info("Liquibase migrations continue in the background");
+            bootstrap.whenComplete((result, error) -> {
+                if (error == null) {
+                    logger.info("Liquibase migrations completed");
+                } else {
+                    logger.error("Liquibase migrations failed", error);
+                }
+            });
+        } else {
+            try {
+                bootstrap.join();
+            } catch (CompletionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
     }
 
+    /**
+     * Unregisters the MBeans of the default {@link JmxLiquibaseInstrumentation}, so the application classes can be unloaded
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (jmxInstrumentation != null) {
+            jmxInstrumentation.close();
+            jmxInstrumentation = null;
+        }
+    }
+
+    /**
+     * @return the LiquibaseType qualified {@link LiquibaseInstrumentation} beans, or the {@link JmxLiquibaseInstrumentation} if there are none
+     */
+    private LiquibaseInstrumentation findInstrumentation() {
+        List<LiquibaseInstrumentation> result = findInstrumentationBeans();
+        if (result.isEmpty()) {
+            jmxInstrumentation = new JmxLiquibaseInstrumentation();
+            return jmxInstrumentation;
+        }
+        return result.size() == 1 ? result.get(0) : new CompositeLiquibaseInstrumentation(result);
+    }
+
+    /**
+     * @return all {@link LiquibaseInstrumentation} beans qualified with LiquibaseType, for init configs or not
+     */
+    static List<LiquibaseInstrumentation> findInstrumentationBeans() {
+        List<LiquibaseInstrumentation> result = new ArrayList<>();
+        for (LiquibaseType.Literal liquibaseType : Arrays.asList(new LiquibaseType.Literal(), new LiquibaseType.Literal(true))) {
+            CDI.current().select(LiquibaseInstrumentation.class, liquibaseType).forEach(result::add);
+        }
+        return result;
+    }
 
     /**
-     * Process all LiquibaseType qualified beans
      * @param liquibaseType
+     * @return all LiquibaseConfig beans with the given qualifier
      */
-    private void processLiquibaseConfigBeans(LiquibaseType.Literal liquibaseType){
+    private List<LiquibaseConfig> findLiquibaseConfigBeans(LiquibaseType.Literal liquibaseType) {
+        List<LiquibaseConfig> result = new ArrayList<>();
         Instance<LiquibaseConfig> configs = CDI.current().select(LiquibaseConfig.class, liquibaseType);
         if(configs.isUnsatisfied()) {
             logger.info("No matching Liquibase configurations found of type LiquibaseType(init={})", liquibaseType.init());
         } else {
-            // loop over all config classes
-            configs.forEach(config -> {
-                // create a new Liquibase instance
-                CDILiquibase instance = new CDILiquibase(config, config.getDataSource(), config.getResourceAccessor());
-                instance.onStartup();
-                if (!instance.isExecutionSuccessful())
-                    throw new RuntimeException(new LiquibaseException("Error updating liquibase configuration"));
-            });
+            configs.forEach(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Process the LiquibaseType qualified beans, starting each config as soon as all of its dependencies have been migrated,
+     * with up to {@link CDIBootstrapConfiguration#getPoolSize()} configs migrated concurrently.  Configs depending on a config
+     * that failed are skipped.
+     * @param graph
+     * @param executor
+     * @return future completed once every config has completed, exceptionally if any of the configs failed to migrate
+     */
+    private CompletableFuture<Void> processLiquibaseConfigGraph(LiquibaseConfigGraph graph, LiquibaseMigrationExecutor executor) {
+        Map<LiquibaseConfig, CompletableFuture<CDILiquibase>> scheduled = new IdentityHashMap<>();
+        List<CompletableFuture<CDILiquibase>> migrations = new ArrayList<>();
+        // configs are in topological order, so the migrations of the dependencies are always scheduled already
+        for (LiquibaseConfig config : graph.getConfigs()) {
+            CompletableFuture<?>[] dependencies = graph.getDependencies(config).stream()
+                    .map(scheduled::get)
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture<CDILiquibase> migration = CompletableFuture.allOf(dependencies)
+                    .handle((result, error) -> error)
+                    .thenCompose(error -> error == null ? executor.submit(config) : skip(config));
+            readiness.track(config, migration);
+            scheduled.put(config, migration);
+            migrations.add(migration);
         }
+        return LiquibaseMigrationExecutor.whenAll(migrations);
+    }
+
+    /**
+     * @param config
+     * @return future failed with the reason the config was not migrated
+     */
+    private static CompletableFuture<CDILiquibase> skip(LiquibaseConfig config) {
+        String description = LiquibaseMigrationExecutor.describe(config);
+        logger.warn("Skipping Liquibase configuration {} because a configuration it depends on failed", description);
+        CompletableFuture<CDILiquibase> skipped = new CompletableFuture<>();
+        skipped.completeExceptionally(new LiquibaseException("Skipped Liquibase configuration " + description + " because a configuration it depends on failed"));
+        return skipped;
     }
 
 }
@@ -0,0 +1,488 @@
+package liquibase;
+
+import liquibase.batch.BatchingJdbcExecutor;
+import liquibase.cache.CachingXMLChangeLogParser;
+import liquibase.cache.ChangeLogCache;
+import liquibase.change.CheckSum;
+import liquibase.checksum.ParallelCheckSumVerifier;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeLogIterator;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.changelog.filter.ContextChangeSetFilter;
+import liquibase.changelog.filter.DbmsChangeSetFilter;
+import liquibase.changelog.filter.IgnoreChangeSetFilter;
+import liquibase.changelog.filter.LabelChangeSetFilter;
+import liquibase.changelog.filter.ShouldRunChangeSetFilter;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.changelog.visitor.ExpectedChangesVisitor;
+import liquibase.changelog.visitor.ListVisitor;
+import liquibase.changelog.visitor.UpdateVisitor;
+import liquibase.database.Database;
+import liquibase.database.DatabaseConnection;
+import liquibase.database.ObjectQuotingStrategy;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.LockException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.instrumentation.InstrumentingChangeExecListener;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import liquibase.lockservice.LockService;
+import liquibase.lockservice.LockServiceFactory;
+import liquibase.rollback.RollbackPlan;
+import liquibase.strategy.ExecutionStrategy;
+import liquibase.strategy.ExecutionStrategyJdbcExecutor;
+import liquibase.tenant.SharedChangeLog;
+import liquibase.util.LiquibaseUtil;
+import liquibase.util.StreamUtil;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A single unit of work against one database for one {@link LiquibaseConfig}.
+ *
+ * The session owns a single {@link Database} (and therefore a single connection), parses the {@link DatabaseChangeLog} at most
+ * once, reads the {@link liquibase.configuration.GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME} table at most once and validates
+ * the changelog at most once.  All of these are then shared by {@link #update()}, {@link #listUnrunChangeSets()} and
+ * {@link #listUnexpectedChangeSets()}, which would otherwise each re-open a connection and re-parse the changelog when going
+ * through the corresponding {@link Liquibase} methods.
+ *
+ * Sessions are not thread safe.
+ *
+ * @author Eric Benzacar
+ */
+public class CDILiquibaseSession implements AutoCloseable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(CDILiquibaseSession.class);
+
+    private final LiquibaseConfig config;
+    private final Liquibase liquibase;
+    private final Database database;
+    private final Contexts contexts;
+    private final LabelExpression labelExpression;
+    private final CompositeChangeExecListener changeExecListener = new CompositeChangeExecListener();
+
+    private ChangeLogCache changeLogCache;
+    private SharedChangeLog sharedChangeLog;
+    private Executor previousExecutor;
+    private ParallelCheckSumVerifier checkSumVerifier;
+    private LiquibaseInstrumentation instrumentation = LiquibaseInstrumentation.NONE;
+    private DatabaseChangeLog changeLog;
+    private List<RanChangeSet> ranChangeSets;
+    private boolean prepared;
+    private boolean tablesChecked;
+
+    public CDILiquibaseSession(LiquibaseConfig config, Liquibase liquibase) {
+        this.config = config;
+        this.liquibase = liquibase;
+        this.database = liquibase.getDatabase();
+        this.contexts = new Contexts(config.getContexts());
+        this.labelExpression = new LabelExpression(config.getLabels());
+
+        // changelog properties can be filtered on contexts/labels, so these must be known before parsing
+        liquibase.getChangeLogParameters().setContexts(contexts);
+        liquibase.getChangeLogParameters().setLabels(labelExpression);
+    }
+
+    public LiquibaseConfig getConfig() {
+        return config;
+    }
+
+    public Liquibase getLiquibase() {
+        return liquibase;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public Contexts getContexts() {
+        return contexts;
+    }
+
+    public LabelExpression getLabelExpression() {
+        return labelExpression;
+    }
+
+    /**
+     * @param listener notified of the changesets executed by {@link #update()}
+     */
+    public void addChangeExecListener(ChangeExecListener listener) {
+        changeExecListener.addListener(listener);
+    }
+
+    /**
+     * @param instrumentation receiving the timings of the phases of this session
+     */
+    public void setInstrumentation(LiquibaseInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        if (instrumentation != LiquibaseInstrumentation.NONE) {
+            addChangeExecListener(new InstrumentingChangeExecListener(config, instrumentation));
+        }
+    }
+
+    /**
+     * @param changeLogCache cache of parsed XML changelog files to use when parsing the changelog, or null to always parse
+     */
+    public void setChangeLogCache(ChangeLogCache changeLogCache) {
+        this.changeLogCache = changeLogCache;
+    }
+
+    /**
+     * @param checkSumVerifier verifying the checksums of the applied changesets ahead of the validation, or null to leave it to Liquibase
+     */
+    public void setCheckSumVerifier(ParallelCheckSumVerifier checkSumVerifier) {
+        this.checkSumVerifier = checkSumVerifier;
+    }
+
+    /**
+     * Groups consecutive DML statements of the changesets into JDBC batches for the rest of the session
+     * (see {@link BatchingJdbcExecutor})
+     * @param batchSize maximum number of statements per batch
+     */
+    public void enableBatching(int batchSize) {
+        if (previousExecutor != null) {
+            return;
+        }
+        previousExecutor = ExecutorService.getInstance().getExecutor(database);
+        BatchingJdbcExecutor executor = new BatchingJdbcExecutor(database, batchSize);
+        ExecutorService.getInstance().setExecutor(database, executor);
+        addChangeExecListener(executor.getFlushListener());
+    }
+
+    /**
+     * Offers every statement of the changesets to the strategy for the rest of the session (see {@link ExecutionStrategyJdbcExecutor}).
+     * Must be called after {@link #enableBatching(int)}, if batching is used.
+     * @param strategy
+     */
+    public void setExecutionStrategy(ExecutionStrategy strategy) {
+        Executor current = ExecutorService.getInstance().getExecutor(database);
+        if (!(current instanceof JdbcExecutor)) {
+            logger.warn("Cannot apply execution strategy {} to executor {}", strategy.getClass().getSimpleName(), current.getClass().getSimpleName());
+            return;
+        }
+        if (previousExecutor == null) {
+            previousExecutor = current;
+        }
+        ExecutorService.getInstance().setExecutor(database, new ExecutionStrategyJdbcExecutor(database, (JdbcExecutor) current, strategy));
+    }
+
+    /**
+     * @param sharedChangeLog parsed changelog files shared with the sessions of the other targets of a template config, or null to
+     *                        parse the changelog for this session only
+     */
+    public void setSharedChangeLog(SharedChangeLog sharedChangeLog) {
+        this.sharedChangeLog = sharedChangeLog;
+    }
+
+    /**
+     * @return the changelog, parsed on first access only
+     * @throws LiquibaseException
+     */
+    public DatabaseChangeLog getDatabaseChangeLog() throws LiquibaseException {
+        if (changeLog == null) {
+            changeLog = parse();
+        }
+        return changeLog;
+    }
+
+    private DatabaseChangeLog parse() throws LiquibaseException {
+        long started = System.nanoTime();
+        DatabaseChangeLog parsed;
+        ChangeLogCache cache = sharedChangeLog == null ? changeLogCache : sharedChangeLog.over(changeLogCache);
+        if (cache == null) {
+            parsed = liquibase.getDatabaseChangeLog();
+        } else {
+            try {
+                parsed = CachingXMLChangeLogParser.withCache(cache, liquibase::getDatabaseChangeLog);
+            } catch (LiquibaseException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new LiquibaseException(e);
+            }
+        }
+        instrumentation.changeLogParsed(config, System.nanoTime() - started);
+        return parsed;
+    }
+
+    /**
+     * Snapshot of the changesets recorded in the database, read on first access only.  The snapshot is not refreshed by
+     * {@link #update()}: changesets applied by the update are part of the changelog, so the snapshot remains accurate for the
+     * purpose of detecting unexpected changesets.
+     * @return changeSets recorded in the database when the session was prepared
+     * @throws DatabaseException
+     */
+    public List<RanChangeSet> getRanChangeSets() throws DatabaseException {
+        if (ranChangeSets == null) {
+            // copy, as the history service keeps appending to its own list while changesets are applied
+            ranChangeSets = new ArrayList<>(database.getRanChangeSetList());
+        }
+        return ranChangeSets;
+    }
+
+    /**
+     * Applies all pending changesets to the database.  Equivalent to {@link Liquibase#update(Contexts, LabelExpression)},
+     * but reuses the parsed and validated changelog of this session.
+     * @throws LiquibaseException
+     */
+    public void update() throws LiquibaseException {
+        LockService lockService = LockServiceFactory.getInstance().getLockService(database);
+        long started = System.nanoTime();
+        lockService.waitForLock();
+        instrumentation.lockAcquired(config, System.nanoTime() - started);
+        try {
+            prepare(true);
+            ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database).generateDeploymentId();
+            RollbackPlan rollbackPlan = config.isRollbackOnFailure() ? prepareRollback() : null;
+            try {
+                pendingChangeSetsIterator().run(new UpdateVisitor(database, changeExecListener.isEmpty() ? null : changeExecListener),
+                        new RuntimeEnvironment(database, contexts, labelExpression));
+            } catch (LiquibaseException | RuntimeException e) {
+                if (rollbackPlan != null) {
+                    rollBack(rollbackPlan, e);
+                }
+                throw e;
+            }
+        } finally {
+            database.setObjectQuotingStrategy(ObjectQuotingStrategy.LEGACY);
+            try {
+                lockService.releaseLock();
+            } catch (LockException e) {
+                logger.error("Could not release the Liquibase lock", e);
+            }
+        }
+    }
+
+    /**
+     * Computes the rollback plan of the pending changesets, and tags the database with the last changeset already applied,
+     * unless it is already tagged, so the database can also be rolled back manually
+     * @return the plan
+     * @throws LiquibaseException if any pending changeset cannot be rolled back
+     */
+    protected RollbackPlan prepareRollback() throws LiquibaseException {
+        List<ChangeSet> pending = listUnrunChangeSets();
+        RollbackPlan rollbackPlan = RollbackPlan.compute(pending, getRanChangeSets(), database);
+        if (logger.isDebugEnabled()) {
+            rollbackPlan.getSql(pending).forEach((changeSet, sql) -> logger.debug("Rollback of {}: {}", changeSet, sql));
+        }
+        List<RanChangeSet> ran = getRanChangeSets();
+        if (!pending.isEmpty() && !ran.isEmpty() && ran.get(ran.size() - 1).getTag() == null) {
+            String tag = "before-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            database.tag(tag);
+            logger.info("Tagged the database as {} before updating", tag);
+        }
+        addChangeExecListener(rollbackPlan.getListener());
+        return rollbackPlan;
+    }
+
+    /**
+     * Rolls back the changesets applied by the failed update.  Rollback failures are attached to the failure of the update.
+     * @param rollbackPlan
+     * @param failure
+     */
+    private void rollBack(RollbackPlan rollbackPlan, Exception failure) {
+        try {
+            int count = rollbackPlan.rollback(database);
+            logger.warn("Update of changelog {} failed, rolled back the {} changesets it applied", config.getChangeLog(), count);
+        } catch (LiquibaseException | RuntimeException e) {
+            logger.error("Could not roll back the failed update of changelog {}; the database is partially migrated", config.getChangeLog(), e);
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Writes the SQL {@link #update()} would execute instead of executing it, as {@link Liquibase#update(Contexts, LabelExpression, Writer)}
+     * does, but reusing the parsed changelog of this session.  Unlike Liquibase, only the executor of this session's database
+     * is replaced, so the Liquibase services of the other configs are left untouched.  The output is flushed after each
+     * changeset, so it can be streamed to a file without being held in memory.  Must be the last use of the session, whose
+     * in-memory state reflects the script rather than the database afterwards.
+     * @param output
+     * @throws LiquibaseException
+     */
+    public void generateSql(Writer output) throws LiquibaseException {
+        CompositeChangeExecListener listener = new CompositeChangeExecListener();
+        listener.addListener(changeExecListener);
+        listener.addListener(new AbstractChangeExecListener() {
+            @Override
+            public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+                try {
+                    output.flush();
+                } catch (IOException e) {
+                    throw new UnexpectedLiquibaseException(e);
+                }
+            }
+        });
+
+        Executor executor = ExecutorService.getInstance().getExecutor(database);
+        LoggingExecutor loggingExecutor = new LoggingExecutor(executor, output, database);
+        ExecutorService.getInstance().setExecutor(database, loggingExecutor);
+        LockService lockService = LockServiceFactory.getInstance().getLockService(database);
+        try {
+            outputHeader(loggingExecutor);
+            // written to the script, as Liquibase does
+            lockService.waitForLock();
+            try {
+                prepare(true);
+                ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database).generateDeploymentId();
+                pendingChangeSetsIterator().run(new UpdateVisitor(database, listener), new RuntimeEnvironment(database, contexts, labelExpression));
+            } finally {
+                lockService.releaseLock();
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new LiquibaseException("Could not write the SQL of changelog " + config.getChangeLog(), e);
+        } finally {
+            ExecutorService.getInstance().setExecutor(database, executor);
+            // the services of this database recorded the tables and changesets of the script as created and applied
+            lockService.reset();
+            ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database).reset();
+        }
+    }
+
+    private void outputHeader(Executor executor) throws DatabaseException {
+        executor.comment("*********************************************************************");
+        executor.comment("Update Database Script");
+        executor.comment("*********************************************************************");
+        executor.comment("Change Log: " + config.getChangeLog());
+        executor.comment("Ran at: " + DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT).format(new Date()));
+        DatabaseConnection connection = database.getConnection();
+        if (connection != null) {
+            executor.comment("Against: " + connection.getConnectionUserName() + "@" + connection.getURL());
+        }
+        executor.comment("Liquibase version: " + LiquibaseUtil.getBuildVersion());
+        executor.comment("*********************************************************************" + StreamUtil.getLineSeparator());
+    }
+
+    /**
+     * @return list of any changeSets in the changelog that haven't been applied in the DB
+     * @throws LiquibaseException
+     */
+    public List<ChangeSet> listUnrunChangeSets() throws LiquibaseException {
+        prepare();
+        ListVisitor visitor = new ListVisitor();
+        pendingChangeSetsIterator().run(visitor, new RuntimeEnvironment(database, contexts, labelExpression));
+        return visitor.getSeenChangeSets();
+    }
+
+    /**
+     * @return Collection of any changeSets that have been applied in the DB but are not part of the changelog
+     * @throws LiquibaseException
+     */
+    public Collection<RanChangeSet> listUnexpectedChangeSets() throws LiquibaseException {
+        prepare();
+        ChangeLogIterator iterator = new ChangeLogIterator(getDatabaseChangeLog(),
+                new ContextChangeSetFilter(contexts),
+                new LabelChangeSetFilter(labelExpression),
+                new DbmsChangeSetFilter(database));
+        ExpectedChangesVisitor visitor = new ExpectedChangesVisitor(getRanChangeSets());
+        iterator.run(visitor, new RuntimeEnvironment(database, contexts, labelExpression));
+        return visitor.getUnexpectedChangeSets();
+    }
+
+    /**
+     * Parses the changelog, snapshots the applied changesets and validates the changelog against them, without holding the
+     * Liquibase lock.  Only performed once per session.  The Liquibase tables are only read, unless the checksums they hold
+     * must be upgraded, which is then done under the lock.
+     * @throws LiquibaseException
+     */
+    protected void prepare() throws LiquibaseException {
+        prepare(false);
+    }
+
+    /**
+     * @param locked true if the Liquibase lock is held, so the Liquibase tables can be created or upgraded as an update requires
+     * @throws LiquibaseException
+     */
+    private void prepare(boolean locked) throws LiquibaseException {
+        if (locked && !tablesChecked) {
+            checkLiquibaseTables();
+        }
+        if (prepared) {
+            return;
+        }
+        DatabaseChangeLog databaseChangeLog = getDatabaseChangeLog();
+        if (!tablesChecked && needsChecksumUpgrade()) {
+            LockService lockService = LockServiceFactory.getInstance().getLockService(database);
+            lockService.waitForLock();
+            try {
+                checkLiquibaseTables();
+            } finally {
+                lockService.releaseLock();
+            }
+        }
+        getRanChangeSets();
+        long started = System.nanoTime();
+        if (checkSumVerifier != null) {
+            checkSumVerifier.verify(database, databaseChangeLog, getRanChangeSets());
+        }
+        databaseChangeLog.validate(database, contexts, labelExpression);
+        instrumentation.checksumsValidated(config, System.nanoTime() - started);
+        prepared = true;
+    }
+
+    private void checkLiquibaseTables() throws LiquibaseException {
+        liquibase.checkLiquibaseTables(true, getDatabaseChangeLog(), contexts, labelExpression);
+        tablesChecked = true;
+        // snapshot after the tables have been checked, since upgrading checksums refreshes the history service
+        ranChangeSets = null;
+    }
+
+    /**
+     * @return true if some applied changesets have no checksum, or one computed by an older Liquibase version
+     * @throws DatabaseException
+     */
+    private boolean needsChecksumUpgrade() throws DatabaseException {
+        for (RanChangeSet ranChangeSet : database.getRanChangeSetList()) {
+            CheckSum checkSum = ranChangeSet.getLastCheckSum();
+            if (checkSum == null || checkSum.getVersion() != CheckSum.getCurrentVersion()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return iterator over the changesets that still need to be applied, as used by {@link Liquibase#update(Contexts, LabelExpression)}
+     * @throws LiquibaseException
+     */
+    protected ChangeLogIterator pendingChangeSetsIterator() throws LiquibaseException {
+        return new ChangeLogIterator(getDatabaseChangeLog(),
+                new ShouldRunChangeSetFilter(database, liquibase.isIgnoreClasspathPrefix()),
+                new ContextChangeSetFilter(contexts),
+                new LabelChangeSetFilter(labelExpression),
+                new DbmsChangeSetFilter(database),
+                new IgnoreChangeSetFilter());
+    }
+
+    /**
+     * Closes the database, after releasing the Liquibase services kept for it, as {@link Liquibase#update(Contexts, LabelExpression)}
+     * does by resetting them all
+     * @throws DatabaseException
+     */
+    @Override
+    public void close() throws DatabaseException {
+        try {
+            LockServiceFactory.getInstance().getLockService(database).reset();
+            ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database).reset();
+            ExecutorService.getInstance().clearExecutor(database);
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package liquibase;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.PreconditionErrorException;
+import liquibase.exception.PreconditionFailedException;
+import liquibase.precondition.core.PreconditionContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards the changeset execution events to several listeners, since Liquibase only supports a single {@link ChangeExecListener}
+ *
+ * @author Eric Benzacar
+ */
+public class CompositeChangeExecListener implements ChangeExecListener {
+
+    private final List<ChangeExecListener> listeners = new ArrayList<>();
+
+    public void addListener(ChangeExecListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    @Override
+    public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+        listeners.forEach(listener -> listener.willRun(changeSet, databaseChangeLog, database, runStatus));
+    }
+
+    @Override
+    public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+        listeners.forEach(listener -> listener.ran(changeSet, databaseChangeLog, database, execType));
+    }
+
+    @Override
+    public void rolledBack(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database) {
+        listeners.forEach(listener -> listener.rolledBack(changeSet, databaseChangeLog, database));
+    }
+
+    @Override
+    public void preconditionFailed(PreconditionFailedException error, PreconditionContainer.FailOption onFail) {
+        listeners.forEach(listener -> listener.preconditionFailed(error, onFail));
+    }
+
+    @Override
+    public void preconditionErrored(PreconditionErrorException error, PreconditionContainer.ErrorOption onError) {
+        listeners.forEach(listener -> listener.preconditionErrored(error, onError));
+    }
+
+    @Override
+    public void willRun(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+        listeners.forEach(listener -> listener.willRun(change, changeSet, changeLog, database));
+    }
+
+    @Override
+    public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+        listeners.forEach(listener -> listener.ran(change, changeSet, changeLog, database));
+    }
+
+    @Override
+    public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        listeners.forEach(listener -> listener.runFailed(changeSet, databaseChangeLog, database, exception));
+    }
+}
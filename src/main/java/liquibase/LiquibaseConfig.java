@@ -1,9 +1,14 @@
 package liquibase;
 
 import liquibase.resource.ResourceAccessor;
+import liquibase.strategy.ExecutionStrategy;
+import liquibase.tenant.TenantTarget;
 
 import javax.sql.DataSource;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Basic configuration class used to store all configuration parameters required for Liquibase
@@ -12,6 +17,23 @@ import java.util.Map;
  */
 public class LiquibaseConfig {
 
+    /**
+     * How the connection used by Liquibase is obtained
+     */
+    public enum ConnectionPolicy {
+        /**
+         * Borrows a single connection from the {@link #getDataSource() DataSource} for the whole run
+         */
+        DATA_SOURCE,
+        /**
+         * Opens a dedicated connection to {@link #getJdbcUrl()} through the {@link java.sql.DriverManager}, closed as soon as the
+         * run completes, so the application pool is not drained while booting
+         */
+        DEDICATED
+    }
+
+    private String name;
+    private Set<String> dependsOn;
     private ResourceAccessor resourceAccessor;
     private DataSource dataSource;
     private String contexts;
@@ -20,6 +42,45 @@ public class LiquibaseConfig {
     private Map<String,String> parameters;
     private String defaultSchema;
     private boolean verifyUnexpectedChangeSets;
+    private String changeLogCacheDirectory;
+    private boolean useChangeLogFingerprint;
+    private ConnectionPolicy connectionPolicy = ConnectionPolicy.DATA_SOURCE;
+    private String jdbcUrl;
+    private String username;
+    private String password;
+    private int batchSize;
+    private int checkSumParallelism;
+    private boolean usePrecompiledChangeLog;
+    private ExecutionStrategy executionStrategy;
+    private Supplier<? extends Collection<TenantTarget>> targets;
+    private int targetParallelism = 1;
+    private boolean rollbackOnFailure;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name unique name of the config, referenced by the {@link #setDependsOn(Set) dependencies} of other configs
+     *             and used to identify the config in logs and reports
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Set<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    /**
+     * Names of the configs which must have been successfully migrated before this one starts.  When not set, configs
+     * qualified with <code>LiquibaseType(init=false)</code> depend on all the <code>LiquibaseType(init=true)</code> configs
+     * (see {@link LiquibaseConfigGraph}).
+     * @param dependsOn
+     */
+    public void setDependsOn(Set<String> dependsOn) {
+        this.dependsOn = dependsOn;
+    }
 
     public String getContexts() {
         return contexts;
@@ -84,4 +145,191 @@ public class LiquibaseConfig {
     public void setVerifyUnexpectedChangeSets(boolean verifyUnexpectedChangeSets) {
         this.verifyUnexpectedChangeSets = verifyUnexpectedChangeSets;
     }
+
+    public String getChangeLogCacheDirectory() {
+        return changeLogCacheDirectory;
+    }
+
+    /**
+     * Directory in which parsed XML changelog files are cached between restarts, keyed by the digest of their content.
+     * Changelog files in other formats (YAML, JSON, SQL) are always parsed.  Caching is disabled when null (the default).
+     * @param changeLogCacheDirectory
+     */
+    public void setChangeLogCacheDirectory(String changeLogCacheDirectory) {
+        this.changeLogCacheDirectory = changeLogCacheDirectory;
+    }
+
+    public boolean isUseChangeLogFingerprint() {
+        return useChangeLogFingerprint;
+    }
+
+    /**
+     * When enabled, the fingerprint of the changelog is recorded after each successful update, and Liquibase is skipped entirely
+     * on startup if the bundled changelog still has the recorded fingerprint (see {@link liquibase.fingerprint.ChangeLogFingerprintService}).
+     * @param useChangeLogFingerprint
+     */
+    public void setUseChangeLogFingerprint(boolean useChangeLogFingerprint) {
+        this.useChangeLogFingerprint = useChangeLogFingerprint;
+    }
+
+    public ConnectionPolicy getConnectionPolicy() {
+        return connectionPolicy;
+    }
+
+    /**
+     * @param connectionPolicy how the connection used by Liquibase is obtained; defaults to {@link ConnectionPolicy#DATA_SOURCE}
+     */
+    public void setConnectionPolicy(ConnectionPolicy connectionPolicy) {
+        this.connectionPolicy = connectionPolicy;
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * @param jdbcUrl url of the database, required by {@link ConnectionPolicy#DEDICATED}
+     */
+    public void setJdbcUrl(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * When greater than 1, consecutive insert, update and delete statements of a changeset are sent to the database in JDBC
+     * batches of up to this many statements (see {@link liquibase.batch.BatchingJdbcExecutor}).  Disabled by default.
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getCheckSumParallelism() {
+        return checkSumParallelism;
+    }
+
+    /**
+     * When greater than 0, the checksums of the changesets already applied are verified by this many threads before the
+     * changelog is validated (see {@link liquibase.checksum.ParallelCheckSumVerifier}).  Disabled by default.
+     * @param checkSumParallelism
+     */
+    public void setCheckSumParallelism(int checkSumParallelism) {
+        this.checkSumParallelism = checkSumParallelism;
+    }
+
+    public boolean isUsePrecompiledChangeLog() {
+        return usePrecompiledChangeLog;
+    }
+
+    /**
+     * When enabled, XML changelog files precompiled at build time (see {@link liquibase.precompile.PrecompileChangeLog}) are
+     * loaded from the resource accessor instead of being parsed, as long as their content has not changed since.
+     * @param usePrecompiledChangeLog
+     */
+    public void setUsePrecompiledChangeLog(boolean usePrecompiledChangeLog) {
+        this.usePrecompiledChangeLog = usePrecompiledChangeLog;
+    }
+
+    public ExecutionStrategy getExecutionStrategy() {
+        return executionStrategy;
+    }
+
+    /**
+     * Strategy rewriting or rerouting the statements of the changesets before they are executed, e.g. to run DDL online
+     * (see {@link liquibase.strategy.OnlineDdlExecutionStrategy}).  Statements are executed as generated by Liquibase by default.
+     * @param executionStrategy
+     */
+    public void setExecutionStrategy(ExecutionStrategy executionStrategy) {
+        this.executionStrategy = executionStrategy;
+    }
+
+    public Supplier<? extends Collection<TenantTarget>> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Turns this config into a template applied to each of the targets, e.g. one schema per tenant.  The changelog files
+     * parsed for one target are reused by the others, each target expanding its own changelog parameters; targets are
+     * migrated with up to {@link #getTargetParallelism()} targets at a time, and the config fails with a
+     * {@link liquibase.exception.TenantMigrationException} listing the failed targets, if any.
+     * @param targets supplier of the targets, called when the config is migrated
+     */
+    public void setTargets(Supplier<? extends Collection<TenantTarget>> targets) {
+        this.targets = targets;
+    }
+
+    public int getTargetParallelism() {
+        return targetParallelism;
+    }
+
+    /**
+     * @param targetParallelism maximum number of {@link #setTargets(Supplier) targets} migrated concurrently (defaults to 1)
+     */
+    public void setTargetParallelism(int targetParallelism) {
+        this.targetParallelism = targetParallelism;
+    }
+
+    public boolean isRollbackOnFailure() {
+        return rollbackOnFailure;
+    }
+
+    /**
+     * When enabled, the rollback SQL of the pending changesets is computed before updating, and the update does not start if
+     * any of them cannot be rolled back; if the update then fails, the changesets it applied are rolled back
+     * (see {@link liquibase.rollback.RollbackPlan}).  Disabled by default.
+     * @param rollbackOnFailure
+     */
+    public void setRollbackOnFailure(boolean rollbackOnFailure) {
+        this.rollbackOnFailure = rollbackOnFailure;
+    }
+
+    /**
+     * @param target
+     * @return copy of this template config applied to the target
+     */
+    public LiquibaseConfig forTarget(TenantTarget target) {
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.name = (name == null ? changeLog : name) + "[" + target.getName() + "]";
+        config.dependsOn = dependsOn;
+        config.resourceAccessor = resourceAccessor;
+        config.dataSource = target.getDataSource() == null ? dataSource : target.getDataSource();
+        config.contexts = contexts;
+        config.labels = labels;
+        config.changeLog = changeLog;
+        config.parameters = parameters;
+        config.defaultSchema = target.getDefaultSchema() == null ? defaultSchema : target.getDefaultSchema();
+        config.verifyUnexpectedChangeSets = verifyUnexpectedChangeSets;
+        config.changeLogCacheDirectory = changeLogCacheDirectory;
+        config.useChangeLogFingerprint = useChangeLogFingerprint;
+        // a target data source replaces the dedicated connection of the template
+        config.connectionPolicy = target.getDataSource() == null ? connectionPolicy : ConnectionPolicy.DATA_SOURCE;
+        config.jdbcUrl = jdbcUrl;
+        config.username = username;
+        config.password = password;
+        config.batchSize = batchSize;
+        config.checkSumParallelism = checkSumParallelism;
+        config.usePrecompiledChangeLog = usePrecompiledChangeLog;
+        config.executionStrategy = executionStrategy;
+        config.rollbackOnFailure = rollbackOnFailure;
+        return config;
+    }
 }
@@ -0,0 +1,130 @@
+package liquibase;
+
+import liquibase.exception.LiquibaseException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Dependency graph of the {@link LiquibaseConfig} instances to migrate.
+ *
+ * A config depends on the configs named in its {@link LiquibaseConfig#getDependsOn()}.  Configs which do not declare any
+ * dependency keep the historical ordering: <code>LiquibaseType(init=false)</code> configs depend on every
+ * <code>LiquibaseType(init=true)</code> config, while init configs do not depend on anything.  Unknown or duplicate names and
+ * dependency cycles are reported when the graph is built, before anything is migrated.
+ *
+ * @author Eric Benzacar
+ */
+public final class LiquibaseConfigGraph {
+
+    private final List<LiquibaseConfig> configs;
+    private final Map<LiquibaseConfig, Set<LiquibaseConfig>> dependencies;
+
+    private LiquibaseConfigGraph(List<LiquibaseConfig> configs, Map<LiquibaseConfig, Set<LiquibaseConfig>> dependencies) {
+        this.configs = Collections.unmodifiableList(configs);
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * @param initConfigs configs qualified with <code>LiquibaseType(init=true)</code>
+     * @param liveConfigs configs qualified with <code>LiquibaseType(init=false)</code>
+     * @return the graph of the configs
+     * @throws LiquibaseException if names are duplicated, a dependency is unknown or the dependencies are cyclic
+     */
+    public static LiquibaseConfigGraph build(List<LiquibaseConfig> initConfigs, List<LiquibaseConfig> liveConfigs) throws LiquibaseException {
+        List<LiquibaseConfig> all = new ArrayList<>(initConfigs);
+        all.addAll(liveConfigs);
+
+        Map<String, LiquibaseConfig> byName = new HashMap<>();
+        for (LiquibaseConfig config : all) {
+            if (config.getName() != null && byName.put(config.getName(), config) != null) {
+                throw new LiquibaseException("Duplicate Liquibase configuration name " + config.getName());
+            }
+        }
+
+        // configs do not override equals, but be explicit about comparing instances
+        Map<LiquibaseConfig, Set<LiquibaseConfig>> dependencies = new IdentityHashMap<>();
+        Set<LiquibaseConfig> init = Collections.newSetFromMap(new IdentityHashMap<>());
+        init.addAll(initConfigs);
+        for (LiquibaseConfig config : all) {
+            Set<LiquibaseConfig> prerequisites = new LinkedHashSet<>();
+            if (config.getDependsOn() != null && !config.getDependsOn().isEmpty()) {
+                for (String name : config.getDependsOn()) {
+                    LiquibaseConfig prerequisite = byName.get(name);
+                    if (prerequisite == null) {
+                        throw new LiquibaseException(String.format("Liquibase configuration %s depends on unknown configuration %s",
+                                LiquibaseMigrationExecutor.describe(config), name));
+                    }
+                    prerequisites.add(prerequisite);
+                }
+            } else if (!init.contains(config)) {
+                prerequisites.addAll(initConfigs);
+            }
+            dependencies.put(config, prerequisites);
+        }
+
+        return new LiquibaseConfigGraph(sort(all, dependencies), dependencies);
+    }
+
+    /**
+     * @return all configs, each one listed after all of its dependencies
+     */
+    public List<LiquibaseConfig> getConfigs() {
+        return configs;
+    }
+
+    /**
+     * @param config
+     * @return the configs which must complete before the config starts
+     */
+    public Set<LiquibaseConfig> getDependencies(LiquibaseConfig config) {
+        return Collections.unmodifiableSet(dependencies.get(config));
+    }
+
+    /**
+     * Topological sort (Kahn), keeping the declaration order between independent configs
+     */
+    private static List<LiquibaseConfig> sort(List<LiquibaseConfig> all, Map<LiquibaseConfig, Set<LiquibaseConfig>> dependencies) throws LiquibaseException {
+        Map<LiquibaseConfig, Integer> pending = new IdentityHashMap<>();
+        Map<LiquibaseConfig, List<LiquibaseConfig>> dependents = new IdentityHashMap<>();
+        Deque<LiquibaseConfig> ready = new ArrayDeque<>();
+        for (LiquibaseConfig config : all) {
+            Set<LiquibaseConfig> prerequisites = dependencies.get(config);
+            pending.put(config, prerequisites.size());
+            for (LiquibaseConfig prerequisite : prerequisites) {
+                dependents.computeIfAbsent(prerequisite, key -> new ArrayList<>()).add(config);
+            }
+            if (prerequisites.isEmpty()) {
+                ready.add(config);
+            }
+        }
+
+        List<LiquibaseConfig> sorted = new ArrayList<>(all.size());
+        while (!ready.isEmpty()) {
+            LiquibaseConfig config = ready.poll();
+            sorted.add(config);
+            for (LiquibaseConfig dependent : dependents.getOrDefault(config, Collections.emptyList())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (sorted.size() < all.size()) {
+            throw new LiquibaseException("Cyclic dependencies between Liquibase configurations; unresolved configurations: " + all.stream()
+                    .filter(config -> pending.get(config) > 0)
+                    .map(LiquibaseMigrationExecutor::describe)
+                    .collect(Collectors.joining(", ")));
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,245 @@
+package liquibase;
+
+import liquibase.event.MigrationCompleted;
+import liquibase.event.MigrationFailed;
+import liquibase.event.MigrationStarted;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.TenantMigrationException;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import liquibase.tenant.SharedChangeLog;
+import liquibase.watchdog.MigrationWatchdog;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+
+import javax.enterprise.inject.spi.BeanManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Bounded executor used to run several {@link LiquibaseConfig} instances concurrently.
+ *
+ * Each config is migrated by its own {@link CDILiquibase} instance on a pooled thread, with the config registered in the
+ * logging {@link MDC} under {@link #MDC_CONFIG_KEY} for the duration of the migration, and {@link MigrationStarted},
+ * {@link MigrationCompleted} and {@link MigrationFailed} events fired around it.  Failures are not propagated individually;
+ * they are collected by {@link #whenAll(List)} and reported together once every submitted config has finished.
+ *
+ * @author Eric Benzacar
+ */
+public class LiquibaseMigrationExecutor implements AutoCloseable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(LiquibaseMigrationExecutor.class);
+
+    /**
+     * MDC key holding the description of the config being migrated by the current thread
+     */
+    public static final String MDC_CONFIG_KEY = "liquibaseConfig";
+
+    private final ExecutorService executor;
+    private final BeanManager beanManager;
+    private final LiquibaseInstrumentation instrumentation;
+    private final MigrationWatchdog watchdog;
+
+    /**
+     * @param poolSize maximum number of configs migrated concurrently
+     * @param beanManager used to fire the migration events, or null to not fire any
+     * @param instrumentation receiving the timings of every migration
+     */
+    public LiquibaseMigrationExecutor(int poolSize, BeanManager beanManager, LiquibaseInstrumentation instrumentation) {
+        this(poolSize, beanManager, instrumentation, null);
+    }
+
+    /**
+     * @param poolSize maximum number of configs migrated concurrently
+     * @param beanManager used to fire the migration events, or null to not fire any
+     * @param instrumentation receiving the timings of every migration
+     * @param watchdog watching every migration, or null to not watch them
+     */
+    public LiquibaseMigrationExecutor(int poolSize, BeanManager beanManager, LiquibaseInstrumentation instrumentation, MigrationWatchdog watchdog) {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize), new MigrationThreadFactory("liquibase-migration-"));
+        this.beanManager = beanManager;
+        this.instrumentation = instrumentation;
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Schedules the migration of the config
+     * @param config
+     * @return future completed with the {@link CDILiquibase} instance once the migration has succeeded, or exceptionally if it failed
+     */
+    public CompletableFuture<CDILiquibase> submit(LiquibaseConfig config) {
+        return CompletableFuture.supplyAsync(() -> migrate(config), executor);
+    }
+
+    /**
+     * @param migrations
+     * @return future completed once all the migrations have completed; completed exceptionally with a {@link LiquibaseException}
+     * if any of the migrations failed, each individual failure being attached to it as a suppressed exception
+     */
+    public static CompletableFuture<Void> whenAll(List<CompletableFuture<CDILiquibase>> migrations) {
+        return CompletableFuture.allOf(migrations.toArray(new CompletableFuture[0]))
+                .handle((result, error) -> {
+                    List<Throwable> failures = new ArrayList<>();
+                    for (CompletableFuture<CDILiquibase> migration : migrations) {
+                        try {
+                            migration.join();
+                        } catch (CompletionException e) {
+                            failures.add(e.getCause() != null ? e.getCause() : e);
+                        }
+                    }
+
+                    if (!failures.isEmpty()) {
+                        LiquibaseException exception = new LiquibaseException(
+                                String.format("%d of %d Liquibase configurations failed", failures.size(), migrations.size()));
+                        failures.forEach(exception::addSuppressed);
+                        throw new CompletionException(exception);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Runs the migration of the config in the calling thread
+     * @param config
+     * @return the {@link CDILiquibase} instance used to migrate the config, or null for a template config (see
+     * {@link LiquibaseConfig#setTargets})
+     */
+    protected CDILiquibase migrate(LiquibaseConfig config) {
+        return migrate(config, null);
+    }
+
+    private CDILiquibase migrate(LiquibaseConfig config, SharedChangeLog sharedChangeLog) {
+        String description = describe(config);
+        MDC.put(MDC_CONFIG_KEY, description);
+        try {
+            fire(new MigrationStarted(config));
+            CDILiquibase instance = config.getTargets() == null ? startup(config, sharedChangeLog) : migrateTargets(config);
+            fire(new MigrationCompleted(config));
+            return instance;
+        } catch (Exception e) {
+            logger.error("Liquibase migration of {} failed", description, e);
+            fire(new MigrationFailed(config, e));
+            throw new CompletionException(e);
+        } finally {
+            MDC.remove(MDC_CONFIG_KEY);
+        }
+    }
+
+    private CDILiquibase startup(LiquibaseConfig config, SharedChangeLog sharedChangeLog) throws LiquibaseException {
+        // create a new Liquibase instance
+        CDILiquibase instance = new CDILiquibase(config, config.getDataSource(), config.getResourceAccessor());
+        instance.setInstrumentation(instrumentation);
+        instance.setWatchdog(watchdog);
+        instance.setSharedChangeLog(sharedChangeLog);
+        instance.onStartup();
+        if (!instance.isExecutionSuccessful())
+            throw new LiquibaseException("Error updating liquibase configuration " + describe(config));
+        return instance;
+    }
+
+    /**
+     * Migrates every target of the template config, sharing a single parse of the changelog, with up to
+     * {@link LiquibaseConfig#getTargetParallelism()} targets migrated concurrently.  Each target is reported on its own, through
+     * the logs and the migration events, and all targets are attempted even if some fail.
+     * @param template
+     * @return null, as a template has no {@link CDILiquibase} instance of its own
+     * @throws TenantMigrationException if any target failed
+     */
+    private CDILiquibase migrateTargets(LiquibaseConfig template) throws TenantMigrationException {
+        List<LiquibaseConfig> configs = template.getTargets().get().stream()
+                .map(template::forTarget)
+                .collect(Collectors.toList());
+        if (configs.isEmpty()) {
+            logger.info("No targets to migrate");
+            return null;
+        }
+
+        SharedChangeLog sharedChangeLog = new SharedChangeLog();
+        ExecutorService targetExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(template.getTargetParallelism(), configs.size())),
+                new MigrationThreadFactory("liquibase-target-"));
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            List<CompletableFuture<CDILiquibase>> migrations = configs.stream()
+                    .map(config -> CompletableFuture.supplyAsync(() -> migrate(config, sharedChangeLog), targetExecutor))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < configs.size(); i++) {
+                try {
+                    migrations.get(i).join();
+                } catch (CompletionException e) {
+                    failures.put(configs.get(i).getName(), e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        } finally {
+            targetExecutor.shutdown();
+        }
+
+        logger.info("Migrated {} of {} targets", configs.size() - failures.size(), configs.size());
+        if (!failures.isEmpty()) {
+            throw new TenantMigrationException(describe(template), failures, configs.size());
+        }
+        return null;
+    }
+
+    /**
+     * @param config
+     * @return a short human-readable identification of the config, used in logs and error reports
+     */
+    public static String describe(LiquibaseConfig config) {
+        if (config.getName() != null) {
+            return config.getName();
+        }
+        return config.getDefaultSchema() == null ? config.getChangeLog() : config.getChangeLog() + "@" + config.getDefaultSchema();
+    }
+
+    /**
+     * Notifies the observers of the event.  Observer failures are logged, as they must not alter the outcome of the migration.
+     * @param event
+     */
+    protected void fire(Object event) {
+        if (beanManager == null) {
+            return;
+        }
+        try {
+            beanManager.fireEvent(event);
+        } catch (RuntimeException e) {
+            logger.warn("Observer of {} failed", event.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Stops accepting new migrations; migrations already submitted run to completion
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates named daemon threads so a stuck migration never prevents the JVM from shutting down
+     */
+    private static class MigrationThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private MigrationThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
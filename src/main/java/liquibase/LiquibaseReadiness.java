@@ -0,0 +1,113 @@
+package liquibase;
+
+import liquibase.exception.LiquibaseException;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Readiness of the database schemas managed by {@link CDILiquibaseBootstrap}.
+ *
+ * In {@link CDIBootstrapConfiguration.ExecutionMode#ASYNC_UPDATE} mode the container starts before the migrations have completed;
+ * beans depending on an up-to-date schema can inject this bean and wait on it (or register a callback on {@link #whenReady()}),
+ * while health checks can report {@link #isReady()}.  In the other modes the bean is already ready by the time the application
+ * has started.
+ *
+ * @author Eric Benzacar
+ */
+@ApplicationScoped
+public class LiquibaseReadiness {
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final Map<LiquibaseConfig, CompletionStage<CDILiquibase>> migrations = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * @return true once every config has been successfully processed
+     */
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * @return true if the processing of any config failed
+     */
+    public boolean isFailed() {
+        return ready.isCompletedExceptionally();
+    }
+
+    /**
+     * @return stage completed once every config has been successfully processed, or exceptionally as soon as the bootstrap failed
+     */
+    public CompletionStage<Void> whenReady() {
+        // expose a dependent stage, so callers cannot complete the readiness themselves
+        return ready.thenApply(Function.identity());
+    }
+
+    /**
+     * @return stage of each config scheduled so far, in scheduling order
+     */
+    public Map<LiquibaseConfig, CompletionStage<CDILiquibase>> getMigrations() {
+        synchronized (migrations) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(migrations));
+        }
+    }
+
+    /**
+     * Blocks until every config has been successfully processed
+     * @throws LiquibaseException if the bootstrap failed
+     * @throws InterruptedException
+     */
+    public void await() throws LiquibaseException, InterruptedException {
+        try {
+            ready.get();
+        } catch (ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Blocks until every config has been successfully processed, or the timeout expires
+     * @param timeout
+     * @param unit
+     * @return true if ready, false if the timeout expired first
+     * @throws LiquibaseException if the bootstrap failed
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws LiquibaseException, InterruptedException {
+        try {
+            ready.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    void track(LiquibaseConfig config, CompletionStage<CDILiquibase> migration) {
+        migrations.put(config, migration);
+    }
+
+    void complete(CompletionStage<Void> bootstrap) {
+        bootstrap.whenComplete((result, error) -> {
+            if (error == null) {
+                ready.complete(null);
+            } else {
+                ready.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
+
+    private static LiquibaseException failure(ExecutionException e) {
+        return e.getCause() instanceof LiquibaseException ? (LiquibaseException) e.getCause() : new LiquibaseException(e.getCause());
+    }
+}
@@ -0,0 +1,180 @@
+package liquibase.batch;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.executor.jvm.StatementCallback;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.DeleteStatement;
+import liquibase.statement.core.InsertSetStatement;
+import liquibase.statement.core.InsertStatement;
+import liquibase.statement.core.UpdateStatement;
+import org.slf4j.Logger;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link JdbcExecutor} grouping consecutive DML statements into JDBC batches.
+ *
+ * Insert, update and delete statements of the changesets are added to a batch, which is executed once it holds {@link #getBatchSize()}
+ * statements, before any other statement or query is executed, and at the end of each change (through the listener returned
+ * by {@link #getFlushListener()}).  A change therefore never completes with statements still pending, and Liquibase commits
+ * each changeset including all of its batched statements.  Statements are only validated by the database when their batch
+ * is executed, so errors are reported at the end of the batch rather than on the offending statement.
+ *
+ * @author Eric Benzacar
+ */
+public class BatchingJdbcExecutor extends JdbcExecutor {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(BatchingJdbcExecutor.class);
+
+    private final int batchSize;
+    private Statement batch;
+    private int pending;
+    private boolean running;
+
+    /**
+     * @param database
+     * @param batchSize maximum number of statements per batch
+     */
+    public BatchingJdbcExecutor(Database database, int batchSize) {
+        setDatabase(database);
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void execute(SqlStatement sql, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        if (!running || !isBatchable(sql)) {
+            flush();
+            super.execute(sql, sqlVisitors);
+            return;
+        }
+
+        String[] statements = applyVisitors(sql, sqlVisitors);
+        try {
+            if (batch == null) {
+                batch = ((JdbcConnection) database.getConnection()).getUnderlyingConnection().createStatement();
+            }
+            for (String statement : statements) {
+                logger.debug("Batching: {}", statement);
+                batch.addBatch(statement);
+                pending++;
+            }
+        } catch (SQLException e) {
+            discard();
+            throw new DatabaseException(e);
+        }
+        if (pending >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public Object execute(StatementCallback action, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        // every other statement, update and query goes through here, and must see the effect of the pending statements
+        flush();
+        return super.execute(action, sqlVisitors);
+    }
+
+    /**
+     * Executes the pending statements, if any
+     * @throws DatabaseException
+     */
+    public void flush() throws DatabaseException {
+        if (batch == null) {
+            return;
+        }
+        int count = pending;
+        try {
+            if (count > 0) {
+                batch.executeBatch();
+                logger.debug("Executed a batch of {} statements", count);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error executing a batch of " + count + " statements", e);
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Drops the pending statements without executing them
+     */
+    public void discard() {
+        if (batch != null) {
+            try {
+                batch.close();
+            } catch (SQLException e) {
+                logger.debug("Could not close batch statement", e);
+            }
+        }
+        batch = null;
+        pending = 0;
+    }
+
+    /**
+     * @return listener delimiting the changesets, flushing the pending statements after each change, and dropping them when a
+     * changeset fails
+     */
+    public ChangeExecListener getFlushListener() {
+        return new AbstractChangeExecListener() {
+            @Override
+            public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+                // statements issued by Liquibase itself, e.g. on its own tables, are never batched
+                running = true;
+            }
+
+            @Override
+            public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+                try {
+                    flush();
+                } catch (DatabaseException e) {
+                    // fails the changeset, which is then rolled back by Liquibase
+                    throw new UnexpectedLiquibaseException(e);
+                }
+            }
+
+            @Override
+            public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+                running = false;
+                if (execType == ChangeSet.ExecType.FAILED) {
+                    // failOnError=false: the changeset was rolled back, and its pending statements must not leak into the next one
+                    discard();
+                }
+            }
+
+            @Override
+            public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+                running = false;
+                discard();
+            }
+        };
+    }
+
+    /**
+     * @param sql
+     * @return true if the statement is plain DML whose generated SQL can be batched
+     */
+    protected boolean isBatchable(SqlStatement sql) {
+        return sql instanceof InsertStatement
+                || sql instanceof InsertSetStatement
+                || sql instanceof UpdateStatement
+                || sql instanceof DeleteStatement;
+    }
+}
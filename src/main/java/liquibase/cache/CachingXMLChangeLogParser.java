@@ -0,0 +1,118 @@
+package liquibase.cache;
+
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.exception.ChangeLogParseException;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.parser.core.ParsedNode;
+import liquibase.parser.core.xml.XMLChangeLogSAXParser;
+import liquibase.resource.ResourceAccessor;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * XML changelog parser which reuses the parsed node trees stored in a {@link ChangeLogCache}.
+ *
+ * The parser is registered with a higher priority than the standard {@link XMLChangeLogSAXParser}, so it handles every XML
+ * changelog file (including the included ones) once installed.  It only consults a cache while running inside
+ * {@link #withCache(ChangeLogCache, Callable)}, and otherwise behaves exactly like its parent.  Changelog files in other formats
+ * are handled by their own parsers, and are therefore never cached.
+ *
+ * Files containing <code>${...}</code> expressions are never cached, since these are expanded while parsing and the resulting
+ * tree therefore depends on the changelog parameters as well as on the file content.
+ *
+ * @author Eric Benzacar
+ */
+public class CachingXMLChangeLogParser extends XMLChangeLogSAXParser {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(CachingXMLChangeLogParser.class);
+
+    private static final ThreadLocal<ChangeLogCache> CURRENT_CACHE = new ThreadLocal<>();
+    private static ChangeLogParserFactory registeredFactory;
+
+    /**
+     * Registers the parser with the {@link ChangeLogParserFactory}, if not already done
+     */
+    public static synchronized void install() {
+        ChangeLogParserFactory factory = ChangeLogParserFactory.getInstance();
+        if (registeredFactory != factory) {
+            factory.register(new CachingXMLChangeLogParser());
+            registeredFactory = factory;
+        }
+    }
+
+    /**
+     * Runs the task with the cache used for all XML files parsed by the current thread
+     * @param cache
+     * @param task
+     * @return the result of the task
+     * @throws Exception thrown by the task
+     */
+    public static <T> T withCache(ChangeLogCache cache, Callable<T> task) throws Exception {
+        install();
+        ChangeLogCache previous = CURRENT_CACHE.get();
+        CURRENT_CACHE.set(cache);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                CURRENT_CACHE.remove();
+            } else {
+                CURRENT_CACHE.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public int getPriority() {
+        return super.getPriority() + 1;
+    }
+
+    @Override
+    protected ParsedNode parseToNode(String physicalChangeLogLocation, ChangeLogParameters changeLogParameters, ResourceAccessor resourceAccessor) throws ChangeLogParseException {
+        ChangeLogCache cache = CURRENT_CACHE.get();
+        if (cache == null) {
+            return super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+        }
+
+        byte[] content;
+        try {
+            content = ResourceDigest.read(physicalChangeLogLocation, resourceAccessor);
+        } catch (IOException e) {
+            content = null;
+        }
+        if (content == null || !isCacheable(content)) {
+            // let the standard parser report missing files, and expand expressions against the current parameters
+            return super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+        }
+
+        String key = ChangeLogCache.key(content);
+        ParsedNode node = cache.get(key);
+        if (node != null) {
+            logger.debug("Using cached parse of {}", physicalChangeLogLocation);
+            return node;
+        }
+
+        node = super.parseToNode(physicalChangeLogLocation, changeLogParameters, resourceAccessor);
+        if (node != null && ParsedNodeCodec.isEncodable(node)) {
+            cache.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * @param content raw content of a changelog file
+     * @return false if the file contains <code>${...}</code> expressions, whose parse depends on the changelog parameters
+     */
+    public static boolean isCacheable(byte[] content) {
+        for (int i = 0; i < content.length - 1; i++) {
+            if (content[i] == '$' && content[i + 1] == '{') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
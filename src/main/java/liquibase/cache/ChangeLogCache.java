@@ -0,0 +1,106 @@
+package liquibase.cache;
+
+import liquibase.parser.core.ParsedNode;
+import liquibase.util.LiquibaseUtil;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * On-disk cache of parsed changelog files.
+ *
+ * Entries are keyed by the SHA-256 of the raw changelog file content (and of the Liquibase version that parsed it), so any
+ * modification of a file yields a new key and stale entries are simply never read again.  Each entry holds the
+ * {@link ParsedNode} tree of a single file, encoded with {@link ParsedNodeCodec}; included files are cached as entries of their own.
+ *
+ * @author Eric Benzacar
+ */
+public class ChangeLogCache {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ChangeLogCache.class);
+
+    protected static final String EXTENSION = ".lbc";
+
+    private final Path directory;
+
+    public ChangeLogCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param content raw content of the changelog file
+     * @return the cache key for the content
+     */
+    public static String key(byte[] content) {
+        MessageDigest digest = ResourceDigest.newDigest();
+        digest.update(String.valueOf(LiquibaseUtil.getBuildVersion()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content);
+        return ResourceDigest.toHex(digest.digest());
+    }
+
+    /**
+     * @param key
+     * @return the cached tree, or null if there is no usable entry for the key
+     */
+    public ParsedNode get(String key) {
+        Path file = directory.resolve(key + EXTENSION);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return ParsedNodeCodec.read(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable changelog cache entry {}: {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                logger.debug("Could not delete changelog cache entry {}", file, ex);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the tree under the key.  Failures are logged but otherwise ignored, since the cache is only an optimization.
+     * @param key
+     * @param node
+     */
+    public void put(String key, ParsedNode node) {
+        Path file = directory.resolve(key + EXTENSION);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            // write to a temporary file first so concurrent readers never see a partial entry
+            temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                ParsedNodeCodec.write(node, out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write changelog cache entry {}: {}", file, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    logger.debug("Could not delete temporary file {}", temp, ex);
+                }
+            }
+        }
+    }
+}
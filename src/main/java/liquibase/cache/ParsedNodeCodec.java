@@ -0,0 +1,120 @@
+package liquibase.cache;
+
+import liquibase.parser.core.ParsedNode;
+import liquibase.parser.core.ParsedNodeException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of a {@link ParsedNode} tree, as produced by the changelog parsers before the tree is loaded into
+ * a {@link liquibase.changelog.DatabaseChangeLog}.
+ *
+ * Only trees whose values are all {@link String}s (which is always the case for XML changelogs) can be encoded; see
+ * {@link #isEncodable(ParsedNode)}.
+ *
+ * @author Eric Benzacar
+ */
+public final class ParsedNodeCodec {
+
+    private static final int MAGIC = 0x4C42434E; // "LBCN"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+
+    private ParsedNodeCodec() {
+    }
+
+    /**
+     * @param node
+     * @return true if every value of the tree can be written by {@link #write(ParsedNode, DataOutput)}
+     */
+    public static boolean isEncodable(ParsedNode node) {
+        Object value = node.getValue();
+        if (value != null && !(value instanceof String)) {
+            return false;
+        }
+        for (ParsedNode child : node.getChildren()) {
+            if (!isEncodable(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void write(ParsedNode root, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeNode(root, out);
+    }
+
+    /**
+     * @param in
+     * @return the decoded tree
+     * @throws IOException if the input is not a tree written by this version of the codec
+     */
+    public static ParsedNode read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported parsed changelog format");
+        }
+        try {
+            return readNode(in);
+        } catch (ParsedNodeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeNode(ParsedNode node, DataOutput out) throws IOException {
+        writeString(node.getNamespace(), out);
+        writeString(node.getName(), out);
+        Object value = node.getValue();
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString((String) value, out);
+        }
+        out.writeInt(node.getChildren().size());
+        for (ParsedNode child : node.getChildren()) {
+            writeNode(child, out);
+        }
+    }
+
+    private static ParsedNode readNode(DataInput in) throws IOException, ParsedNodeException {
+        ParsedNode node = new ParsedNode(readString(in), readString(in));
+        if (in.readByte() == STRING_VALUE) {
+            node.setValue(readString(in));
+        }
+        int children = in.readInt();
+        for (int i = 0; i < children; i++) {
+            node.addChild(readNode(in));
+        }
+        return node;
+    }
+
+    /**
+     * Length-prefixed UTF-8, as {@link DataOutput#writeUTF(String)} is limited to 64k which inline SQL can exceed
+     */
+    private static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package liquibase.cache;
+
+import liquibase.parser.core.ParsedNode;
+import liquibase.resource.ResourceAccessor;
+import liquibase.util.StreamUtil;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link ChangeLogCache} serving the parsed changelog files precompiled at build time by
+ * {@link liquibase.precompile.ChangeLogPrecompiler}, and bundled with the application under {@link #LOCATION}.
+ *
+ * Precompiled entries use the same keys as the on-disk cache, so an entry is only used if the bundled changelog file still has
+ * the content it was compiled from, and was compiled by the same Liquibase version.  Files without a precompiled entry are
+ * looked up in, and stored to, the optional on-disk cache.
+ *
+ * @author Eric Benzacar
+ */
+public class PrecompiledChangeLogCache extends ChangeLogCache {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(PrecompiledChangeLogCache.class);
+
+    /**
+     * Resource directory holding the precompiled entries
+     */
+    public static final String LOCATION = "META-INF/liquibase/precompiled/";
+
+    private final ResourceAccessor resourceAccessor;
+    private final ChangeLogCache fallback;
+
+    /**
+     * @param resourceAccessor used to load the precompiled entries
+     * @param fallback cache used for files without a precompiled entry, or null
+     */
+    public PrecompiledChangeLogCache(ResourceAccessor resourceAccessor, ChangeLogCache fallback) {
+        super(fallback == null ? null : fallback.getDirectory());
+        this.resourceAccessor = resourceAccessor;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param key
+     * @return the resource path of the precompiled entry for the key
+     */
+    public static String path(String key) {
+        return LOCATION + key + EXTENSION;
+    }
+
+    @Override
+    public ParsedNode get(String key) {
+        try (InputStream in = StreamUtil.singleInputStream(path(key), resourceAccessor)) {
+            if (in != null) {
+                return ParsedNodeCodec.read(new DataInputStream(new BufferedInputStream(in)));
+            }
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable precompiled changelog {}: {}", path(key), e.getMessage());
+        }
+        return fallback == null ? null : fallback.get(key);
+    }
+
+    @Override
+    public void put(String key, ParsedNode node) {
+        if (fallback != null) {
+            fallback.put(key, node);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package liquibase.cache;
+
+import liquibase.resource.ResourceAccessor;
+import liquibase.util.StreamUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers to read and fingerprint changelog resources
+ *
+ * @author Eric Benzacar
+ */
+public final class ResourceDigest {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ResourceDigest() {
+    }
+
+    /**
+     * @param path
+     * @param resourceAccessor
+     * @return the full content of the resource, or null if it does not exist
+     * @throws IOException
+     */
+    public static byte[] read(String path, ResourceAccessor resourceAccessor) throws IOException {
+        try (InputStream in = StreamUtil.singleInputStream(path, resourceAccessor)) {
+            return in == null ? null : read(in);
+        }
+    }
+
+    /**
+     * @param in
+     * @return the remaining content of the stream, which is left open
+     * @throws IOException
+     */
+    public static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param content
+     * @return hex encoded SHA-256 of the content
+     */
+    public static String sha256(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,242 @@
+package liquibase.checksum;
+
+import liquibase.LiquibaseConfig;
+import liquibase.cache.ResourceDigest;
+import liquibase.change.Change;
+import liquibase.change.ChangeFactory;
+import liquibase.change.CheckSum;
+import liquibase.change.core.CreateProcedureChange;
+import liquibase.change.core.LoadDataChange;
+import liquibase.change.core.SQLFileChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.database.Database;
+import liquibase.exception.LiquibaseException;
+import liquibase.fingerprint.ChangeLogFingerprint;
+import liquibase.resource.ResourceAccessor;
+import liquibase.util.StreamUtil;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Verifies the checksums of the changesets already applied to a database on a fork-join pool, ahead of the (single threaded)
+ * Liquibase validation.
+ *
+ * Changesets whose computed checksum matches the recorded one are marked with the <code>1:any</code> valid checksum, so the
+ * validation does not compute their checksum again.  Mismatching changesets, and changesets which are
+ * <code>runOnChange</code>, are left untouched, so Liquibase reports (or re-runs) them as usual.
+ *
+ * Computed checksums are memoized for the lifetime of the JVM, keyed by the configuration (see {@link ChangeLogFingerprint}), the
+ * database type, the changeset identity and the content of the file declaring the changeset and of the files its changes
+ * reference (SQL, data and procedure files), so configs sharing a changelog only compute them once, and editing one file only
+ * invalidates the checksums of the changesets it affects.
+ *
+ * @author Eric Benzacar
+ */
+public class ParallelCheckSumVerifier {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ParallelCheckSumVerifier.class);
+
+    private static final String ANY_CHECKSUM = "1:any";
+    private static final int MAX_MEMOIZED = 100000;
+    private static final Map<String, CheckSum> MEMOIZED = new ConcurrentHashMap<>();
+
+    private final LiquibaseConfig config;
+    private final ResourceAccessor resourceAccessor;
+    private final int parallelism;
+
+    /**
+     * @param config
+     * @param resourceAccessor
+     * @param parallelism number of threads computing checksums
+     */
+    public ParallelCheckSumVerifier(LiquibaseConfig config, ResourceAccessor resourceAccessor, int parallelism) {
+        this.config = config;
+        this.resourceAccessor = resourceAccessor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param database
+     * @param changeLog
+     * @param ranChangeSets changesets recorded in the database
+     * @return number of changesets whose checksum was verified
+     * @throws LiquibaseException
+     */
+    public int verify(Database database, DatabaseChangeLog changeLog, List<RanChangeSet> ranChangeSets) throws LiquibaseException {
+        Map<String, CheckSum> recorded = new HashMap<>();
+        for (RanChangeSet ranChangeSet : ranChangeSets) {
+            if (ranChangeSet.getLastCheckSum() != null) {
+                recorded.put(key(ranChangeSet.getChangeLog(), ranChangeSet.getId(), ranChangeSet.getAuthor()), ranChangeSet.getLastCheckSum());
+            }
+        }
+
+        List<ChangeSet> candidates = new ArrayList<>();
+        Set<Class<?>> changeTypes = new HashSet<>();
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            if (!changeSet.shouldRunOnChange() && recorded.containsKey(key(changeSet))) {
+                candidates.add(changeSet);
+                for (Change change : changeSet.getChanges()) {
+                    // the change metadata is cached in non thread safe maps, so populate them from this thread first
+                    if (changeTypes.add(change.getClass())) {
+                        ChangeFactory.getInstance().getChangeMetaData(change);
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        String prefix = memoizationPrefix(database);
+        Map<String, Optional<String>> digests = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        CheckSum[] checkSums = new CheckSum[candidates.size()];
+        try {
+            pool.submit(() -> IntStream.range(0, checkSums.length).parallel()
+                    .forEach(i -> checkSums[i] = checkSum(prefix, candidates.get(i), digests))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LiquibaseException("Interrupted while computing checksums", e);
+        } catch (ExecutionException e) {
+            throw new LiquibaseException("Could not compute checksums", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        int verified = 0;
+        for (int i = 0; i < checkSums.length; i++) {
+            ChangeSet changeSet = candidates.get(i);
+            if (checkSums[i] != null && checkSums[i].equals(recorded.get(key(changeSet)))) {
+                changeSet.addValidCheckSum(ANY_CHECKSUM);
+                verified++;
+            }
+        }
+        if (MEMOIZED.size() > MAX_MEMOIZED) {
+            MEMOIZED.clear();
+        }
+        logger.debug("Verified {} of {} checksums of changelog {}", verified, candidates.size(), config.getChangeLog());
+        return verified;
+    }
+
+    /**
+     * @param digests content digests of the files read so far, shared by the threads of a verification
+     * @return the checksum, or null if it could not be computed, in which case the validation reports the problem
+     */
+    private CheckSum checkSum(String prefix, ChangeSet changeSet, Map<String, Optional<String>> digests) {
+        try {
+            String key = prefix == null ? null : memoizationKey(prefix, changeSet, digests);
+            if (key == null) {
+                return changeSet.generateCheckSum();
+            }
+            return MEMOIZED.computeIfAbsent(key, k -> changeSet.generateCheckSum());
+        } catch (RuntimeException e) {
+            logger.debug("Could not compute the checksum of {}", changeSet, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return prefix of the memoization keys of the config, or null if the config could not be fingerprinted
+     */
+    private String memoizationPrefix(Database database) {
+        try {
+            return ChangeLogFingerprint.compute(config, resourceAccessor, Collections.emptySet()) + "::" + database.getShortName() + "::";
+        } catch (IOException e) {
+            logger.debug("Not memoizing the checksums of changelog {}: {}", config.getChangeLog(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return key of the changeset covering the content of its file and of the files its changes reference, or null if one of
+     * them could not be read
+     */
+    private String memoizationKey(String prefix, ChangeSet changeSet, Map<String, Optional<String>> digests) {
+        StringBuilder key = new StringBuilder(prefix).append(changeSet.toString(false));
+        String digest = digest(changeSet.getFilePath(), digests, () -> ResourceDigest.read(changeSet.getFilePath(), resourceAccessor));
+        if (digest == null) {
+            return null;
+        }
+        key.append("::").append(digest);
+
+        for (Change change : changeSet.getChanges()) {
+            String path;
+            Boolean relative;
+            if (change instanceof SQLFileChange) {
+                path = ((SQLFileChange) change).getPath();
+                relative = ((SQLFileChange) change).isRelativeToChangelogFile();
+            } else if (change instanceof LoadDataChange) {
+                path = ((LoadDataChange) change).getFile();
+                relative = ((LoadDataChange) change).isRelativeToChangelogFile();
+            } else if (change instanceof CreateProcedureChange) {
+                path = ((CreateProcedureChange) change).getPath();
+                relative = ((CreateProcedureChange) change).isRelativeToChangelogFile();
+            } else {
+                continue;
+            }
+            if (path == null) {
+                // inline procedure body, covered by the changeset file
+                continue;
+            }
+            String resolved = Boolean.TRUE.equals(relative) ? changeSet.getFilePath() + " -> " + path : path;
+            digest = digest(resolved, digests, () -> {
+                try (InputStream in = StreamUtil.openStream(path, relative, changeSet, resourceAccessor)) {
+                    return in == null ? null : ResourceDigest.read(in);
+                }
+            });
+            if (digest == null) {
+                return null;
+            }
+            key.append("::").append(digest);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the digest of the content, read once per verification, or null if it could not be read
+     */
+    private static String digest(String path, Map<String, Optional<String>> digests, Content content) {
+        return digests.computeIfAbsent(path, key -> {
+            try {
+                byte[] bytes = content.read();
+                return Optional.ofNullable(bytes == null ? null : ResourceDigest.sha256(bytes));
+            } catch (IOException e) {
+                logger.debug("Could not read {}: {}", key, e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Reads the content of a resource
+     */
+    private interface Content {
+        byte[] read() throws IOException;
+    }
+
+    private static String key(ChangeSet changeSet) {
+        return key(changeSet.getFilePath(), changeSet.getId(), changeSet.getAuthor());
+    }
+
+    private static String key(String filePath, String id, String author) {
+        return ChangeLogFingerprint.normalize(filePath) + "::" + id + "::" + author;
+    }
+}
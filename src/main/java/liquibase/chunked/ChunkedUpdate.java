@@ -0,0 +1,62 @@
+package liquibase.chunked;
+
+/**
+ * Definition of an update applied to a table in ranges of its numeric key (see {@link ChunkedUpdateRunner})
+ *
+ * @author Eric Benzacar
+ */
+public class ChunkedUpdate {
+
+    private final String id;
+    private final String tableName;
+    private final String keyColumn;
+    private final String set;
+    private final String where;
+    private final int chunkSize;
+
+    /**
+     * @param id identifies the checkpoint of the update
+     * @param tableName
+     * @param keyColumn numeric, preferably indexed, column the ranges are taken on
+     * @param set assignments of the <code>SET</code> clause
+     * @param where additional condition on the updated rows, or null
+     * @param chunkSize width of the key ranges updated per transaction
+     */
+    public ChunkedUpdate(String id, String tableName, String keyColumn, String set, String where, int chunkSize) {
+        this.id = id;
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        this.set = set;
+        this.where = where;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public String getSet() {
+        return set;
+    }
+
+    public String getWhere() {
+        return where;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return "UPDATE " + tableName + " SET " + set + (where == null ? "" : " WHERE " + where);
+    }
+}
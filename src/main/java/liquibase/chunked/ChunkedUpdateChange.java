@@ -0,0 +1,158 @@
+package liquibase.chunked;
+
+import liquibase.cache.ResourceDigest;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.resource.ResourceAccessor;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Custom change updating a large table in ranges of its numeric key, each range in its own transaction
+ * (see {@link ChunkedUpdateRunner}):
+ * <pre>
+ * &lt;customChange class="liquibase.chunked.ChunkedUpdateChange" tableName="orders" keyColumn="id"
+ *               set="status = 'NEW'" where="status IS NULL" chunkSize="10000"/&gt;
+ * </pre>
+ * The update commits as it goes, so it should be the only change of its changeset.  A changeset failing part way through
+ * resumes from the last committed range when run again.  With <code>background="true"</code>, the changeset only records the
+ * update, which is then run on a background thread once the migration has completed, and resumed on the next startup if
+ * the application stops before it has.
+ *
+ * @author Eric Benzacar
+ */
+public class ChunkedUpdateChange implements CustomTaskChange {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ChunkedUpdateChange.class);
+
+    private String tableName;
+    private String keyColumn;
+    private String set;
+    private String where;
+    private Integer chunkSize = 10000;
+    private Boolean background = false;
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * @param keyColumn numeric, preferably indexed, column the ranges are taken on
+     */
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public String getSet() {
+        return set;
+    }
+
+    /**
+     * @param set assignments of the <code>SET</code> clause
+     */
+    public void setSet(String set) {
+        this.set = set;
+    }
+
+    public String getWhere() {
+        return where;
+    }
+
+    /**
+     * @param where additional condition on the updated rows
+     */
+    public void setWhere(String where) {
+        this.where = where;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize width of the key ranges updated per transaction (defaults to 10000)
+     */
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Boolean getBackground() {
+        return background;
+    }
+
+    /**
+     * @param background whether the update is run after the migration has completed rather than by its changeset
+     */
+    public void setBackground(Boolean background) {
+        this.background = background;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        if (!(ExecutorService.getInstance().getExecutor(database) instanceof JdbcExecutor)) {
+            // the SQL is being written to a script rather than executed
+            logger.info("Skipping chunked update {} while generating SQL", toUpdate());
+            return;
+        }
+        ChunkedUpdateRunner runner = new ChunkedUpdateRunner(database);
+        try {
+            if (Boolean.TRUE.equals(background)) {
+                runner.defer(toUpdate());
+            } else {
+                runner.run(toUpdate());
+            }
+        } catch (LiquibaseException e) {
+            throw new CustomChangeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the update, identified by its definition so a changed definition does not resume an unrelated checkpoint
+     */
+    protected ChunkedUpdate toUpdate() {
+        String id = tableName + "." + keyColumn + ":" + ResourceDigest.sha256((set + "\n" + (where == null ? "" : where)).getBytes(StandardCharsets.UTF_8));
+        return new ChunkedUpdate(id, tableName, keyColumn, set, where, chunkSize);
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return (Boolean.TRUE.equals(background) ? "Deferred " : "Ran ") + toUpdate();
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("tableName", tableName);
+        errors.checkRequiredField("keyColumn", keyColumn);
+        errors.checkRequiredField("set", set);
+        if (chunkSize == null || chunkSize < 1) {
+            errors.addError("chunkSize must be at least 1");
+        }
+        return errors;
+    }
+}
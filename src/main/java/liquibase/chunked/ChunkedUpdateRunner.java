@@ -0,0 +1,380 @@
+package liquibase.chunked;
+
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Table;
+import liquibase.table.AbstractSideTable;
+import org.slf4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Runs {@link ChunkedUpdate}s one key range at a time, committing each range along with a checkpoint, so a large update never
+ * holds a single huge transaction and resumes from its last checkpoint after a failure or a restart.
+ *
+ * Checkpoints are kept in a side table (<code>DATABASECHANGELOGCHECKPOINT</code> by default) holding the definition of each
+ * update, the last key processed and its {@link Status}.  A completed update is not run again over the keys it has already
+ * processed; its row must be deleted to run it from scratch.  Updates {@link #defer(ChunkedUpdate) deferred} by their changeset
+ * are run by {@link #runDeferred()} once the migration has completed, on a single node at a time: a node claims each update
+ * and refreshes its claim after every range, and another node only takes over an update whose claim has not been refreshed
+ * for {@link #LEASE_MILLIS}.
+ *
+ * @author Eric Benzacar
+ */
+public class ChunkedUpdateRunner extends AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ChunkedUpdateRunner.class);
+
+    /**
+     * Status of a chunked update
+     */
+    public enum Status {
+        /**
+         * Recorded by its changeset, to be run once the migration has completed
+         */
+        DEFERRED,
+        /**
+         * Being run by its changeset
+         */
+        RUNNING,
+        /**
+         * Being run after the migration
+         */
+        BACKGROUND,
+        COMPLETED
+    }
+
+    /**
+     * Time after which a background update whose node stopped refreshing its checkpoint is taken over by another node
+     */
+    public static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "liquibase-chunked-update");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    public ChunkedUpdateRunner(Database database) {
+        super(database);
+    }
+
+    /**
+     * Runs the update to completion, resuming from its last checkpoint.  Any change pending on the connection is committed first.
+     * @param update
+     * @throws LiquibaseException if a range failed; the ranges before it remain committed
+     */
+    public void run(ChunkedUpdate update) throws LiquibaseException {
+        Connection connection = getConnection();
+        Long lastKey;
+        long rows;
+        try {
+            commit(connection);
+            Object[] checkpoint = readCheckpoint(connection, update.getId());
+            lastKey = checkpoint == null ? null : (Long) checkpoint[0];
+            rows = checkpoint == null ? 0 : (Long) checkpoint[1];
+            save(connection, update, lastKey, rows, Status.RUNNING);
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Could not record the checkpoint of " + update, e);
+        }
+        process(connection, update, lastKey, rows, Status.RUNNING);
+    }
+
+    /**
+     * Records the update to be run by {@link #runDeferred()}, unless it is already recorded
+     * @param update
+     * @throws LiquibaseException
+     */
+    public void defer(ChunkedUpdate update) throws LiquibaseException {
+        Connection connection = getConnection();
+        try {
+            commit(connection);
+            if (readCheckpoint(connection, update.getId()) == null) {
+                save(connection, update, null, 0, Status.DEFERRED);
+                logger.info("Deferred {} until the migration has completed", update);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Could not record the checkpoint of " + update, e);
+        }
+    }
+
+    /**
+     * Never fails the current transaction, so it can be called at any point of a migration
+     * @return true if there are deferred updates, or updates abandoned by another node
+     */
+    public boolean hasDeferred() {
+        try {
+            if (!exists()) {
+                return false;
+            }
+        } catch (DatabaseException e) {
+            logger.debug("Could not look up table {}: {}", getTableName(), e.getMessage());
+            return false;
+        }
+        Connection connection = getConnection();
+        try {
+            boolean deferred = !listClaimable(connection).isEmpty();
+            commit(connection);
+            return deferred;
+        } catch (SQLException e) {
+            logger.debug("No chunked update checkpoints available: {}", e.getMessage());
+            rollback(connection);
+            return false;
+        }
+    }
+
+    /**
+     * Runs the deferred updates, and the background updates abandoned by another node
+     * @return number of updates run
+     * @throws LiquibaseException if an update failed
+     */
+    public int runDeferred() throws LiquibaseException {
+        if (!exists()) {
+            return 0;
+        }
+        Connection connection = getConnection();
+        int count = 0;
+        try {
+            for (String id : listClaimable(connection)) {
+                ChunkedUpdate update = claim(connection, id);
+                commit(connection);
+                if (update != null) {
+                    Object[] checkpoint = readCheckpoint(connection, id);
+                    process(connection, update, (Long) checkpoint[0], (Long) checkpoint[1], Status.BACKGROUND);
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Could not read the chunked update checkpoints from " + getTableName(), e);
+        }
+        return count;
+    }
+
+    /**
+     * Runs {@link #runDeferred()} on a background thread, with a database of its own
+     * @param description identifies the config in the logs
+     * @param databaseFactory opens the database, closed once the updates have run
+     */
+    public static void runDeferredInBackground(String description, Callable<Database> databaseFactory) {
+        BACKGROUND.submit(() -> {
+            try {
+                Database database = databaseFactory.call();
+                try {
+                    int count = new ChunkedUpdateRunner(database).runDeferred();
+                    logger.info("Completed {} deferred chunked updates of {}", count, description);
+                } finally {
+                    database.close();
+                }
+            } catch (Exception e) {
+                logger.error("Deferred chunked updates of {} failed; they resume on the next startup", description, e);
+            }
+        });
+    }
+
+    @Override
+    protected String getTableSuffix() {
+        return "CHECKPOINT";
+    }
+
+    @Override
+    protected String getColumnDefinitions() {
+        return "ID " + type("VARCHAR(255)") + " NOT NULL, "
+                + "TABLENAME " + type("VARCHAR(255)") + " NOT NULL, "
+                + "KEYCOLUMN " + type("VARCHAR(255)") + " NOT NULL, "
+                + "SETCLAUSE " + type("VARCHAR(2000)") + " NOT NULL, "
+                + "WHERECLAUSE " + type("VARCHAR(2000)") + ", "
+                + "CHUNKSIZE " + type("INT") + " NOT NULL, "
+                + "LASTKEY " + type("BIGINT") + ", "
+                + "ROWSUPDATED " + type("BIGINT") + " NOT NULL, "
+                + "STATUS " + type("VARCHAR(20)") + " NOT NULL, "
+                + "OWNER " + type("VARCHAR(255)") + ", "
+                + "DATEUPDATED " + type("datetime") + ", "
+                + "PRIMARY KEY (ID)";
+    }
+
+    /**
+     * Updates the key ranges following the last key, committing each range along with its checkpoint
+     */
+    private void process(Connection connection, ChunkedUpdate update, Long lastKey, long rows, Status status) throws LiquibaseException {
+        String table = database.escapeObjectName(update.getTableName(), Table.class);
+        String key = database.escapeObjectName(update.getKeyColumn(), Column.class);
+        String sql = "UPDATE " + table + " SET " + update.getSet() + " WHERE " + key + " > ? AND " + key + " <= ?"
+                + (update.getWhere() == null ? "" : " AND (" + update.getWhere() + ")");
+        try {
+            long[] bounds = bounds(connection, table, key);
+            if (bounds != null) {
+                long lower = lastKey == null ? bounds[0] - 1 : lastKey;
+                logger.info("Running {} from key {} to {} in ranges of {}", update, lower, bounds[1], update.getChunkSize());
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    while (lower < bounds[1]) {
+                        long upper = bounds[1] - lower <= update.getChunkSize() ? bounds[1] : lower + update.getChunkSize();
+                        statement.setLong(1, lower);
+                        statement.setLong(2, upper);
+                        rows += statement.executeUpdate();
+                        save(connection, update, upper, rows, status);
+                        commit(connection);
+                        logger.debug("{}: updated keys up to {}, {} rows so far", update.getId(), upper, rows);
+                        lower = upper;
+                    }
+                }
+                lastKey = lower;
+            }
+            save(connection, update, lastKey, rows, Status.COMPLETED);
+            commit(connection);
+            logger.info("Completed {}: {} rows updated", update, rows);
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Chunked update " + update.getId() + " failed after " + rows + " rows; it resumes from its last checkpoint when run again", e);
+        }
+    }
+
+    /**
+     * @return the lowest and highest keys of the table, or null if it is empty
+     */
+    private long[] bounds(Connection connection, String table, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + table);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            long min = resultSet.getLong(1);
+            return resultSet.wasNull() ? null : new long[]{min, resultSet.getLong(2)};
+        }
+    }
+
+    /**
+     * @return the last key and number of rows updated, or null if the update has no checkpoint
+     */
+    private Object[] readCheckpoint(Connection connection, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT LASTKEY, ROWSUPDATED FROM " + getTableName() + " WHERE ID = ?")) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long lastKey = resultSet.getLong(1);
+                return new Object[]{resultSet.wasNull() ? null : lastKey, resultSet.getLong(2)};
+            }
+        } catch (SQLException e) {
+            // either the table does not exist yet, or it cannot be read at all; the latter fails again when saving
+            logger.debug("No checkpoint available for {}: {}", id, e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    private void save(Connection connection, ChunkedUpdate update, Long lastKey, long rows, Status status) throws SQLException {
+        try {
+            if (doUpdate(connection, update.getId(), lastKey, rows, status) == 0) {
+                doInsert(connection, update, lastKey, rows, status);
+            }
+        } catch (SQLException e) {
+            rollback(connection);
+            createTable(connection);
+            commit(connection);
+            doInsert(connection, update, lastKey, rows, status);
+        }
+    }
+
+    private int doUpdate(Connection connection, String id, Long lastKey, long rows, Status status) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET LASTKEY = ?, ROWSUPDATED = ?, STATUS = ?, OWNER = ?, DATEUPDATED = ? WHERE ID = ?")) {
+            setKey(statement, 1, lastKey);
+            statement.setLong(2, rows);
+            statement.setString(3, status.name());
+            statement.setString(4, owner);
+            statement.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            statement.setString(6, id);
+            return statement.executeUpdate();
+        }
+    }
+
+    private void doInsert(Connection connection, ChunkedUpdate update, Long lastKey, long rows, Status status) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + getTableName()
+                + " (ID, TABLENAME, KEYCOLUMN, SETCLAUSE, WHERECLAUSE, CHUNKSIZE, LASTKEY, ROWSUPDATED, STATUS, OWNER, DATEUPDATED) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, update.getId());
+            statement.setString(2, update.getTableName());
+            statement.setString(3, update.getKeyColumn());
+            statement.setString(4, update.getSet());
+            statement.setString(5, update.getWhere());
+            statement.setInt(6, update.getChunkSize());
+            setKey(statement, 7, lastKey);
+            statement.setLong(8, rows);
+            statement.setString(9, status.name());
+            statement.setString(10, owner);
+            statement.setTimestamp(11, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        }
+    }
+
+    private List<String> listClaimable(Connection connection) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT ID FROM " + getTableName()
+                + " WHERE STATUS = ? OR (STATUS = ? AND DATEUPDATED < ?) ORDER BY DATEUPDATED")) {
+            statement.setString(1, Status.DEFERRED.name());
+            statement.setString(2, Status.BACKGROUND.name());
+            statement.setTimestamp(3, new Timestamp(System.currentTimeMillis() - LEASE_MILLIS));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return the definition of the update, or null if another node claimed it first
+     */
+    private ChunkedUpdate claim(Connection connection, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET STATUS = ?, OWNER = ?, DATEUPDATED = ? "
+                + "WHERE ID = ? AND (STATUS = ? OR (STATUS = ? AND DATEUPDATED < ?))")) {
+            long now = System.currentTimeMillis();
+            statement.setString(1, Status.BACKGROUND.name());
+            statement.setString(2, owner);
+            statement.setTimestamp(3, new Timestamp(now));
+            statement.setString(4, id);
+            statement.setString(5, Status.DEFERRED.name());
+            statement.setString(6, Status.BACKGROUND.name());
+            statement.setTimestamp(7, new Timestamp(now - LEASE_MILLIS));
+            if (statement.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT TABLENAME, KEYCOLUMN, SETCLAUSE, WHERECLAUSE, CHUNKSIZE FROM " + getTableName() + " WHERE ID = ?")) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return new ChunkedUpdate(id, resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getInt(5));
+            }
+        }
+    }
+
+    private static void setKey(PreparedStatement statement, int index, Long key) throws SQLException {
+        if (key == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, key);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package liquibase.cluster;
+
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.table.AbstractSideTable;
+import org.slf4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Elects a single node of a cluster to migrate a changelog, while the other nodes wait for it to complete.
+ *
+ * Coordination goes through one status row per changelog in a side table named after the
+ * {@link liquibase.configuration.GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME} table (<code>DATABASECHANGELOGSTATUS</code> by
+ * default).  The row records the <em>deployment</em> key (a fingerprint of the bundled changelog) the node is migrating to, its
+ * status and the node owning it.  The first node to claim the row for a new deployment key becomes the leader; other nodes poll
+ * the row by primary key, with an exponential backoff, until the leader marks it {@link Status#COMPLETED} or {@link Status#FAILED}.
+ * Followers neither parse the changelog nor touch the DATABASECHANGELOGLOCK table while waiting.
+ *
+ * The leader holds a lease on the row, refreshed by a {@link #startHeartbeat(Callable) heartbeat} on a connection of its own while
+ * it migrates.  A node that crashes while leading leaves its row {@link Status#RUNNING}; once its lease has not been refreshed
+ * for the lease duration ({@link #LEASE_MILLIS} by default), a waiting node takes the row over and migrates the changelog itself.
+ *
+ * @author Eric Benzacar
+ */
+public class ClusterCoordinator extends AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ClusterCoordinator.class);
+
+    /**
+     * Status of the migration of a deployment
+     */
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Default time after which the row of a leader that stopped refreshing it is taken over by another node
+     */
+    public static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "liquibase-cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String changeLog;
+    private final String deployment;
+    private final String owner;
+    private final long leaseMillis;
+    private Database heartbeatDatabase;
+    private ScheduledFuture<?> heartbeat;
+
+    /**
+     * @param database
+     * @param changeLog identifies the status row
+     * @param deployment key of the changelog version being deployed; nodes bundling the same changelog must compute the same key
+     */
+    public ClusterCoordinator(Database database, String changeLog, String deployment) {
+        this(database, changeLog, deployment, LEASE_MILLIS);
+    }
+
+    /**
+     * @param database
+     * @param changeLog identifies the status row
+     * @param deployment key of the changelog version being deployed; nodes bundling the same changelog must compute the same key
+     * @param leaseMillis time after which the row of a leader that stopped refreshing it is taken over; must be the same on all nodes
+     */
+    public ClusterCoordinator(Database database, String changeLog, String deployment, long leaseMillis) {
+        super(database);
+        this.changeLog = changeLog;
+        this.deployment = deployment;
+        this.leaseMillis = leaseMillis;
+        // distinguishes the coordinators of a JVM, so a row taken over from this coordinator is never refreshed by it again
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Claims the leadership of the deployment, or waits for the node holding it to complete the migration.
+     * @param timeout maximum time to wait for another node
+     * @param pollInterval initial delay between polls, doubled after each poll
+     * @param maxPollInterval upper bound of the delay between polls
+     * @param unit unit of the timeout and intervals
+     * @return true if this node must migrate the changelog, keeping its lease with {@link #startHeartbeat(Callable)}, and then call
+     * {@link #complete(boolean)}; false if another node has already successfully migrated it
+     * @throws LiquibaseException if the other node failed, the timeout expired or the status row could not be accessed
+     */
+    public boolean awaitLeadership(long timeout, long pollInterval, long maxPollInterval, TimeUnit unit) throws LiquibaseException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long delay = Math.max(1, unit.toMillis(pollInterval));
+        long maxDelay = Math.max(delay, unit.toMillis(maxPollInterval));
+        boolean waited = false;
+        int failedClaims = 0;
+
+        while (true) {
+            Row row = read();
+            boolean claimed;
+            if (row == null) {
+                claimed = insert();
+            } else if (!deployment.equals(row.deployment) || (Status.FAILED.name().equals(row.status) && !waited)) {
+                // a new deployment, or a retry after a failed one this node did not witness
+                claimed = claim(row.deployment, row.status);
+            } else if (Status.COMPLETED.name().equals(row.status)) {
+                if (waited) {
+                    logger.info("Changelog {} was migrated by node {}", changeLog, row.owner);
+                }
+                return false;
+            } else if (Status.FAILED.name().equals(row.status)) {
+                throw new LiquibaseException(String.format("Migration of changelog %s failed on node %s", changeLog, row.owner));
+            } else if (row.updated < System.currentTimeMillis() - leaseMillis) {
+                // the leader stopped refreshing its lease, most likely because it crashed
+                claimed = takeOver(row.owner);
+                if (claimed) {
+                    logger.warn("Node {} stopped migrating changelog {}, taking over", row.owner, changeLog);
+                }
+            } else {
+                if (!waited) {
+                    logger.info("Changelog {} is being migrated by node {}, waiting for it to complete", changeLog, row.owner);
+                    waited = true;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new LiquibaseException(String.format("Timed out waiting for node %s to migrate changelog %s", row.owner, changeLog));
+                }
+                sleep(Math.min(delay, Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+                delay = Math.min(delay * 2, maxDelay);
+                continue;
+            }
+
+            if (claimed) {
+                logger.info("Node {} elected to migrate changelog {}", owner, changeLog);
+                return true;
+            }
+            // another node got there first; its row is picked up by the next read
+            if (++failedClaims > MAX_CLAIM_ATTEMPTS) {
+                throw new LiquibaseException("Could not claim the status row of changelog " + changeLog + " in " + getTableName());
+            }
+        }
+    }
+
+    /**
+     * Refreshes the lease of this node every third of the lease duration until {@link #complete(boolean)}, on a connection distinct
+     * from the one migrating the changelog, whose transactions must not be committed by the refresh.
+     * @param databaseFactory opening the database used by the heartbeat, closed on completion
+     * @throws LiquibaseException if the database could not be opened
+     */
+    public synchronized void startHeartbeat(Callable<Database> databaseFactory) throws LiquibaseException {
+        try {
+            heartbeatDatabase = databaseFactory.call();
+        } catch (Exception e) {
+            throw new LiquibaseException("Could not open the heartbeat connection of changelog " + changeLog, e);
+        }
+        Connection connection = ((JdbcConnection) heartbeatDatabase.getConnection()).getUnderlyingConnection();
+        long period = Math.max(1, leaseMillis / 3);
+        heartbeat = HEARTBEAT.scheduleWithFixedDelay(() -> refresh(connection), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Releases the leadership obtained through {@link #awaitLeadership(long, long, long, TimeUnit)} and stops the heartbeat.  Failures
+     * are logged rather than thrown, so they never mask the outcome of the migration.
+     * @param successful whether the migration succeeded
+     */
+    public void complete(boolean successful) {
+        stopHeartbeat();
+        Status status = successful ? Status.COMPLETED : Status.FAILED;
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET STATUS = ?, DATEUPDATED = ? WHERE ID = ? AND OWNER = ?")) {
+            statement.setString(1, status.name());
+            statement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            statement.setString(3, changeLog);
+            statement.setString(4, owner);
+            if (statement.executeUpdate() == 0) {
+                logger.warn("The migration of changelog {} was taken over by another node before it completed", changeLog);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            logger.error("Could not mark the migration of changelog {} as {}; other nodes will take over once its lease expires", changeLog, status, e);
+        }
+    }
+
+    /**
+     * @return the status row, or null if there is none or the table does not exist
+     */
+    protected Row read() {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT DEPLOYMENT, STATUS, OWNER, DATEUPDATED FROM " + getTableName() + " WHERE ID = ?")) {
+            statement.setString(1, changeLog);
+            Row row;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                row = resultSet.next() ? new Row(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getTimestamp(4)) : null;
+            }
+            // end the transaction, so the next poll is not served from the same snapshot
+            commit(connection);
+            return row;
+        } catch (SQLException e) {
+            logger.debug("No status row available: {}", e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    @Override
+    protected String getTableSuffix() {
+        return "STATUS";
+    }
+
+    @Override
+    protected String getColumnDefinitions() {
+        return "ID " + type("VARCHAR(255)") + " NOT NULL, "
+                + "DEPLOYMENT " + type("VARCHAR(64)") + " NOT NULL, "
+                + "STATUS " + type("VARCHAR(20)") + " NOT NULL, "
+                + "OWNER " + type("VARCHAR(255)") + ", "
+                + "DATEUPDATED " + type("datetime") + ", "
+                + "PRIMARY KEY (ID)";
+    }
+
+    /**
+     * @return true if the row was inserted; false if another node inserted it first
+     */
+    private boolean insert() {
+        Connection connection = getConnection();
+        try {
+            doInsert(connection);
+            commit(connection);
+            return true;
+        } catch (SQLException e) {
+            rollback(connection);
+            // either the table does not exist yet, or another node inserted the row (primary key violation)
+            try {
+                createTable(connection);
+                commit(connection);
+            } catch (SQLException ex) {
+                // most likely created concurrently by another node
+                rollback(connection);
+                logger.debug("Could not create table {}: {}", getTableName(), ex.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Takes over the row, provided it has not changed since it was read
+     * @return true if the row was taken over
+     */
+    private boolean claim(String previousDeployment, String previousStatus) throws LiquibaseException {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET DEPLOYMENT = ?, STATUS = ?, OWNER = ?, DATEUPDATED = ? WHERE ID = ? AND DEPLOYMENT = ? AND STATUS = ?")) {
+            statement.setString(1, deployment);
+            statement.setString(2, Status.RUNNING.name());
+            statement.setString(3, owner);
+            statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            statement.setString(5, changeLog);
+            statement.setString(6, previousDeployment);
+            statement.setString(7, previousStatus);
+            boolean claimed = statement.executeUpdate() == 1;
+            commit(connection);
+            return claimed;
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Could not update the status row of changelog " + changeLog + " in " + getTableName(), e);
+        }
+    }
+
+    /**
+     * Takes over the row of a leader whose lease expired, provided no other node took it over first
+     * @return true if the row was taken over
+     */
+    private boolean takeOver(String previousOwner) throws LiquibaseException {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET OWNER = ?, DATEUPDATED = ? "
+                + "WHERE ID = ? AND DEPLOYMENT = ? AND STATUS = ? AND OWNER = ? AND DATEUPDATED < ?")) {
+            long now = System.currentTimeMillis();
+            statement.setString(1, owner);
+            statement.setTimestamp(2, new Timestamp(now));
+            statement.setString(3, changeLog);
+            statement.setString(4, deployment);
+            statement.setString(5, Status.RUNNING.name());
+            statement.setString(6, previousOwner);
+            statement.setTimestamp(7, new Timestamp(now - leaseMillis));
+            boolean claimed = statement.executeUpdate() == 1;
+            commit(connection);
+            return claimed;
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new LiquibaseException("Could not update the status row of changelog " + changeLog + " in " + getTableName(), e);
+        }
+    }
+
+    private void refresh(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET DATEUPDATED = ? WHERE ID = ? AND OWNER = ? AND STATUS = ?")) {
+            statement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            statement.setString(2, changeLog);
+            statement.setString(3, owner);
+            statement.setString(4, Status.RUNNING.name());
+            if (statement.executeUpdate() == 0) {
+                logger.error("Lost the lease on changelog {}, which is now migrated by another node", changeLog);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            logger.warn("Could not refresh the lease on changelog {}", changeLog, e);
+        }
+    }
+
+    private synchronized void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        if (heartbeatDatabase != null) {
+            try {
+                heartbeatDatabase.close();
+            } catch (DatabaseException e) {
+                logger.debug("Could not close the heartbeat connection", e);
+            }
+            heartbeatDatabase = null;
+        }
+    }
+
+    private void doInsert(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + getTableName() + " (ID, DEPLOYMENT, STATUS, OWNER, DATEUPDATED) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setString(1, changeLog);
+            statement.setString(2, deployment);
+            statement.setString(3, Status.RUNNING.name());
+            statement.setString(4, owner);
+            statement.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Status row of a changelog
+     */
+    protected static final class Row {
+        final String deployment;
+        final String status;
+        final String owner;
+        final long updated;
+
+        Row(String deployment, String status, String owner, Timestamp updated) {
+            this.deployment = deployment;
+            this.status = status;
+            this.owner = owner;
+            this.updated = updated == null ? 0 : updated.getTime();
+        }
+    }
+
+    private void sleep(long millis) throws LiquibaseException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LiquibaseException("Interrupted while waiting for changelog " + changeLog + " to be migrated", e);
+        }
+    }
+}
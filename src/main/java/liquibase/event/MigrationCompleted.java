@@ -0,0 +1,21 @@
+package liquibase.event;
+
+import liquibase.LiquibaseConfig;
+
+/**
+ * Event fired once a {@link LiquibaseConfig} has been successfully processed by Liquibase
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationCompleted {
+
+    private final LiquibaseConfig config;
+
+    public MigrationCompleted(LiquibaseConfig config) {
+        this.config = config;
+    }
+
+    public LiquibaseConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,27 @@
+package liquibase.event;
+
+import liquibase.LiquibaseConfig;
+
+/**
+ * Event fired when Liquibase failed to process a {@link LiquibaseConfig}
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationFailed {
+
+    private final LiquibaseConfig config;
+    private final Throwable cause;
+
+    public MigrationFailed(LiquibaseConfig config, Throwable cause) {
+        this.config = config;
+        this.cause = cause;
+    }
+
+    public LiquibaseConfig getConfig() {
+        return config;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+}
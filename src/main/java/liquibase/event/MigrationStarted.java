@@ -0,0 +1,21 @@
+package liquibase.event;
+
+import liquibase.LiquibaseConfig;
+
+/**
+ * Event fired right before Liquibase starts processing a {@link LiquibaseConfig}
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationStarted {
+
+    private final LiquibaseConfig config;
+
+    public MigrationStarted(LiquibaseConfig config) {
+        this.config = config;
+    }
+
+    public LiquibaseConfig getConfig() {
+        return config;
+    }
+}
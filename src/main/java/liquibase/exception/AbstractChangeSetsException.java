@@ -0,0 +1,112 @@
+package liquibase.exception;
+
+import liquibase.util.StreamUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base class for the exceptions reporting a list of changesets.
+ *
+ * The changesets are kept in the order they were reported in.  {@link #getMessage()} only lists the first
+ * {@link #getSummaryLimit()} of them, followed by the number of changesets left out, and is built once on first access; the
+ * complete list can be streamed with {@link #writeTo(Writer)}.
+ *
+ * @param <T> type of the reported changesets
+ * @author Eric Benzacar
+ */
+public abstract class AbstractChangeSetsException<T> extends MigrationFailedException {
+
+    /**
+     * Default maximum number of changesets listed in the message
+     */
+    public static final int DEFAULT_SUMMARY_LIMIT = 20;
+
+    private static final String INDENT = "     ";
+
+    private final List<T> changeSets;
+    private final int summaryLimit;
+    private transient volatile String message;
+
+    protected AbstractChangeSetsException(Collection<T> changeSets) {
+        this(changeSets, DEFAULT_SUMMARY_LIMIT);
+    }
+
+    /**
+     * @param changeSets
+     * @param summaryLimit maximum number of changesets listed in the message
+     */
+    protected AbstractChangeSetsException(Collection<T> changeSets, int summaryLimit) {
+        this.changeSets = Collections.unmodifiableList(new ArrayList<>(changeSets));
+        this.summaryLimit = summaryLimit;
+    }
+
+    /**
+     * @return all reported changesets, in order
+     */
+    public List<T> getChangeSets() {
+        return changeSets;
+    }
+
+    public int getCount() {
+        return changeSets.size();
+    }
+
+    public int getSummaryLimit() {
+        return summaryLimit;
+    }
+
+    /**
+     * @return the header followed by at most {@link #getSummaryLimit()} changesets
+     */
+    @Override
+    public String getMessage() {
+        // benign race: concurrent first calls build identical strings
+        String result = message;
+        if (result == null) {
+            int listed = Math.min(summaryLimit, changeSets.size());
+            StringBuilder out = new StringBuilder(128 + listed * 96);
+            out.append(getHeader()).append(StreamUtil.getLineSeparator());
+            for (int i = 0; i < listed; i++) {
+                out.append(INDENT).append(describe(changeSets.get(i))).append(StreamUtil.getLineSeparator());
+            }
+            if (listed < changeSets.size()) {
+                out.append(INDENT).append("... and ").append(changeSets.size() - listed).append(" more")
+                        .append(StreamUtil.getLineSeparator());
+            }
+            result = out.toString();
+            message = result;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the header followed by every changeset, one per line.  The writer is neither flushed nor closed.
+     * @param writer
+     * @throws IOException
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(getHeader());
+        writer.write(StreamUtil.getLineSeparator());
+        for (T changeSet : changeSets) {
+            writer.write(INDENT);
+            writer.write(describe(changeSet));
+            writer.write(StreamUtil.getLineSeparator());
+        }
+    }
+
+    /**
+     * @return first line of the report, including the number of changesets
+     */
+    protected abstract String getHeader();
+
+    /**
+     * @param changeSet
+     * @return single line description of the changeset
+     */
+    protected abstract String describe(T changeSet);
+}
@@ -0,0 +1,14 @@
+package liquibase.exception;
+
+/**
+ * Exception thrown when the migration of a config has been cancelled because it exceeded its timeout
+ * (see {@link liquibase.watchdog.MigrationWatchdog})
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationTimeoutException extends LiquibaseException {
+
+    public MigrationTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
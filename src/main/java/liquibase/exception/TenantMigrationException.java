@@ -0,0 +1,58 @@
+package liquibase.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exception thrown when some of the tenants of a template {@link liquibase.LiquibaseConfig} failed to migrate.  Each failure is
+ * also attached as a suppressed exception.
+ *
+ * @author Eric Benzacar
+ */
+public class TenantMigrationException extends LiquibaseException {
+
+    private static final int SUMMARY_LIMIT = 20;
+
+    private final Map<String, Throwable> failures;
+    private final int count;
+
+    /**
+     * @param description of the template config
+     * @param failures cause of the failure of each failed tenant, in tenant order
+     * @param count total number of tenants
+     */
+    public TenantMigrationException(String description, Map<String, Throwable> failures, int count) {
+        super(summary(description, failures, count));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.count = count;
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    /**
+     * @return cause of the failure of each failed tenant, in tenant order
+     */
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return total number of tenants
+     */
+    public int getCount() {
+        return count;
+    }
+
+    private static String summary(String description, Map<String, Throwable> failures, int count) {
+        StringBuilder message = new StringBuilder(String.format("%d of %d tenants of %s failed:", failures.size(), count, description));
+        int listed = 0;
+        for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+            if (listed++ == SUMMARY_LIMIT) {
+                message.append("\n     ... and ").append(failures.size() - SUMMARY_LIMIT).append(" more");
+                break;
+            }
+            message.append("\n     ").append(failure.getKey()).append(": ").append(failure.getValue().getMessage());
+        }
+        return message.toString();
+    }
+}
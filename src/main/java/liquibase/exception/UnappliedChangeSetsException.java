@@ -2,36 +2,30 @@ package liquibase.exception;
 
 import liquibase.changelog.ChangeSet;
 import liquibase.configuration.GlobalConfiguration;
-import liquibase.util.StreamUtil;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Exception thrown when Liquibase detects changesets in the changelog(s) that have not already been applied to the database and recorded
  * (in the {@link GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME}
  */
-public class UnappliedChangeSetsException extends MigrationFailedException {
-
-    private Set<ChangeSet> changeSets;
+public class UnappliedChangeSetsException extends AbstractChangeSetsException<ChangeSet> {
 
     public UnappliedChangeSetsException(Collection<ChangeSet> changeSets) {
-        this.changeSets = new HashSet<>(changeSets);
+        super(changeSets);
     }
 
-    @Override
-    public String getMessage() {
-        StringBuffer out = new StringBuffer();
-        out.append(String.valueOf(changeSets.size()));
-        out.append( " change sets are part of the codebase but have not already been applied: ");
-        out.append(StreamUtil.getLineSeparator());
+    public UnappliedChangeSetsException(Collection<ChangeSet> changeSets, int summaryLimit) {
+        super(changeSets, summaryLimit);
+    }
 
-        for (ChangeSet changeSet : changeSets) {
-            out.append("     ").append(changeSet.toString(false))
-                    .append(StreamUtil.getLineSeparator());
-        }
+    @Override
+    protected String getHeader() {
+        return getCount() + " change sets are part of the codebase but have not already been applied: ";
+    }
 
-        return out.toString();
+    @Override
+    protected String describe(ChangeSet changeSet) {
+        return changeSet.toString(false);
     }
 }
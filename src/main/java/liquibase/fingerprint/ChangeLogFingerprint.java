@@ -0,0 +1,173 @@
+package liquibase.fingerprint;
+
+import liquibase.LiquibaseConfig;
+import liquibase.cache.ResourceDigest;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.resource.ResourceAccessor;
+import liquibase.util.LiquibaseUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Aggregate fingerprint of a changelog tree and of the configuration it is applied with.
+ *
+ * The fingerprint covers the content of every resource below a set of <em>roots</em> (directories, or single files for
+ * changelogs at the top of the resource tree), together with the contexts, labels, parameters and default schema of the
+ * {@link LiquibaseConfig} and the Liquibase version.  Roots are derived from a parsed changelog with {@link #roots(String, DatabaseChangeLog)},
+ * so that later fingerprints can be computed from the raw resources alone, without parsing.  Listing whole directories means
+ * files added to an <code>includeAll</code> directory change the fingerprint too.
+ *
+ * @author Eric Benzacar
+ */
+public final class ChangeLogFingerprint {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private ChangeLogFingerprint() {
+    }
+
+    /**
+     * @param masterChangeLog path of the root changelog
+     * @param changeLog the parsed changelog
+     * @return minimal set of directories (ending with '/') and top-level files containing every file the changelog was built from
+     */
+    public static Set<String> roots(String masterChangeLog, DatabaseChangeLog changeLog) {
+        List<String> paths = new ArrayList<>();
+        paths.add(masterChangeLog);
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            if (changeSet.getFilePath() != null) {
+                paths.add(changeSet.getFilePath());
+            }
+        }
+        return roots(paths);
+    }
+
+    /**
+     * @param paths resource paths
+     * @return minimal set of directories (ending with '/') and top-level files containing all the paths
+     */
+    public static Set<String> roots(Collection<String> paths) {
+        Set<String> candidates = new TreeSet<>();
+        for (String path : paths) {
+            candidates.add(root(path));
+        }
+
+        // candidates are sorted, so any root contained in another directory root directly follows it
+        Set<String> roots = new TreeSet<>();
+        String current = null;
+        for (String candidate : candidates) {
+            if (current == null || !candidate.startsWith(current)) {
+                roots.add(candidate);
+                current = candidate.endsWith("/") ? candidate : null;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * @param masterChangeLog path of the root changelog
+     * @return the root containing the master changelog, usable before the changelog has been parsed
+     */
+    public static Set<String> defaultRoots(String masterChangeLog) {
+        return Collections.singleton(root(masterChangeLog));
+    }
+
+    /**
+     * @param config
+     * @param resourceAccessor
+     * @param roots as returned by {@link #roots(String, DatabaseChangeLog)}
+     * @return hex encoded fingerprint
+     * @throws IOException if the resources could not be read
+     */
+    public static String compute(LiquibaseConfig config, ResourceAccessor resourceAccessor, Collection<String> roots) throws IOException {
+        MessageDigest digest = ResourceDigest.newDigest();
+        update(digest, LiquibaseUtil.getBuildVersion());
+        update(digest, config.getChangeLog());
+        update(digest, config.getContexts());
+        update(digest, config.getLabels());
+        update(digest, config.getDefaultSchema());
+        if (config.getParameters() != null) {
+            for (Map.Entry<String, String> parameter : new TreeMap<>(config.getParameters()).entrySet()) {
+                update(digest, parameter.getKey());
+                update(digest, parameter.getValue());
+            }
+        }
+
+        for (Map.Entry<String, String> resource : digests(resourceAccessor, roots).entrySet()) {
+            update(digest, resource.getKey());
+            update(digest, resource.getValue());
+        }
+        return ResourceDigest.toHex(digest.digest());
+    }
+
+    /**
+     * @param resourceAccessor
+     * @param roots
+     * @return hex encoded SHA-256 of every resource below the roots (null for missing resources), sorted by path
+     * @throws IOException if the resources could not be read
+     */
+    public static SortedMap<String, String> digests(ResourceAccessor resourceAccessor, Collection<String> roots) throws IOException {
+        SortedMap<String, String> digests = new TreeMap<>();
+        for (String resource : resources(resourceAccessor, roots)) {
+            byte[] content = ResourceDigest.read(resource, resourceAccessor);
+            digests.put(resource, content == null ? null : ResourceDigest.sha256(content));
+        }
+        return digests;
+    }
+
+    /**
+     * @param path
+     * @return the path with forward slashes and without <code>classpath:</code> prefix, as listed by the resource accessor
+     */
+    public static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        return normalized.startsWith(CLASSPATH_PREFIX) ? normalized.substring(CLASSPATH_PREFIX.length()) : normalized;
+    }
+
+    /**
+     * @param resourceAccessor
+     * @param roots
+     * @return sorted paths of all resources below the roots
+     * @throws IOException
+     */
+    static List<String> resources(ResourceAccessor resourceAccessor, Collection<String> roots) throws IOException {
+        Set<String> resources = new TreeSet<>();
+        for (String root : roots) {
+            if (root.endsWith("/")) {
+                Set<String> listed = resourceAccessor.list(null, root, true, false, true);
+                if (listed != null) {
+                    resources.addAll(listed);
+                }
+            } else {
+                resources.add(root);
+            }
+        }
+        return new ArrayList<>(resources);
+    }
+
+    private static String root(String path) {
+        String normalized = normalize(path);
+        int separator = normalized.lastIndexOf('/');
+        // never list the whole resource tree for changelogs located at its top; track the file itself instead
+        return separator <= 0 ? normalized : normalized.substring(0, separator + 1);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+}
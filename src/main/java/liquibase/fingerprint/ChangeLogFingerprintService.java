@@ -0,0 +1,171 @@
+package liquibase.fingerprint;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.resource.ResourceAccessor;
+import liquibase.table.AbstractSideTable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Records the {@link ChangeLogFingerprint} of the last changelog a database was successfully brought in line with, in a side
+ * table named after the {@link liquibase.configuration.GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME} table
+ * (<code>DATABASECHANGELOGFINGERPRINT</code> by default), with one row per changelog.
+ *
+ * When the fingerprint of the bundled changelog matches the recorded one, the database already contains every changeset of the
+ * changelog and Liquibase does not need to run at all.  The check costs a single-row query plus reading the changelog resources.
+ * Changelogs containing <code>runAlways</code> changesets are never fingerprinted, since those must run on every startup.
+ * Changes made to the DATABASECHANGELOG table by other means (manual rollbacks, other tools) are not detected; delete the
+ * fingerprint row to force a full run after such changes.
+ *
+ * @author Eric Benzacar
+ */
+public class ChangeLogFingerprintService extends AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(ChangeLogFingerprintService.class);
+
+    private static final int MAX_ROOTS_LENGTH = 4000;
+    private static final String ROOTS_SEPARATOR = "\n";
+
+    private final LiquibaseConfig config;
+    private final ResourceAccessor resourceAccessor;
+
+    public ChangeLogFingerprintService(Database database, LiquibaseConfig config, ResourceAccessor resourceAccessor) {
+        super(database);
+        this.config = config;
+        this.resourceAccessor = resourceAccessor;
+    }
+
+    /**
+     * @return true if the bundled changelog has the same fingerprint as the last one recorded for the database
+     */
+    public boolean isUpToDate() {
+        String[] recorded = read();
+        if (recorded == null) {
+            return false;
+        }
+        try {
+            Set<String> roots = new LinkedHashSet<>(Arrays.asList(recorded[1].split(ROOTS_SEPARATOR)));
+            return recorded[0].equals(ChangeLogFingerprint.compute(config, resourceAccessor, roots));
+        } catch (IOException e) {
+            logger.warn("Could not compute the fingerprint of changelog {}: {}", config.getChangeLog(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Records the fingerprint of the changelog, which must have just been successfully applied to the database.
+     * Failures are logged rather than thrown, so they never fail a successful run.
+     * @param changeLog
+     */
+    public void record(DatabaseChangeLog changeLog) {
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            if (changeSet.shouldAlwaysRun()) {
+                logger.info("Changelog {} contains runAlways changeset {}, not fingerprinting it", config.getChangeLog(), changeSet.toString(false));
+                return;
+            }
+        }
+
+        Collection<String> roots = ChangeLogFingerprint.roots(config.getChangeLog(), changeLog);
+        String joinedRoots = String.join(ROOTS_SEPARATOR, roots);
+        if (joinedRoots.length() > MAX_ROOTS_LENGTH) {
+            logger.info("Changelog {} spans too many resource roots to be fingerprinted", config.getChangeLog());
+            return;
+        }
+
+        String fingerprint;
+        try {
+            fingerprint = ChangeLogFingerprint.compute(config, resourceAccessor, roots);
+        } catch (IOException e) {
+            logger.warn("Could not compute the fingerprint of changelog {}: {}", config.getChangeLog(), e.getMessage());
+            return;
+        }
+
+        Connection connection = getConnection();
+        try {
+            if (update(connection, fingerprint, joinedRoots) == 0) {
+                insert(connection, fingerprint, joinedRoots);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            // most likely the table does not exist yet
+            try {
+                createTable(connection);
+                insert(connection, fingerprint, joinedRoots);
+                commit(connection);
+            } catch (SQLException ex) {
+                rollback(connection);
+                ex.addSuppressed(e);
+                logger.warn("Could not record the fingerprint of changelog {}", config.getChangeLog(), ex);
+                return;
+            }
+        }
+        logger.debug("Recorded fingerprint {} for changelog {}", fingerprint, config.getChangeLog());
+    }
+
+    /**
+     * @return the recorded fingerprint and roots, or null if none was recorded or the table does not exist
+     */
+    protected String[] read() {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT FINGERPRINT, ROOTS FROM " + getTableName() + " WHERE ID = ?")) {
+            statement.setString(1, config.getChangeLog());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? new String[]{resultSet.getString(1), resultSet.getString(2)} : null;
+            }
+        } catch (SQLException e) {
+            logger.debug("No changelog fingerprint available: {}", e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    @Override
+    protected String getTableSuffix() {
+        return "FINGERPRINT";
+    }
+
+    @Override
+    protected String getColumnDefinitions() {
+        return "ID " + type("VARCHAR(255)") + " NOT NULL, "
+                + "FINGERPRINT " + type("VARCHAR(64)") + " NOT NULL, "
+                + "ROOTS " + type("VARCHAR(" + MAX_ROOTS_LENGTH + ")") + ", "
+                + "DATEUPDATED " + type("datetime") + ", "
+                + "PRIMARY KEY (ID)";
+    }
+
+    private int update(Connection connection, String fingerprint, String roots) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + getTableName() + " SET FINGERPRINT = ?, ROOTS = ?, DATEUPDATED = ? WHERE ID = ?")) {
+            statement.setString(1, fingerprint);
+            statement.setString(2, roots);
+            statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            statement.setString(4, config.getChangeLog());
+            return statement.executeUpdate();
+        }
+    }
+
+    private void insert(Connection connection, String fingerprint, String roots) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + getTableName() + " (ID, FINGERPRINT, ROOTS, DATEUPDATED) VALUES (?, ?, ?, ?)")) {
+            statement.setString(1, config.getChangeLog());
+            statement.setString(2, fingerprint);
+            statement.setString(3, roots);
+            statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package liquibase.instrumentation;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards the timings to several {@link LiquibaseInstrumentation} instances
+ *
+ * @author Eric Benzacar
+ */
+public class CompositeLiquibaseInstrumentation implements LiquibaseInstrumentation {
+
+    private final List<LiquibaseInstrumentation> delegates;
+
+    public CompositeLiquibaseInstrumentation(List<LiquibaseInstrumentation> delegates) {
+        this.delegates = new ArrayList<>(delegates);
+    }
+
+    @Override
+    public void connectionAcquired(LiquibaseConfig config, long nanos) {
+        delegates.forEach(delegate -> delegate.connectionAcquired(config, nanos));
+    }
+
+    @Override
+    public void changeLogParsed(LiquibaseConfig config, long nanos) {
+        delegates.forEach(delegate -> delegate.changeLogParsed(config, nanos));
+    }
+
+    @Override
+    public void lockAcquired(LiquibaseConfig config, long nanos) {
+        delegates.forEach(delegate -> delegate.lockAcquired(config, nanos));
+    }
+
+    @Override
+    public void checksumsValidated(LiquibaseConfig config, long nanos) {
+        delegates.forEach(delegate -> delegate.checksumsValidated(config, nanos));
+    }
+
+    @Override
+    public void changeSetExecuted(LiquibaseConfig config, ChangeSet changeSet, ChangeSet.ExecType execType, long nanos) {
+        delegates.forEach(delegate -> delegate.changeSetExecuted(config, changeSet, execType, nanos));
+    }
+
+    @Override
+    public void changeSetFailed(LiquibaseConfig config, ChangeSet changeSet, Exception exception, long nanos) {
+        delegates.forEach(delegate -> delegate.changeSetFailed(config, changeSet, exception, nanos));
+    }
+}
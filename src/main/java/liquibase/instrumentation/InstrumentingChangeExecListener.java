@@ -0,0 +1,39 @@
+package liquibase.instrumentation;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.database.Database;
+
+/**
+ * Reports the execution time of each changeset to a {@link LiquibaseInstrumentation}
+ *
+ * @author Eric Benzacar
+ */
+public class InstrumentingChangeExecListener extends AbstractChangeExecListener {
+
+    private final LiquibaseConfig config;
+    private final LiquibaseInstrumentation instrumentation;
+    private long started;
+
+    public InstrumentingChangeExecListener(LiquibaseConfig config, LiquibaseInstrumentation instrumentation) {
+        this.config = config;
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+        instrumentation.changeSetExecuted(config, changeSet, execType, System.nanoTime() - started);
+    }
+
+    @Override
+    public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        instrumentation.changeSetFailed(config, changeSet, exception, System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,118 @@
+package liquibase.instrumentation;
+
+import liquibase.LiquibaseConfig;
+import liquibase.LiquibaseMigrationExecutor;
+import liquibase.changelog.ChangeSet;
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Default {@link LiquibaseInstrumentation}, publishing a {@link MigrationStatisticsMBean} per config in the platform MBean
+ * server under <code>liquibase:type=Migration,name=&lt;changelog&gt;</code>.  A new migration of the same config replaces
+ * the statistics of the previous one.  The MBeans stay registered until {@link #close()}, which must be called when the
+ * application shuts down so the platform MBean server does not retain its classes.
+ *
+ * @author Eric Benzacar
+ */
+public class JmxLiquibaseInstrumentation implements LiquibaseInstrumentation, AutoCloseable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(JmxLiquibaseInstrumentation.class);
+
+    private final MBeanServer mBeanServer;
+    private final Map<LiquibaseConfig, MigrationStatistics> statistics = new ConcurrentHashMap<>();
+    private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+    public JmxLiquibaseInstrumentation() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxLiquibaseInstrumentation(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    @Override
+    public void connectionAcquired(LiquibaseConfig config, long nanos) {
+        // first callback of a migration, so start from fresh statistics
+        MigrationStatistics migrationStatistics = new MigrationStatistics();
+        migrationStatistics.setConnectionAcquisitionNanos(nanos);
+        statistics.put(config, migrationStatistics);
+        register(config, migrationStatistics);
+    }
+
+    @Override
+    public void changeLogParsed(LiquibaseConfig config, long nanos) {
+        getStatistics(config).setChangeLogParseNanos(nanos);
+    }
+
+    @Override
+    public void lockAcquired(LiquibaseConfig config, long nanos) {
+        getStatistics(config).setLockWaitNanos(nanos);
+    }
+
+    @Override
+    public void checksumsValidated(LiquibaseConfig config, long nanos) {
+        getStatistics(config).setChecksumValidationNanos(nanos);
+    }
+
+    @Override
+    public void changeSetExecuted(LiquibaseConfig config, ChangeSet changeSet, ChangeSet.ExecType execType, long nanos) {
+        getStatistics(config).addChangeSet(changeSet.toString(false), nanos, false);
+    }
+
+    @Override
+    public void changeSetFailed(LiquibaseConfig config, ChangeSet changeSet, Exception exception, long nanos) {
+        getStatistics(config).addChangeSet(changeSet.toString(false), nanos, true);
+    }
+
+    /**
+     * Unregisters the MBeans of all configs and discards their statistics
+     */
+    @Override
+    public void close() {
+        synchronized (mBeanServer) {
+            for (ObjectName name : registered) {
+                try {
+                    if (mBeanServer.isRegistered(name)) {
+                        mBeanServer.unregisterMBean(name);
+                    }
+                } catch (JMException e) {
+                    logger.warn("Could not unregister the migration statistics {} from JMX", name, e);
+                }
+            }
+            registered.clear();
+        }
+        statistics.clear();
+    }
+
+    private MigrationStatistics getStatistics(LiquibaseConfig config) {
+        return statistics.computeIfAbsent(config, key -> {
+            MigrationStatistics migrationStatistics = new MigrationStatistics();
+            register(key, migrationStatistics);
+            return migrationStatistics;
+        });
+    }
+
+    private void register(LiquibaseConfig config, MigrationStatistics migrationStatistics) {
+        try {
+            ObjectName name = new ObjectName("liquibase:type=Migration,name=" + ObjectName.quote(LiquibaseMigrationExecutor.describe(config)));
+            synchronized (mBeanServer) {
+                if (mBeanServer.isRegistered(name)) {
+                    mBeanServer.unregisterMBean(name);
+                }
+                mBeanServer.registerMBean(migrationStatistics, name);
+                registered.add(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not register the migration statistics of {} in JMX", LiquibaseMigrationExecutor.describe(config), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package liquibase.instrumentation;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+
+/**
+ * Receives the timings of the phases of each {@link LiquibaseConfig} processed by {@link liquibase.CDILiquibase}.
+ *
+ * Implementations are looked up by {@link liquibase.CDILiquibaseBootstrap} as beans qualified with
+ * {@link liquibase.annotation.LiquibaseType}, for init configs or not; when there are none, {@link JmxLiquibaseInstrumentation}
+ * is used.  Callbacks for a given config are made from the thread migrating it, but different configs may be migrated
+ * concurrently.  All durations are in nanoseconds.
+ *
+ * @author Eric Benzacar
+ */
+public interface LiquibaseInstrumentation {
+
+    /**
+     * Instrumentation discarding all timings
+     */
+    LiquibaseInstrumentation NONE = new LiquibaseInstrumentation() {
+    };
+
+    /**
+     * Time taken to obtain a connection and detect the database implementation
+     */
+    default void connectionAcquired(LiquibaseConfig config, long nanos) {
+    }
+
+    /**
+     * Time taken to parse the changelog
+     */
+    default void changeLogParsed(LiquibaseConfig config, long nanos) {
+    }
+
+    /**
+     * Time spent waiting for the changelog lock
+     */
+    default void lockAcquired(LiquibaseConfig config, long nanos) {
+    }
+
+    /**
+     * Time taken to validate the changelog, including the checksums of the changesets already applied
+     */
+    default void checksumsValidated(LiquibaseConfig config, long nanos) {
+    }
+
+    /**
+     * Time taken to execute a changeset
+     */
+    default void changeSetExecuted(LiquibaseConfig config, ChangeSet changeSet, ChangeSet.ExecType execType, long nanos) {
+    }
+
+    /**
+     * Time spent executing a changeset before it failed
+     */
+    default void changeSetFailed(LiquibaseConfig config, ChangeSet changeSet, Exception exception, long nanos) {
+    }
+}
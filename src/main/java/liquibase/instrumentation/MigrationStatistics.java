@@ -0,0 +1,112 @@
+package liquibase.instrumentation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of the last migration of a {@link liquibase.LiquibaseConfig}, as exposed through JMX by {@link JmxLiquibaseInstrumentation}
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationStatistics implements MigrationStatisticsMBean {
+
+    private static final int SLOWEST_CHANGESETS = 10;
+
+    private volatile long connectionAcquisitionNanos;
+    private volatile long changeLogParseNanos;
+    private volatile long lockWaitNanos;
+    private volatile long checksumValidationNanos;
+    private int changeSetsExecuted;
+    private int changeSetsFailed;
+    private long changeSetExecutionNanos;
+    private final List<ChangeSetTiming> slowest = new ArrayList<>();
+
+    void setConnectionAcquisitionNanos(long nanos) {
+        this.connectionAcquisitionNanos = nanos;
+    }
+
+    void setChangeLogParseNanos(long nanos) {
+        this.changeLogParseNanos = nanos;
+    }
+
+    void setLockWaitNanos(long nanos) {
+        this.lockWaitNanos = nanos;
+    }
+
+    void setChecksumValidationNanos(long nanos) {
+        this.checksumValidationNanos = nanos;
+    }
+
+    synchronized void addChangeSet(String changeSet, long nanos, boolean failed) {
+        if (failed) {
+            changeSetsFailed++;
+        } else {
+            changeSetsExecuted++;
+        }
+        changeSetExecutionNanos += nanos;
+
+        // keep only the slowest changesets, slowest first
+        slowest.add(new ChangeSetTiming(changeSet, nanos));
+        slowest.sort(Comparator.comparingLong((ChangeSetTiming timing) -> timing.nanos).reversed());
+        if (slowest.size() > SLOWEST_CHANGESETS) {
+            slowest.remove(SLOWEST_CHANGESETS);
+        }
+    }
+
+    @Override
+    public long getConnectionAcquisitionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(connectionAcquisitionNanos);
+    }
+
+    @Override
+    public long getChangeLogParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(changeLogParseNanos);
+    }
+
+    @Override
+    public long getLockWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lockWaitNanos);
+    }
+
+    @Override
+    public long getChecksumValidationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(checksumValidationNanos);
+    }
+
+    @Override
+    public synchronized int getChangeSetsExecuted() {
+        return changeSetsExecuted;
+    }
+
+    @Override
+    public synchronized int getChangeSetsFailed() {
+        return changeSetsFailed;
+    }
+
+    @Override
+    public synchronized long getChangeSetExecutionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(changeSetExecutionNanos);
+    }
+
+    @Override
+    public synchronized String[] getSlowestChangeSets() {
+        String[] result = new String[slowest.size()];
+        for (int i = 0; i < result.length; i++) {
+            ChangeSetTiming timing = slowest.get(i);
+            result[i] = TimeUnit.NANOSECONDS.toMillis(timing.nanos) + " ms " + timing.changeSet;
+        }
+        return result;
+    }
+
+    private static class ChangeSetTiming {
+        private final String changeSet;
+        private final long nanos;
+
+        private ChangeSetTiming(String changeSet, long nanos) {
+            this.changeSet = changeSet;
+            this.nanos = nanos;
+        }
+    }
+}
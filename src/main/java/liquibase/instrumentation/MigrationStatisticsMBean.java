@@ -0,0 +1,28 @@
+package liquibase.instrumentation;
+
+/**
+ * JMX view of the timings of the last migration of a {@link liquibase.LiquibaseConfig}
+ *
+ * @author Eric Benzacar
+ */
+public interface MigrationStatisticsMBean {
+
+    long getConnectionAcquisitionMillis();
+
+    long getChangeLogParseMillis();
+
+    long getLockWaitMillis();
+
+    long getChecksumValidationMillis();
+
+    int getChangeSetsExecuted();
+
+    int getChangeSetsFailed();
+
+    long getChangeSetExecutionMillis();
+
+    /**
+     * @return the slowest changesets executed, slowest first, formatted as <code>millis ms file::id::author</code>
+     */
+    String[] getSlowestChangeSets();
+}
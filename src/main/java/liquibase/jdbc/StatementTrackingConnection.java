@@ -0,0 +1,95 @@
+package liquibase.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dynamic proxies of a {@link Connection} and of the statements it creates, recording the statements being executed, so that
+ * they can be cancelled from another thread with {@link Statement#cancel()}, and counting the rows they affect.
+ *
+ * @author Eric Benzacar
+ */
+public final class StatementTrackingConnection {
+
+    private StatementTrackingConnection() {
+    }
+
+    /**
+     * @param connection
+     * @param running receives each statement for the duration of its execution, or null
+     * @param rows incremented with the number of rows affected by each statement, or null
+     * @return proxy of the connection
+     */
+    public static Connection wrap(Connection connection, Set<Statement> running, LongAdder rows) {
+        return (Connection) Proxy.newProxyInstance(StatementTrackingConnection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return wrap((Statement) result, method.getReturnType(), running, rows);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrap(Statement statement, Class<?> type, Set<Statement> running, LongAdder rows) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            if (running != null) {
+                running.add(statement);
+            }
+            try {
+                Object result = invoke(statement, method, args);
+                if (rows != null) {
+                    rows.add(count(statement, result));
+                }
+                return result;
+            } finally {
+                if (running != null) {
+                    running.remove(statement);
+                }
+            }
+        };
+        return Proxy.newProxyInstance(StatementTrackingConnection.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * @return number of rows affected according to the result of an execute method
+     */
+    private static long count(Statement statement, Object result) throws SQLException {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (Boolean.FALSE.equals(result)) {
+            return Math.max(0, statement.getUpdateCount());
+        }
+        long count = 0;
+        if (result instanceof int[]) {
+            for (int value : (int[]) result) {
+                // drivers may report Statement.SUCCESS_NO_INFO rather than a count
+                count += Math.max(0, value);
+            }
+        } else if (result instanceof long[]) {
+            for (long value : (long[]) result) {
+                count += Math.max(0, value);
+            }
+        }
+        return count;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package liquibase.precompile;
+
+import liquibase.cache.CachingXMLChangeLogParser;
+import liquibase.cache.ChangeLogCache;
+import liquibase.cache.ParsedNodeCodec;
+import liquibase.cache.PrecompiledChangeLogCache;
+import liquibase.cache.ResourceDigest;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.exception.ChangeLogParseException;
+import liquibase.fingerprint.ChangeLogFingerprint;
+import liquibase.parser.core.ParsedNode;
+import liquibase.parser.core.xml.XMLChangeLogSAXParser;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Annotation processor precompiling the changelogs named by {@link PrecompileChangeLog} annotations.
+ *
+ * Every XML file in the directory of each master changelog (and below) is parsed into its {@link ParsedNode} tree, which is
+ * written to the class output as a {@link PrecompiledChangeLogCache} entry.  The changelogs are read from the class output,
+ * where the build has copied the resources before compiling (as Maven does in <code>process-resources</code>).  Files
+ * containing <code>${...}</code> expressions are left to be parsed at runtime, as their parse depends on the changelog
+ * parameters.
+ *
+ * The processor is registered as a service, so it runs automatically when this library is on the compile classpath.
+ *
+ * @author Eric Benzacar
+ */
+@SupportedAnnotationTypes("liquibase.precompile.PrecompileChangeLog")
+public class ChangeLogPrecompiler extends AbstractProcessor {
+
+    private final Set<String> written = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(PrecompileChangeLog.class)) {
+            for (String changeLog : element.getAnnotation(PrecompileChangeLog.class).value()) {
+                try {
+                    precompile(changeLog);
+                } catch (IOException | ChangeLogParseException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Could not precompile changelog " + changeLog + ": " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void precompile(String changeLog) throws IOException, ChangeLogParseException {
+        // the class output directory is the ancestor of the copied changelog matching the depth of its resource path
+        Path classOutput = Paths.get(processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", changeLog).toUri());
+        if (!Files.isRegularFile(classOutput)) {
+            throw new IOException("not found in the class output, where the resources must be copied before compiling");
+        }
+        for (int i = 0; i < Paths.get(changeLog).getNameCount(); i++) {
+            classOutput = classOutput.getParent();
+        }
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{classOutput.toUri().toURL()}, getClass().getClassLoader());
+        try {
+            ResourceAccessor resourceAccessor = new ClassLoaderResourceAccessor(classLoader);
+            NodeParser parser = new NodeParser();
+            int precompiled = 0;
+            for (String resource : ChangeLogFingerprint.digests(resourceAccessor, ChangeLogFingerprint.defaultRoots(changeLog)).keySet()) {
+                if (!resource.toLowerCase().endsWith(".xml")) {
+                    continue;
+                }
+                byte[] content = ResourceDigest.read(resource, resourceAccessor);
+                if (content == null || !CachingXMLChangeLogParser.isCacheable(content)) {
+                    continue;
+                }
+                ParsedNode node = parser.parse(resource, resourceAccessor);
+                String key = ChangeLogCache.key(content);
+                if (node == null || !ParsedNodeCodec.isEncodable(node) || !written.add(key)) {
+                    continue;
+                }
+                FileObject entry = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", PrecompiledChangeLogCache.path(key));
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(entry.openOutputStream()))) {
+                    ParsedNodeCodec.write(node, out);
+                }
+                precompiled++;
+            }
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Precompiled " + precompiled + " files of changelog " + changeLog);
+        } finally {
+            classLoader.close();
+        }
+    }
+
+    /**
+     * Exposes the node parsing step of the standard XML parser
+     */
+    private static class NodeParser extends XMLChangeLogSAXParser {
+        ParsedNode parse(String path, ResourceAccessor resourceAccessor) throws ChangeLogParseException {
+            return parseToNode(path, new ChangeLogParameters(), resourceAccessor);
+        }
+    }
+}
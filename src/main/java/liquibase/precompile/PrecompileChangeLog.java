@@ -0,0 +1,25 @@
+package liquibase.precompile;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PACKAGE;
+import static java.lang.annotation.ElementType.TYPE;
+
+/**
+ * Requests the changelogs to be precompiled at build time by the {@link ChangeLogPrecompiler} annotation processor.
+ *
+ * Place it on any class (or package) of the module bundling the changelogs, and enable
+ * {@link liquibase.LiquibaseConfig#setUsePrecompiledChangeLog(boolean)} on the matching configs.
+ *
+ * @author Eric Benzacar
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({TYPE, PACKAGE})
+public @interface PrecompileChangeLog {
+    /**
+     * Resource paths of the master changelogs; every XML file in the directory of a master changelog (and below) is precompiled
+     */
+    String[] value();
+}
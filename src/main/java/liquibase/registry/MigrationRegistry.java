@@ -0,0 +1,115 @@
+package liquibase.registry;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JVM-wide registry of the configs already brought up to date, so repeated bootstraps within the same JVM (test suites booting
+ * a container per test, hot redeploys sharing this library) skip them without connecting to the database.
+ *
+ * Configs are registered per target database and fingerprint.  The target is the {@link javax.sql.DataSource} instance,
+ * compared by identity and held weakly so a discarded pool never matches again, or the JDBC URL and user of a dedicated
+ * connection.  The fingerprint is the {@link liquibase.fingerprint.ChangeLogFingerprint} of the config, which covers the
+ * changelog content, contexts, labels, default schema and parameters.  Changes made to the database behind the registry's back,
+ * e.g. a test dropping the schema, must be followed by {@link #invalidate(Object)} or {@link #invalidateAll()}.
+ *
+ * @author Eric Benzacar
+ */
+public final class MigrationRegistry {
+
+    private static final MigrationRegistry INSTANCE = new MigrationRegistry();
+
+    private final Map<Target, Set<String>> migrated = new HashMap<>();
+    private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+
+    private MigrationRegistry() {
+    }
+
+    public static MigrationRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param target data source instance, or identification of a dedicated connection
+     * @param fingerprint of the config
+     * @return true if a config with this fingerprint has been brought up to date on the target
+     */
+    public synchronized boolean isMigrated(Object target, String fingerprint) {
+        purge();
+        Set<String> fingerprints = migrated.get(new Target(target, null));
+        return fingerprints != null && fingerprints.contains(fingerprint);
+    }
+
+    /**
+     * Registers the config as up to date on the target
+     * @param target data source instance, or identification of a dedicated connection
+     * @param fingerprint of the config
+     */
+    public synchronized void register(Object target, String fingerprint) {
+        purge();
+        migrated.computeIfAbsent(new Target(target, released), key -> new HashSet<>()).add(fingerprint);
+    }
+
+    /**
+     * Forgets the configs brought up to date on the target, so they are run again by the next bootstrap
+     * @param target data source instance, or identification of a dedicated connection
+     */
+    public synchronized void invalidate(Object target) {
+        purge();
+        migrated.remove(new Target(target, null));
+    }
+
+    /**
+     * Forgets all configs, so they are run again by the next bootstrap
+     */
+    public synchronized void invalidateAll() {
+        migrated.clear();
+    }
+
+    private void purge() {
+        Reference<?> reference;
+        while ((reference = released.poll()) != null) {
+            migrated.remove(reference);
+        }
+    }
+
+    /**
+     * Weak reference to a data source, compared by identity; or an identification string, compared by equality
+     */
+    private static final class Target extends WeakReference<Object> {
+        private final String identification;
+        private final int hash;
+
+        private Target(Object target, ReferenceQueue<Object> queue) {
+            super(target instanceof String ? null : target, queue);
+            this.identification = target instanceof String ? (String) target : null;
+            this.hash = identification != null ? identification.hashCode() : System.identityHashCode(target);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Target)) {
+                return false;
+            }
+            Target target = (Target) other;
+            if (identification != null || target.identification != null) {
+                return identification != null && identification.equals(target.identification);
+            }
+            Object referent = get();
+            return referent != null && referent == target.get();
+        }
+    }
+}
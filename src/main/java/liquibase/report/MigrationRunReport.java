@@ -0,0 +1,164 @@
+package liquibase.report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structured record of the processing of one {@link liquibase.LiquibaseConfig} during one startup.  All durations are in
+ * nanoseconds.
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationRunReport {
+
+    /**
+     * Execution of a single changeset
+     */
+    public static class ChangeSetRun {
+        private final String changeSet;
+        private final String execType;
+        private final long nanos;
+        private final long rows;
+
+        /**
+         * @param changeSet identification of the changeset, as <code>file::id::author</code>
+         * @param execType as reported by Liquibase, or <code>FAILED</code>
+         * @param nanos
+         * @param rows number of rows affected by the statements of the changeset
+         */
+        public ChangeSetRun(String changeSet, String execType, long nanos, long rows) {
+            this.changeSet = changeSet;
+            this.execType = execType;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+
+        public String getChangeSet() {
+            return changeSet;
+        }
+
+        public String getExecType() {
+            return execType;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    private final long started;
+    private final String host;
+    private final String config;
+    private final String mode;
+    private final boolean successful;
+    private final String failure;
+    private final long nanos;
+    private final long connectionNanos;
+    private final long parseNanos;
+    private final long lockNanos;
+    private final long validationNanos;
+    private final List<ChangeSetRun> changeSets;
+
+    /**
+     * @param started epoch milliseconds at which the processing started
+     * @param host
+     * @param config description of the config
+     * @param mode {@link liquibase.CDIBootstrapConfiguration.ExecutionMode} name
+     * @param successful
+     * @param failure message of the failure, or null
+     * @param nanos total duration
+     * @param connectionNanos
+     * @param parseNanos
+     * @param lockNanos
+     * @param validationNanos
+     * @param changeSets changesets executed, in execution order
+     */
+    public MigrationRunReport(long started, String host, String config, String mode, boolean successful, String failure, long nanos,
+                              long connectionNanos, long parseNanos, long lockNanos, long validationNanos, List<ChangeSetRun> changeSets) {
+        this.started = started;
+        this.host = host;
+        this.config = config;
+        this.mode = mode;
+        this.successful = successful;
+        this.failure = failure;
+        this.nanos = nanos;
+        this.connectionNanos = connectionNanos;
+        this.parseNanos = parseNanos;
+        this.lockNanos = lockNanos;
+        this.validationNanos = validationNanos;
+        this.changeSets = Collections.unmodifiableList(new ArrayList<>(changeSets));
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getConfig() {
+        return config;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getConnectionNanos() {
+        return connectionNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getLockNanos() {
+        return lockNanos;
+    }
+
+    public long getValidationNanos() {
+        return validationNanos;
+    }
+
+    public List<ChangeSetRun> getChangeSets() {
+        return changeSets;
+    }
+
+    /**
+     * @return number of changesets executed successfully
+     */
+    public int getChangeSetsApplied() {
+        return (int) changeSets.stream().filter(run -> !RunReportCollector.FAILED.equals(run.getExecType())).count();
+    }
+
+    /**
+     * @return number of rows affected by all changesets
+     */
+    public long getRowsAffected() {
+        return changeSets.stream().mapToLong(ChangeSetRun::getRows).sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s in %d ms: %d changesets, %d rows", config, mode, successful ? "succeeded" : "failed",
+                nanos / 1000000, getChangeSetsApplied(), getRowsAffected());
+    }
+}
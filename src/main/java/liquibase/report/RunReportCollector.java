@@ -0,0 +1,125 @@
+package liquibase.report;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import liquibase.jdbc.StatementTrackingConnection;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the {@link MigrationRunReport} of a single config: the phase timings as a {@link LiquibaseInstrumentation}, the
+ * changesets through {@link #getListener()}, and the rows affected through the connection returned by {@link #track(Connection)}.
+ *
+ * @author Eric Benzacar
+ */
+public class RunReportCollector implements LiquibaseInstrumentation {
+
+    /**
+     * Execution type recorded for the changesets that failed
+     */
+    public static final String FAILED = "FAILED";
+
+    private static final int MAX_FAILURE_LENGTH = 1000;
+
+    private final String host;
+    private final String config;
+    private final String mode;
+    private final long started = System.currentTimeMillis();
+    private final long startedNanos = System.nanoTime();
+    private final LongAdder rows = new LongAdder();
+    private final List<MigrationRunReport.ChangeSetRun> changeSets = new ArrayList<>();
+    private long connectionNanos;
+    private long parseNanos;
+    private long lockNanos;
+    private long validationNanos;
+    private long changeSetStarted;
+    private long changeSetRows;
+
+    /**
+     * @param host
+     * @param config description of the config
+     * @param mode
+     */
+    public RunReportCollector(String host, String config, String mode) {
+        this.host = host;
+        this.config = config;
+        this.mode = mode;
+    }
+
+    /**
+     * @param connection
+     * @return the connection to use for the run, counting the rows affected by its statements
+     */
+    public Connection track(Connection connection) {
+        return StatementTrackingConnection.wrap(connection, null, rows);
+    }
+
+    /**
+     * @return listener recording the changesets executed
+     */
+    public ChangeExecListener getListener() {
+        return new AbstractChangeExecListener() {
+            @Override
+            public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+                changeSetStarted = System.nanoTime();
+                changeSetRows = rows.sum();
+            }
+
+            @Override
+            public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+                record(changeSet, execType.name());
+            }
+
+            @Override
+            public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+                record(changeSet, FAILED);
+            }
+        };
+    }
+
+    @Override
+    public void connectionAcquired(LiquibaseConfig config, long nanos) {
+        connectionNanos += nanos;
+    }
+
+    @Override
+    public void changeLogParsed(LiquibaseConfig config, long nanos) {
+        parseNanos += nanos;
+    }
+
+    @Override
+    public void lockAcquired(LiquibaseConfig config, long nanos) {
+        lockNanos += nanos;
+    }
+
+    @Override
+    public void checksumsValidated(LiquibaseConfig config, long nanos) {
+        validationNanos += nanos;
+    }
+
+    /**
+     * @param failure failure of the run, or null if it succeeded
+     * @return the report of the run so far
+     */
+    public MigrationRunReport build(Throwable failure) {
+        String message = failure == null ? null : String.valueOf(failure.getMessage());
+        if (message != null && message.length() > MAX_FAILURE_LENGTH) {
+            message = message.substring(0, MAX_FAILURE_LENGTH);
+        }
+        return new MigrationRunReport(started, host, config, mode, failure == null, message, System.nanoTime() - startedNanos,
+                connectionNanos, parseNanos, lockNanos, validationNanos, changeSets);
+    }
+
+    private void record(ChangeSet changeSet, String execType) {
+        changeSets.add(new MigrationRunReport.ChangeSetRun(changeSet.toString(false), execType, System.nanoTime() - changeSetStarted,
+                rows.sum() - changeSetRows));
+    }
+}
@@ -0,0 +1,192 @@
+package liquibase.report;
+
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Append-only binary file of {@link MigrationRunReport}s.
+ *
+ * Each report is written as a single record, appended in one write, so configs migrated concurrently never interleave.  A record
+ * is framed by a marker, its length and a CRC32 of its content.  A record torn by a crash, or otherwise corrupted, is skipped
+ * when reading, which resumes at the next record marker, so the reports appended after it remain readable.
+ *
+ * @author Eric Benzacar
+ */
+public class RunReportFile {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(RunReportFile.class);
+
+    private static final int VERSION = 1;
+
+    /**
+     * Marker starting each record ("LBRR")
+     */
+    private static final int MAGIC = 0x4C425252;
+
+    /**
+     * Bytes of the marker and length preceding the content, and of the checksum following it
+     */
+    private static final int HEADER = 8;
+    private static final int TRAILER = 4;
+
+    private final Path file;
+
+    public RunReportFile(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @param report
+     * @throws IOException
+     */
+    public void append(MigrationRunReport report) throws IOException {
+        byte[] record = encode(report);
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER + record.length + TRAILER);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(record.length);
+        output.write(record);
+        output.writeInt((int) checksum.getValue());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        synchronized (RunReportFile.class) {
+            try (OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                stream.write(bytes.toByteArray());
+            }
+        }
+    }
+
+    /**
+     * @return all reports of the file, oldest first; empty if the file does not exist
+     * @throws IOException
+     */
+    public List<MigrationRunReport> read() throws IOException {
+        List<MigrationRunReport> reports = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return reports;
+        }
+        byte[] content = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        int position = 0;
+        int skipped = 0;
+        while (position <= content.length - HEADER - TRAILER) {
+            int length = buffer.getInt(position + 4);
+            if (buffer.getInt(position) != MAGIC || length < 0 || length > content.length - position - HEADER - TRAILER
+                    || buffer.getInt(position + HEADER + length) != checksum(content, position + HEADER, length)) {
+                // torn or corrupted record: resume at the next marker
+                position++;
+                skipped++;
+                continue;
+            }
+            if (skipped > 0) {
+                logger.warn("Skipped {} unreadable bytes of {}", skipped, file);
+                skipped = 0;
+            }
+            try {
+                reports.add(decode(content, position + HEADER, length));
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable report of {}: {}", file, e.getMessage());
+            }
+            position += HEADER + length + TRAILER;
+        }
+        skipped += content.length - position;
+        if (skipped > 0) {
+            logger.warn("Skipped {} unreadable bytes of {}", skipped, file);
+        }
+        return reports;
+    }
+
+    private static int checksum(byte[] content, int offset, int length) {
+        CRC32 checksum = new CRC32();
+        checksum.update(content, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    private static byte[] encode(MigrationRunReport report) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(VERSION);
+        output.writeLong(report.getStarted());
+        writeString(output, report.getHost());
+        writeString(output, report.getConfig());
+        writeString(output, report.getMode());
+        output.writeBoolean(report.isSuccessful());
+        writeString(output, report.getFailure());
+        output.writeLong(report.getNanos());
+        output.writeLong(report.getConnectionNanos());
+        output.writeLong(report.getParseNanos());
+        output.writeLong(report.getLockNanos());
+        output.writeLong(report.getValidationNanos());
+        output.writeInt(report.getChangeSets().size());
+        for (MigrationRunReport.ChangeSetRun run : report.getChangeSets()) {
+            writeString(output, run.getChangeSet());
+            writeString(output, run.getExecType());
+            output.writeLong(run.getNanos());
+            output.writeLong(run.getRows());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static MigrationRunReport decode(byte[] content, int offset, int length) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, offset, length));
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported record version " + version);
+        }
+        long started = input.readLong();
+        String host = readString(input);
+        String config = readString(input);
+        String mode = readString(input);
+        boolean successful = input.readBoolean();
+        String failure = readString(input);
+        long nanos = input.readLong();
+        long connectionNanos = input.readLong();
+        long parseNanos = input.readLong();
+        long lockNanos = input.readLong();
+        long validationNanos = input.readLong();
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("invalid number of changesets " + count);
+        }
+        List<MigrationRunReport.ChangeSetRun> changeSets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changeSets.add(new MigrationRunReport.ChangeSetRun(readString(input), readString(input), input.readLong(), input.readLong()));
+        }
+        return new MigrationRunReport(started, host, config, mode, successful, failure, nanos, connectionNanos, parseNanos, lockNanos,
+                validationNanos, changeSets);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
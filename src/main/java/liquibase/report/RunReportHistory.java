@@ -0,0 +1,100 @@
+package liquibase.report;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Queries over a history of {@link MigrationRunReport}s, e.g. read from a {@link RunReportFile} or a {@link RunReportTable},
+ * to spot the migrations whose duration grows from one run to the next.
+ *
+ * @author Eric Benzacar
+ */
+public class RunReportHistory {
+
+    private final List<MigrationRunReport> reports;
+
+    /**
+     * @param reports in any order
+     */
+    public RunReportHistory(List<MigrationRunReport> reports) {
+        this.reports = reports.stream()
+                .sorted(Comparator.comparingLong(MigrationRunReport::getStarted))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return all reports, oldest first
+     */
+    public List<MigrationRunReport> getReports() {
+        return reports;
+    }
+
+    /**
+     * @param config description of the config
+     * @return reports of the config, oldest first
+     */
+    public List<MigrationRunReport> getReports(String config) {
+        return reports.stream().filter(report -> config.equals(report.getConfig())).collect(Collectors.toList());
+    }
+
+    /**
+     * @param config description of the config
+     * @return durations of the successful runs of the config, oldest first
+     */
+    public List<Long> getDurations(String config) {
+        return getReports(config).stream()
+                .filter(MigrationRunReport::isSuccessful)
+                .map(MigrationRunReport::getNanos)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param changeSet identification of the changeset, as <code>file::id::author</code>
+     * @return every execution of the changeset, oldest first; several for changesets running always or on change, or when
+     * the history covers several databases
+     */
+    public List<MigrationRunReport.ChangeSetRun> getChangeSetRuns(String changeSet) {
+        return reports.stream()
+                .flatMap(report -> report.getChangeSets().stream())
+                .filter(run -> changeSet.equals(run.getChangeSet()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Compares the last successful run of each config and mode with the median of the runs preceding it
+     * @param window number of preceding runs the median is taken over; configs with fewer runs are ignored
+     * @param factor ratio to the median above which the last run is reported
+     * @return the last run of each config and mode exceeding the factor
+     */
+    public List<MigrationRunReport> findGrowing(int window, double factor) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1");
+        }
+        Map<String, List<MigrationRunReport>> runs = new LinkedHashMap<>();
+        for (MigrationRunReport report : reports) {
+            if (report.isSuccessful()) {
+                runs.computeIfAbsent(report.getConfig() + "\u0000" + report.getMode(), key -> new ArrayList<>()).add(report);
+            }
+        }
+        List<MigrationRunReport> growing = new ArrayList<>();
+        for (List<MigrationRunReport> history : runs.values()) {
+            if (history.size() <= window) {
+                continue;
+            }
+            MigrationRunReport last = history.get(history.size() - 1);
+            long[] previous = history.subList(history.size() - 1 - window, history.size() - 1).stream()
+                    .mapToLong(MigrationRunReport::getNanos)
+                    .sorted()
+                    .toArray();
+            long median = previous[previous.length / 2];
+            if (last.getNanos() > median * factor) {
+                growing.add(last);
+            }
+        }
+        return growing;
+    }
+}
@@ -0,0 +1,139 @@
+package liquibase.report;
+
+import liquibase.database.Database;
+import liquibase.table.AbstractSideTable;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Side table (<code>DATABASECHANGELOGRUNREPORT</code> by default) holding a summary row of each {@link MigrationRunReport}, so
+ * the history of all nodes can be queried in one place.  Changeset details are only kept in the {@link RunReportFile}.
+ *
+ * @author Eric Benzacar
+ */
+public class RunReportTable extends AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(RunReportTable.class);
+
+    public RunReportTable(Database database) {
+        super(database);
+    }
+
+    /**
+     * Appends the summary of the report.  Failures are logged rather than thrown, so they never alter the outcome of the run.
+     * @param report
+     */
+    public void append(MigrationRunReport report) {
+        Connection connection = getConnection();
+        try {
+            try {
+                doInsert(connection, report);
+            } catch (SQLException e) {
+                rollback(connection);
+                createTable(connection);
+                commit(connection);
+                doInsert(connection, report);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            logger.warn("Could not record the run report of {} in {}", report.getConfig(), getTableName(), e);
+        }
+    }
+
+    /**
+     * @param config description of the config, or null for all configs
+     * @return summaries of the reports, oldest first; without changeset details
+     * @throws SQLException
+     */
+    public List<MigrationRunReport> read(String config) throws SQLException {
+        Connection connection = getConnection();
+        List<MigrationRunReport> reports = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT DATEEXECUTED, HOST, CONFIG, EXECUTIONMODE, SUCCESSFUL, FAILURE, "
+                + "DURATIONMS, CONNECTIONMS, PARSEMS, LOCKMS, VALIDATIONMS FROM " + getTableName()
+                + (config == null ? "" : " WHERE CONFIG = ?") + " ORDER BY DATEEXECUTED")) {
+            if (config != null) {
+                statement.setString(1, config);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    reports.add(new MigrationRunReport(resultSet.getTimestamp(1).getTime(), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getBoolean(5), resultSet.getString(6), nanos(resultSet.getLong(7)),
+                            nanos(resultSet.getLong(8)), nanos(resultSet.getLong(9)), nanos(resultSet.getLong(10)), nanos(resultSet.getLong(11)),
+                            Collections.emptyList()));
+                }
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            rollback(connection);
+            throw e;
+        }
+        return reports;
+    }
+
+    @Override
+    protected String getTableSuffix() {
+        return "RUNREPORT";
+    }
+
+    @Override
+    protected String getColumnDefinitions() {
+        return "ID " + type("VARCHAR(36)") + " NOT NULL, "
+                + "DATEEXECUTED " + type("datetime") + " NOT NULL, "
+                + "HOST " + type("VARCHAR(255)") + ", "
+                + "CONFIG " + type("VARCHAR(255)") + " NOT NULL, "
+                + "EXECUTIONMODE " + type("VARCHAR(20)") + " NOT NULL, "
+                + "SUCCESSFUL " + type("BOOLEAN") + " NOT NULL, "
+                + "FAILURE " + type("VARCHAR(1000)") + ", "
+                + "DURATIONMS " + type("BIGINT") + " NOT NULL, "
+                + "CONNECTIONMS " + type("BIGINT") + " NOT NULL, "
+                + "PARSEMS " + type("BIGINT") + " NOT NULL, "
+                + "LOCKMS " + type("BIGINT") + " NOT NULL, "
+                + "VALIDATIONMS " + type("BIGINT") + " NOT NULL, "
+                + "CHANGESETS " + type("INT") + " NOT NULL, "
+                + "ROWSAFFECTED " + type("BIGINT") + " NOT NULL, "
+                + "PRIMARY KEY (ID)";
+    }
+
+    private void doInsert(Connection connection, MigrationRunReport report) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + getTableName()
+                + " (ID, DATEEXECUTED, HOST, CONFIG, EXECUTIONMODE, SUCCESSFUL, FAILURE, DURATIONMS, CONNECTIONMS, PARSEMS, LOCKMS, VALIDATIONMS, CHANGESETS, ROWSAFFECTED)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, UUID.randomUUID().toString());
+            statement.setTimestamp(2, new Timestamp(report.getStarted()));
+            statement.setString(3, report.getHost());
+            statement.setString(4, report.getConfig());
+            statement.setString(5, report.getMode());
+            statement.setBoolean(6, report.isSuccessful());
+            statement.setString(7, report.getFailure());
+            statement.setLong(8, millis(report.getNanos()));
+            statement.setLong(9, millis(report.getConnectionNanos()));
+            statement.setLong(10, millis(report.getParseNanos()));
+            statement.setLong(11, millis(report.getLockNanos()));
+            statement.setLong(12, millis(report.getValidationNanos()));
+            statement.setInt(13, report.getChangeSetsApplied());
+            statement.setLong(14, report.getRowsAffected());
+            statement.executeUpdate();
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static long nanos(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
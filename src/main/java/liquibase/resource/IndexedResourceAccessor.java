@@ -0,0 +1,294 @@
+package liquibase.resource;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link ResourceAccessor} serving changelog lookups from an index of the class loader resources.
+ *
+ * The resources below a set of root prefixes (e.g. <code>db/</code>) are indexed once, on first use, by walking the
+ * directories and jar files holding these roots, along with the URL of each copy of the resources.  Lookups and directory
+ * listings (as used by <code>includeAll</code>) are then answered from the index without querying the class loader.  Streams
+ * are only opened when first read, so lookups matching several resources do not open the ones Liquibase discards.
+ *
+ * Paths outside of the roots, and roots located in containers which cannot be walked (e.g. application server virtual file
+ * systems), are delegated to a {@link ClassLoaderResourceAccessor}.  A single instance is meant to be shared by all the
+ * {@link liquibase.LiquibaseConfig} instances of an application, e.g. through a CDI producer.
+ *
+ * @author Eric Benzacar
+ */
+public class IndexedResourceAccessor implements ResourceAccessor {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(IndexedResourceAccessor.class);
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final ClassLoader classLoader;
+    private final List<String> roots = new ArrayList<>();
+    private final ClassLoaderResourceAccessor delegate;
+    private volatile Index index;
+
+    /**
+     * @param classLoader
+     * @param roots resource path prefixes of the changelogs, e.g. <code>db/changelog/</code>
+     */
+    public IndexedResourceAccessor(ClassLoader classLoader, String... roots) {
+        this.classLoader = classLoader;
+        for (String root : roots) {
+            this.roots.add(directory(normalize(root)));
+        }
+        this.delegate = new ClassLoaderResourceAccessor(classLoader);
+    }
+
+    @Override
+    public Set<InputStream> getResourcesAsStream(String path) throws IOException {
+        String resource = normalize(path);
+        Index index = getIndex();
+        if (!index.covers(resource)) {
+            return delegate.getResourcesAsStream(path);
+        }
+        List<URL> urls = index.resources.get(resource);
+        if (urls == null) {
+            return null;
+        }
+
+        Set<InputStream> streams = new LinkedHashSet<>();
+        for (URL url : urls) {
+            streams.add(new LazyInputStream(url));
+        }
+        return streams;
+    }
+
+    @Override
+    public Set<String> list(String relativeTo, String path, boolean includeFiles, boolean includeDirectories, boolean recursive) throws IOException {
+        String directory = directory(resolve(relativeTo, path));
+        Index index = getIndex();
+        if (!index.covers(directory)) {
+            return delegate.list(relativeTo, path, includeFiles, includeDirectories, recursive);
+        }
+
+        Set<String> result = new TreeSet<>();
+        for (String resource : index.resources.subMap(directory, true, directory + Character.MAX_VALUE, false).keySet()) {
+            String relative = resource.substring(directory.length());
+            int separator = relative.indexOf('/');
+            if (separator < 0) {
+                if (includeFiles) {
+                    result.add(resource);
+                }
+                continue;
+            }
+            if (includeDirectories) {
+                // every directory between the listed one and the resource
+                for (int end = separator; end >= 0 && (recursive || end == separator); end = relative.indexOf('/', end + 1)) {
+                    result.add(directory + relative.substring(0, end + 1));
+                }
+            }
+            if (includeFiles && recursive) {
+                result.add(resource);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    public ClassLoader toClassLoader() {
+        return classLoader;
+    }
+
+    private Index getIndex() throws IOException {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = buildIndex();
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Index buildIndex() throws IOException {
+        long started = System.nanoTime();
+        Index result = new Index();
+        for (String root : roots) {
+            boolean indexed = true;
+            Enumeration<URL> urls = classLoader.getResources(root);
+            while (urls.hasMoreElements()) {
+                indexed &= index(root, urls.nextElement(), result.resources);
+            }
+            if (indexed) {
+                result.roots.add(root);
+            } else {
+                logger.info("Resources below {} cannot be indexed, and are looked up through the class loader", root);
+            }
+        }
+        logger.debug("Indexed {} resources below {} in {} ms", result.resources.size(), result.roots, (System.nanoTime() - started) / 1000000);
+        return result;
+    }
+
+    /**
+     * @return false if the container of the url cannot be walked
+     */
+    private boolean index(String root, URL url, Map<String, List<URL>> resources) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            Path directory;
+            try {
+                directory = Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                return false;
+            }
+            List<Path> regularFiles;
+            try (Stream<Path> files = Files.walk(directory)) {
+                regularFiles = files.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            for (Path file : regularFiles) {
+                add(resources, root + directory.relativize(file).toString().replace('\\', '/'), file.toUri().toURL());
+            }
+            return true;
+        }
+
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            // the jar file is cached and shared by the JDK, so it must not be closed
+            JarFile jar = ((JarURLConnection) connection).getJarFile();
+            String jarUrl = "jar:" + ((JarURLConnection) connection).getJarFileURL().toExternalForm() + "!/";
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(root)) {
+                    add(resources, entry.getName(), new URL(jarUrl + entry.getName()));
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void add(Map<String, List<URL>> resources, String resource, URL url) {
+        List<URL> urls = resources.computeIfAbsent(resource, key -> new ArrayList<>(1));
+        // a container listed twice on the class path
+        if (!urls.contains(url)) {
+            urls.add(url);
+        }
+    }
+
+    private static String resolve(String relativeTo, String path) {
+        String resource = normalize(path);
+        if (relativeTo == null || path.startsWith("/") || path.startsWith(CLASSPATH_PREFIX)) {
+            return resource;
+        }
+        String base = normalize(relativeTo);
+        int separator = base.lastIndexOf('/');
+        return separator < 0 ? resource : base.substring(0, separator + 1) + resource;
+    }
+
+    private static String normalize(String path) {
+        String resource = path.replace('\\', '/');
+        if (resource.startsWith(CLASSPATH_PREFIX)) {
+            resource = resource.substring(CLASSPATH_PREFIX.length());
+        }
+        while (resource.startsWith("/")) {
+            resource = resource.substring(1);
+        }
+        return resource;
+    }
+
+    private static String directory(String path) {
+        return path.isEmpty() || path.endsWith("/") ? path : path + "/";
+    }
+
+    /**
+     * Resources below the roots which could be indexed, with the URLs of their copies in class path order
+     */
+    private static class Index {
+        private final Set<String> roots = new HashSet<>();
+        private final NavigableMap<String, List<URL>> resources = new TreeMap<>();
+
+        boolean covers(String path) {
+            for (String root : roots) {
+                if (path.startsWith(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Stream opening its resource on first use
+     */
+    private static class LazyInputStream extends InputStream {
+        private final URL url;
+        private InputStream in;
+        private boolean closed;
+
+        LazyInputStream(URL url) {
+            this.url = url;
+        }
+
+        private InputStream stream() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (in == null) {
+                in = url.openStream();
+            }
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return stream().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return stream().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return stream().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return stream().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
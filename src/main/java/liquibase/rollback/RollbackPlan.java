@@ -0,0 +1,207 @@
+package liquibase.rollback;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeLogHistoryService;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.RollbackImpossibleException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.RawSqlStatement;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Rollback SQL of the changesets about to be applied by an update, computed before the update starts, and used to revert the
+ * changesets applied by the update if it fails.
+ *
+ * Computing the plan fails if any changeset applied for the first time has neither an explicit rollback nor changes Liquibase
+ * can revert, so an update that could not be reverted does not even start.  Changesets running again (<code>runAlways</code>,
+ * <code>runOnChange</code>) are left out of the plan: reverting them would drop objects that existed before the update.
+ * The changeset that failed is only reverted when the database cannot roll back DDL, and on a best effort basis, since it
+ * may have been partially applied; so is a changeset which ran but could not be recorded in the DATABASECHANGELOG table.
+ * The <code>modifySql</code> visitors applying to rollbacks are applied to the plan, as Liquibase does for a manual rollback.
+ *
+ * @author Eric Benzacar
+ */
+public class RollbackPlan {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(RollbackPlan.class);
+
+    private final Map<ChangeSet, List<String>> sql;
+    private final List<ChangeSet> applied = new ArrayList<>();
+    private ChangeSet running;
+
+    private RollbackPlan(Map<ChangeSet, List<String>> sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @param pending changesets about to be applied, in execution order
+     * @param ranChangeSets changesets already recorded in the database
+     * @param database
+     * @return the plan
+     * @throws LiquibaseException listing the changesets that could not be reverted
+     */
+    public static RollbackPlan compute(List<ChangeSet> pending, Collection<RanChangeSet> ranChangeSets, Database database) throws LiquibaseException {
+        Map<ChangeSet, List<String>> plan = new IdentityHashMap<>();
+        List<String> impossible = new ArrayList<>();
+        for (ChangeSet changeSet : pending) {
+            if (ranChangeSets.stream().anyMatch(ran -> ran.isSameAs(changeSet))) {
+                continue;
+            }
+            try {
+                plan.put(changeSet, generate(changeSet, database));
+            } catch (RollbackImpossibleException e) {
+                impossible.add(changeSet.toString(false) + ": " + e.getMessage());
+            }
+        }
+        if (!impossible.isEmpty()) {
+            throw new LiquibaseException("Cannot roll back on failure, as " + impossible.size() + " pending changesets cannot be rolled back:\n     "
+                    + String.join("\n     ", impossible));
+        }
+        return new RollbackPlan(plan);
+    }
+
+    /**
+     * @param pending changesets about to be applied, in execution order
+     * @return the rollback SQL of each changeset of the plan, in execution order
+     */
+    public Map<String, List<String>> getSql(List<ChangeSet> pending) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (ChangeSet changeSet : pending) {
+            if (sql.containsKey(changeSet)) {
+                result.put(changeSet.toString(false), sql.get(changeSet));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return listener recording the changesets run by the update
+     */
+    public ChangeExecListener getListener() {
+        return new AbstractChangeExecListener() {
+            @Override
+            public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+                running = changeSet;
+            }
+
+            @Override
+            public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+                running = null;
+                if (execType == ChangeSet.ExecType.EXECUTED && sql.containsKey(changeSet)) {
+                    applied.add(changeSet);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reverts the changesets applied so far, most recent first, and removes them from the DATABASECHANGELOG table
+     * @param database
+     * @return number of changesets reverted
+     * @throws LiquibaseException if a changeset could not be reverted; the changesets before it remain applied
+     */
+    public int rollback(Database database) throws LiquibaseException {
+        Executor executor = ExecutorService.getInstance().getExecutor(database);
+        database.rollback();
+        // changesets are reported as run before being recorded and committed, so the last one may have failed in between
+        if (!applied.isEmpty() && !isRecorded(applied.get(applied.size() - 1), database)) {
+            running = applied.remove(applied.size() - 1);
+        }
+        if (running != null && sql.containsKey(running) && !database.supportsDDLInTransactions()) {
+            try {
+                execute(executor, running);
+                database.commit();
+            } catch (LiquibaseException e) {
+                database.rollback();
+                logger.warn("Could not roll back the failed changeset {}, which may have been partially applied: {}", running.toString(false), e.getMessage());
+            }
+        }
+        int count = 0;
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            ChangeSet changeSet = applied.get(i);
+            logger.info("Rolling back changeset {}", changeSet.toString(false));
+            execute(executor, changeSet);
+            database.removeRanStatus(changeSet);
+            database.commit();
+            count++;
+        }
+        applied.clear();
+        return count;
+    }
+
+    /**
+     * @return true if the changeset is recorded as run in the DATABASECHANGELOG table, as committed
+     */
+    private static boolean isRecorded(ChangeSet changeSet, Database database) throws LiquibaseException {
+        ChangeLogHistoryService historyService = ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database);
+        // the cached history already holds the changesets whose recording was rolled back
+        historyService.reset();
+        return historyService.getRanChangeSets().stream().anyMatch(ran -> ran.isSameAs(changeSet));
+    }
+
+    private void execute(Executor executor, ChangeSet changeSet) throws LiquibaseException {
+        for (String statement : sql.get(changeSet)) {
+            executor.execute(new RawSqlStatement(statement));
+        }
+    }
+
+    /**
+     * @return the rollback SQL of the changeset, from its explicit rollback if any, or from the inverse of its changes, modified
+     * by the visitors of the changeset applying to rollbacks
+     */
+    private static List<String> generate(ChangeSet changeSet, Database database) throws RollbackImpossibleException {
+        List<SqlStatement> statements = new ArrayList<>();
+        if (changeSet.getRollback() != null && !changeSet.getRollback().getChanges().isEmpty()) {
+            for (Change change : changeSet.getRollback().getChanges()) {
+                statements.addAll(Arrays.asList(change.generateStatements(database)));
+            }
+        } else {
+            List<Change> changes = new ArrayList<>(changeSet.getChanges());
+            // changes are reverted in reverse order
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                Change change = changes.get(i);
+                if (!change.supportsRollback(database)) {
+                    throw new RollbackImpossibleException("no rollback for " + change.getClass().getSimpleName());
+                }
+                statements.addAll(Arrays.asList(change.generateRollbackStatements(database)));
+            }
+        }
+        List<SqlVisitor> sqlVisitors = changeSet.getSqlVisitors().stream()
+                .filter(visitor -> visitor != null && visitor.isApplyToRollback())
+                .collect(Collectors.toList());
+        List<String> result = new ArrayList<>();
+        for (SqlStatement statement : statements) {
+            for (Sql sql : SqlGeneratorFactory.getInstance().generateSql(statement, database)) {
+                String finalSql = sql.toSql();
+                for (SqlVisitor visitor : sqlVisitors) {
+                    finalSql = visitor.modifySql(finalSql, database);
+                }
+                result.add(finalSql);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+package liquibase.strategy;
+
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.Executor;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+
+import java.util.List;
+
+/**
+ * Strategy deciding how the statements of the changesets of a {@link liquibase.LiquibaseConfig} are executed.
+ *
+ * Each statement Liquibase is about to execute is first offered to the strategy, which may execute it itself, typically as an
+ * online variant of the generated SQL, or leave it to Liquibase.  Statements executed by the strategy must go through the given
+ * executor, so they are logged and batched as any other statement.  Strategies do not apply to the SQL written in
+ * {@link liquibase.CDIBootstrapConfiguration.ExecutionMode#GENERATE_SQL} mode.
+ *
+ * @author Eric Benzacar
+ */
+public interface ExecutionStrategy {
+
+    /**
+     * @param statement statement about to be executed
+     * @param sqlVisitors <code>modifySql</code> visitors of the changeset, which must be applied to the SQL the strategy executes
+     * @param executor executor to run the replacement statements with
+     * @param database
+     * @return true if the strategy has executed the statement; false to let Liquibase execute it unchanged
+     * @throws DatabaseException
+     */
+    boolean execute(SqlStatement statement, List<SqlVisitor> sqlVisitors, Executor executor, Database database) throws DatabaseException;
+}
@@ -0,0 +1,47 @@
+package liquibase.strategy;
+
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.executor.jvm.StatementCallback;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+
+import java.util.List;
+
+/**
+ * {@link JdbcExecutor} offering each statement to an {@link ExecutionStrategy} before executing it.
+ *
+ * Statements the strategy does not handle, as well as all updates and queries, are executed by the executor this one replaced,
+ * so the strategy combines with {@link liquibase.batch.BatchingJdbcExecutor}.
+ *
+ * @author Eric Benzacar
+ */
+public class ExecutionStrategyJdbcExecutor extends JdbcExecutor {
+
+    private final JdbcExecutor target;
+    private final ExecutionStrategy strategy;
+
+    /**
+     * @param database
+     * @param target executor of the statements not handled by the strategy
+     * @param strategy
+     */
+    public ExecutionStrategyJdbcExecutor(Database database, JdbcExecutor target, ExecutionStrategy strategy) {
+        setDatabase(database);
+        this.target = target;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void execute(SqlStatement sql, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        if (!strategy.execute(sql, sqlVisitors, this, database)) {
+            target.execute(sql, sqlVisitors);
+        }
+    }
+
+    @Override
+    public Object execute(StatementCallback action, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        return target.execute(action, sqlVisitors);
+    }
+}
@@ -0,0 +1,262 @@
+package liquibase.strategy;
+
+import liquibase.database.Database;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.PostgresDatabase;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.executor.Executor;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.ColumnConstraint;
+import liquibase.statement.NotNullConstraint;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.AddColumnStatement;
+import liquibase.statement.core.AddDefaultValueStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.DropColumnStatement;
+import liquibase.statement.core.DropIndexStatement;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.statement.core.RenameColumnStatement;
+import liquibase.statement.core.SetNullableStatement;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Table;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link ExecutionStrategy} running DDL without blocking the writes to the altered tables, where the database supports it:
+ * <ul>
+ *     <li>on MySQL, column and index changes are run with <code>ALGORITHM=INPLACE, LOCK=NONE</code>; MySQL rejects the statement
+ *     rather than silently locking the table if the change cannot be made in place</li>
+ *     <li>on PostgreSQL, indexes are created with <code>CREATE INDEX CONCURRENTLY</code>.  This cannot run inside a transaction,
+ *     so it only applies to changesets with <code>runInTransaction="false"</code>; other index creations are left unchanged</li>
+ *     <li>on both, when a backfill chunk size is set, adding a <code>NOT NULL</code> column with a default value is split into
+ *     adding a nullable column, setting its default, filling the existing rows in chunks committed one at a time, and finally
+ *     adding the <code>NOT NULL</code> constraint.  The changeset is then no longer atomic, but the column is only added if it
+ *     does not exist yet and the backfill is idempotent, so a failed changeset can be fixed and run again</li>
+ * </ul>
+ * All other statements, and all statements on other databases, are executed unchanged.  The <code>modifySql</code> visitors of
+ * the changeset are applied to the generated SQL before it is rewritten.  The database is recognized by
+ * {@link #getDialect(Database)}, which subclasses may override to support MySQL or PostgreSQL compatible databases.
+ *
+ * @author Eric Benzacar
+ */
+public class OnlineDdlExecutionStrategy implements ExecutionStrategy {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(OnlineDdlExecutionStrategy.class);
+
+    /**
+     * Databases whose online DDL is supported
+     */
+    public enum Dialect {
+        MYSQL,
+        POSTGRES
+    }
+
+    private static final Pattern CREATE_INDEX = Pattern.compile("^\\s*CREATE\\s+(UNIQUE\\s+)?INDEX\\s", Pattern.CASE_INSENSITIVE);
+
+    private final int backfillChunkSize;
+
+    public OnlineDdlExecutionStrategy() {
+        this(0);
+    }
+
+    /**
+     * @param backfillChunkSize number of rows filled per chunk when adding a <code>NOT NULL</code> column with a default value,
+     *                          or 0 to add such columns unchanged
+     */
+    public OnlineDdlExecutionStrategy(int backfillChunkSize) {
+        this.backfillChunkSize = backfillChunkSize;
+    }
+
+    public int getBackfillChunkSize() {
+        return backfillChunkSize;
+    }
+
+    @Override
+    public boolean execute(SqlStatement statement, List<SqlVisitor> sqlVisitors, Executor executor, Database database) throws DatabaseException {
+        Dialect dialect = getDialect(database);
+        if (dialect == null) {
+            return false;
+        }
+        if (statement instanceof AddColumnStatement && isBackfilled((AddColumnStatement) statement)) {
+            backfill((AddColumnStatement) statement, sqlVisitors, executor, database, dialect);
+            return true;
+        }
+
+        List<String> rewritten = dialect == Dialect.MYSQL ? rewriteForMySQL(statement, sqlVisitors, database)
+                : rewriteForPostgres(statement, sqlVisitors, database);
+        if (rewritten == null) {
+            return false;
+        }
+        for (String sql : rewritten) {
+            logger.debug("Executing online: {}", sql);
+            executor.execute(new RawSqlStatement(sql));
+        }
+        return true;
+    }
+
+    /**
+     * @param database
+     * @return the dialect of the online DDL to run on the database, or null to execute all statements unchanged
+     */
+    protected Dialect getDialect(Database database) {
+        if (database instanceof MySQLDatabase) {
+            return Dialect.MYSQL;
+        }
+        if (database instanceof PostgresDatabase) {
+            return Dialect.POSTGRES;
+        }
+        return null;
+    }
+
+    /**
+     * @param statement
+     * @param sqlVisitors
+     * @param database
+     * @return the SQL of the statement run in place without locking the table, or null to execute it unchanged
+     */
+    protected List<String> rewriteForMySQL(SqlStatement statement, List<SqlVisitor> sqlVisitors, Database database) {
+        if (!(statement instanceof AddColumnStatement || statement instanceof DropColumnStatement || statement instanceof RenameColumnStatement
+                || statement instanceof CreateIndexStatement || statement instanceof DropIndexStatement)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String sql : generate(statement, sqlVisitors, database)) {
+            if (sql.trim().toUpperCase().startsWith("ALTER TABLE")) {
+                result.add(sql + ", ALGORITHM=INPLACE, LOCK=NONE");
+            } else {
+                // CREATE INDEX and DROP INDEX take the options without a separator
+                result.add(sql + " ALGORITHM=INPLACE LOCK=NONE");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param statement
+     * @param sqlVisitors
+     * @param database
+     * @return the SQL of the index creation run concurrently, or null to execute the statement unchanged
+     * @throws DatabaseException
+     */
+    protected List<String> rewriteForPostgres(SqlStatement statement, List<SqlVisitor> sqlVisitors, Database database) throws DatabaseException {
+        if (!(statement instanceof CreateIndexStatement)) {
+            return null;
+        }
+        // Database#getAutoCommitMode only reflects the DDL support of the database; the connection is in auto-commit mode for
+        // changesets with runInTransaction="false"
+        if (!database.getConnection().getAutoCommit()) {
+            logger.debug("Creating index {} in a transaction, so it cannot be created concurrently", ((CreateIndexStatement) statement).getIndexName());
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String sql : generate(statement, sqlVisitors, database)) {
+            Matcher matcher = CREATE_INDEX.matcher(sql);
+            result.add(matcher.find() ? matcher.replaceFirst("CREATE $1INDEX CONCURRENTLY ") : sql);
+        }
+        return result;
+    }
+
+    private boolean isBackfilled(AddColumnStatement statement) {
+        if (backfillChunkSize <= 0 || statement.isMultiple() || statement.getDefaultValue() == null) {
+            return false;
+        }
+        for (ColumnConstraint constraint : statement.getConstraints()) {
+            if (!(constraint instanceof NotNullConstraint)) {
+                // primary keys, unique and foreign keys cannot be added to a nullable column first
+                return false;
+            }
+        }
+        return !statement.isNullable();
+    }
+
+    /**
+     * Adds the column as nullable unless it exists already, fills the existing rows in committed chunks, then adds the constraint
+     */
+    private void backfill(AddColumnStatement statement, List<SqlVisitor> sqlVisitors, Executor executor, Database database,
+                          Dialect dialect) throws DatabaseException {
+        String catalog = statement.getCatalogName();
+        String schema = statement.getSchemaName();
+        String table = statement.getTableName();
+        String column = statement.getColumnName();
+        String type = statement.getColumnType();
+        Object defaultValue = statement.getDefaultValue();
+        String remarks = statement.getRemarks();
+
+        if (exists(catalog, schema, table, column, database)) {
+            logger.info("Column {}.{} exists already, resuming its backfill", table, column);
+        } else {
+            AddColumnStatement addColumn = new AddColumnStatement(catalog, schema, table, column, type, null, remarks);
+            addColumn.setAddAfterColumn(statement.getAddAfterColumn());
+            addColumn.setAddBeforeColumn(statement.getAddBeforeColumn());
+            addColumn.setAddAtPosition(statement.getAddAtPosition());
+            executor.execute(addColumn, sqlVisitors);
+        }
+        executor.execute(new AddDefaultValueStatement(catalog, schema, table, column, type, defaultValue), sqlVisitors);
+
+        String escapedTable = database.escapeTableName(catalog, schema, table);
+        String escapedColumn = database.escapeObjectName(column, Column.class);
+        String value = DataTypeFactory.getInstance().fromObject(defaultValue, database).objectToSql(defaultValue, database);
+        String sql = dialect == Dialect.MYSQL
+                ? "UPDATE " + escapedTable + " SET " + escapedColumn + " = " + value + " WHERE " + escapedColumn + " IS NULL LIMIT " + backfillChunkSize
+                : "UPDATE " + escapedTable + " SET " + escapedColumn + " = " + value + " WHERE ctid IN (SELECT ctid FROM " + escapedTable
+                        + " WHERE " + escapedColumn + " IS NULL LIMIT " + backfillChunkSize + ")";
+
+        long total = 0;
+        int updated;
+        do {
+            updated = executor.update(new RawSqlStatement(sql));
+            // release the row locks of each chunk, so concurrent writes only wait for a single chunk
+            database.commit();
+            total += updated;
+        } while (updated >= backfillChunkSize);
+        logger.info("Backfilled {} rows of {}.{}", total, table, column);
+
+        if (dialect == Dialect.MYSQL) {
+            // MODIFY redefines the whole column, so its default value and comment must be repeated
+            String dataType = DataTypeFactory.getInstance().fromDescription(type, database).toDatabaseDataType(database).toString();
+            executor.execute(new RawSqlStatement("ALTER TABLE " + escapedTable + " MODIFY " + escapedColumn + " " + dataType
+                    + " NOT NULL DEFAULT " + value + (remarks == null ? "" : " COMMENT '" + database.escapeStringForDatabase(remarks) + "'")), sqlVisitors);
+        } else {
+            executor.execute(new SetNullableStatement(catalog, schema, table, column, type, false), sqlVisitors);
+        }
+    }
+
+    private static boolean exists(String catalog, String schema, String table, String column, Database database) throws DatabaseException {
+        try {
+            return SnapshotGeneratorFactory.getInstance().has(new Column(Table.class, catalog, schema, table, column), database);
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * @return the SQL of the statement, modified by the visitors as {@link liquibase.executor.jvm.JdbcExecutor} does
+     */
+    private static List<String> generate(SqlStatement statement, List<SqlVisitor> sqlVisitors, Database database) {
+        List<String> result = new ArrayList<>();
+        for (Sql sql : SqlGeneratorFactory.getInstance().generateSql(statement, database)) {
+            String finalSql = sql.toSql();
+            if (sqlVisitors != null) {
+                for (SqlVisitor visitor : sqlVisitors) {
+                    if (visitor != null) {
+                        finalSql = visitor.modifySql(finalSql, database);
+                    }
+                }
+            }
+            result.add(finalSql);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package liquibase.table;
+
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Table;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Base class for the tables this integration maintains next to the
+ * {@link liquibase.configuration.GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME} table.
+ *
+ * Side tables live in the Liquibase schema and are named after the DATABASECHANGELOG table with a suffix, so they follow any
+ * custom table name.  They are accessed with plain JDBC on the connection of the {@link Database}, and created on first write.
+ *
+ * @author Eric Benzacar
+ */
+public abstract class AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(AbstractSideTable.class);
+
+    protected final Database database;
+
+    protected AbstractSideTable(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * @return suffix appended to the DATABASECHANGELOG table name to name this table
+     */
+    protected abstract String getTableSuffix();
+
+    /**
+     * @return the column and constraint definitions of the table, as used in its CREATE TABLE statement
+     */
+    protected abstract String getColumnDefinitions();
+
+    /**
+     * @return the escaped, fully qualified name of the table
+     */
+    public String getTableName() {
+        return database.escapeTableName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(),
+                database.getDatabaseChangeLogTableName() + getTableSuffix());
+    }
+
+    /**
+     * Checks the existence of the table through the database metadata rather than by querying it, so the check never fails
+     * the current transaction (as any failed statement does on PostgreSQL)
+     * @return true if the table exists
+     * @throws DatabaseException
+     */
+    public boolean exists() throws DatabaseException {
+        try {
+            return SnapshotGeneratorFactory.getInstance().has(new Table(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(),
+                    database.getDatabaseChangeLogTableName() + getTableSuffix()), database);
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    protected void createTable(Connection connection) throws SQLException {
+        logger.info("Creating table {}", getTableName());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + getTableName() + " (" + getColumnDefinitions() + ")");
+        }
+    }
+
+    /**
+     * @param description Liquibase type description, e.g. <code>VARCHAR(255)</code>
+     * @return the type for the current database
+     */
+    protected String type(String description) {
+        return DataTypeFactory.getInstance().fromDescription(description, database).toDatabaseDataType(database).toString();
+    }
+
+    protected Connection getConnection() {
+        return ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    }
+
+    protected void commit(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    protected void rollback(Connection connection) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not roll back", e);
+        }
+    }
+}
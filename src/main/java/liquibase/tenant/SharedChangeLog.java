@@ -0,0 +1,98 @@
+package liquibase.tenant;
+
+import liquibase.cache.ChangeLogCache;
+import liquibase.cache.ParsedNodeCodec;
+import liquibase.parser.core.ParsedNode;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Parsed changelog files shared by all the targets of a template {@link liquibase.LiquibaseConfig}.
+ *
+ * Only the parameter independent part of the parse is shared: the {@link ParsedNode} trees of the XML files without
+ * <code>${...}</code> expressions, as cached by {@link liquibase.cache.CachingXMLChangeLogParser}.  Each target still builds its own
+ * {@link liquibase.changelog.DatabaseChangeLog} from these trees, with its own changelog parameters, so expressions such as
+ * <code>${database.defaultSchemaName}</code> expand to the schema and database of each target, and the changesets of a target are
+ * never touched by the migration of another.  Trees are kept encoded, and decoded for each use.
+ *
+ * @author Eric Benzacar
+ */
+public class SharedChangeLog {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(SharedChangeLog.class);
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param fallback cache of the session, used for the files not parsed by any target yet, or null
+     * @return cache serving the files parsed by the other targets first
+     */
+    public ChangeLogCache over(ChangeLogCache fallback) {
+        return new SharedCache(fallback);
+    }
+
+    /**
+     * @return number of files shared
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * View of the shared entries, backed by the cache of a session
+     */
+    private class SharedCache extends ChangeLogCache {
+        private final ChangeLogCache fallback;
+
+        SharedCache(ChangeLogCache fallback) {
+            super(fallback == null ? null : fallback.getDirectory());
+            this.fallback = fallback;
+        }
+
+        @Override
+        public ParsedNode get(String key) {
+            byte[] entry = entries.get(key);
+            if (entry != null) {
+                try {
+                    return ParsedNodeCodec.read(new DataInputStream(new ByteArrayInputStream(entry)));
+                } catch (IOException e) {
+                    logger.warn("Discarding unreadable shared changelog entry {}: {}", key, e.getMessage());
+                    entries.remove(key);
+                }
+            }
+            ParsedNode node = fallback == null ? null : fallback.get(key);
+            if (node != null) {
+                share(key, node);
+            }
+            return node;
+        }
+
+        @Override
+        public void put(String key, ParsedNode node) {
+            share(key, node);
+            if (fallback != null) {
+                fallback.put(key, node);
+            }
+        }
+
+        private void share(String key, ParsedNode node) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                ParsedNodeCodec.write(node, out);
+            } catch (IOException e) {
+                logger.debug("Could not share changelog entry {}: {}", key, e.getMessage());
+                return;
+            }
+            entries.putIfAbsent(key, bytes.toByteArray());
+        }
+    }
+}
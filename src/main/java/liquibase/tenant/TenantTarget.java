@@ -0,0 +1,38 @@
+package liquibase.tenant;
+
+import javax.sql.DataSource;
+
+/**
+ * Database schema a template {@link liquibase.LiquibaseConfig} is applied to (see {@link liquibase.LiquibaseConfig#setTargets})
+ *
+ * @author Eric Benzacar
+ */
+public class TenantTarget {
+
+    private final String name;
+    private final DataSource dataSource;
+    private final String defaultSchema;
+
+    /**
+     * @param name identifies the tenant in logs and reports
+     * @param dataSource of the tenant, or null to use the one of the template
+     * @param defaultSchema of the tenant, or null to use the one of the template
+     */
+    public TenantTarget(String name, DataSource dataSource, String defaultSchema) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.defaultSchema = defaultSchema;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public String getDefaultSchema() {
+        return defaultSchema;
+    }
+}
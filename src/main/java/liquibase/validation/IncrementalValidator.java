@@ -0,0 +1,357 @@
+package liquibase.validation;
+
+import liquibase.CDILiquibaseSession;
+import liquibase.cache.ResourceDigest;
+import liquibase.change.CheckSum;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.filter.ChangeSetFilter;
+import liquibase.changelog.filter.ContextChangeSetFilter;
+import liquibase.changelog.filter.DbmsChangeSetFilter;
+import liquibase.changelog.filter.LabelChangeSetFilter;
+import liquibase.exception.LiquibaseException;
+import liquibase.fingerprint.ChangeLogFingerprint;
+import liquibase.resource.ResourceAccessor;
+import liquibase.table.AbstractSideTable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Validates that all changesets of a changelog have been applied, looking only at what changed since the last successful
+ * validation.
+ *
+ * After each successful validation, the digest of every resource the changelog was built from and a high-water mark of the
+ * {@link liquibase.configuration.GlobalConfiguration#DATABASECHANGELOG_TABLE_NAME} table (number of rows, highest
+ * <code>ORDEREXECUTED</code> and a digest of the <code>ID</code>, <code>AUTHOR</code> and <code>FILENAME</code> of the rows up to
+ * it) are recorded in a side table (<code>DATABASECHANGELOGVALIDATION</code> by default).  The state is kept per changelog and
+ * scope, i.e. the contexts, labels and database type the changesets were filtered with.  The next validation then only compares
+ * the changesets of the files whose digest changed with the DATABASECHANGELOG rows of those files.  A full validation is
+ * performed instead when there is no previous state for the scope, when rows recorded by the last validation were removed or
+ * altered, or when a changed resource does not hold any changeset (e.g. a file referenced by <code>sqlFile</code>, or a changelog
+ * only including others).
+ *
+ * @author Eric Benzacar
+ */
+public class IncrementalValidator extends AbstractSideTable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(IncrementalValidator.class);
+
+    private final CDILiquibaseSession session;
+    private final ResourceAccessor resourceAccessor;
+    private final String changeLog;
+    private final String scope;
+
+    public IncrementalValidator(CDILiquibaseSession session, ResourceAccessor resourceAccessor) {
+        super(session.getDatabase());
+        this.session = session;
+        this.resourceAccessor = resourceAccessor;
+        this.changeLog = session.getConfig().getChangeLog();
+        String description = "contexts=" + session.getContexts() + ";labels=" + session.getLabelExpression() + ";dbms=" + database.getShortName();
+        this.scope = ResourceDigest.sha256(description.getBytes(StandardCharsets.UTF_8));
+        logger.debug("Validation scope of changelog {} is {} ({})", changeLog, scope, description);
+    }
+
+    /**
+     * @return list of any changeSets in the changelog that haven't been applied in the DB
+     * @throws LiquibaseException
+     */
+    public List<ChangeSet> listUnrunChangeSets() throws LiquibaseException {
+        long[] mark = readMark();
+        State state = mark == null ? null : read();
+        if (state == null) {
+            logger.info("Performing a full validation of changelog {}", changeLog);
+            return validateFully();
+        }
+        if (mark[0] < state.changeSets || !Objects.equals(state.rowsDigest, readRowsDigest(state.orderExecuted))) {
+            logger.info("Performing a full validation of changelog {}, as applied changesets were removed or altered", changeLog);
+            return validateFully();
+        }
+
+        SortedMap<String, String> digests = digests(ChangeLogFingerprint.roots(state.digests.keySet()));
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> digest : digests.entrySet()) {
+            if (!Objects.equals(digest.getValue(), state.digests.get(digest.getKey()))) {
+                changed.add(digest.getKey());
+            }
+        }
+        if (changed.isEmpty()) {
+            logger.info("Changelog {} is unchanged since its last validation", changeLog);
+            if (mark[0] != state.changeSets || mark[1] != state.orderExecuted) {
+                record(digests, mark);
+            }
+            return new ArrayList<>();
+        }
+
+        // changesets of the changed files, restricted to the ones applicable to this database
+        DatabaseChangeLog databaseChangeLog = session.getDatabaseChangeLog();
+        List<ChangeSetFilter> filters = Arrays.asList(
+                new ContextChangeSetFilter(session.getContexts()),
+                new LabelChangeSetFilter(session.getLabelExpression()),
+                new DbmsChangeSetFilter(database));
+        Set<String> covered = new TreeSet<>();
+        covered.add(ChangeLogFingerprint.normalize(changeLog));
+        Map<String, List<ChangeSet>> changeSetsByFile = new LinkedHashMap<>();
+        for (ChangeSet changeSet : databaseChangeLog.getChangeSets()) {
+            String file = ChangeLogFingerprint.normalize(changeSet.getFilePath());
+            covered.add(file);
+            if (changed.contains(file) && !changeSet.isIgnore() && accepts(filters, changeSet)) {
+                changeSetsByFile.computeIfAbsent(file, key -> new ArrayList<>()).add(changeSet);
+            }
+        }
+        if (!covered.containsAll(changed)) {
+            changed.removeAll(covered);
+            logger.info("Performing a full validation of changelog {}, as {} changed", changeLog, changed);
+            return validateFully();
+        }
+
+        logger.info("Validating the {} changed files of changelog {}", changed.size(), changeLog);
+        List<ChangeSet> unrun = new ArrayList<>();
+        List<String> invalidCheckSums = new ArrayList<>();
+        try (PreparedStatement statement = getConnection().prepareStatement("SELECT ID, AUTHOR, MD5SUM FROM " + getDatabaseChangeLogTableName() + " WHERE FILENAME = ? OR FILENAME = ?")) {
+            for (Map.Entry<String, List<ChangeSet>> file : changeSetsByFile.entrySet()) {
+                Map<String, String> checkSums = new HashMap<>();
+                statement.setString(1, file.getKey());
+                statement.setString(2, "classpath:" + file.getKey());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        checkSums.put(resultSet.getString(1) + "::" + resultSet.getString(2), resultSet.getString(3));
+                    }
+                }
+
+                // same rules as the ShouldRunChangeSetFilter used by a full validation
+                for (ChangeSet changeSet : file.getValue()) {
+                    String key = changeSet.getId() + "::" + changeSet.getAuthor();
+                    if (!checkSums.containsKey(key) || changeSet.shouldAlwaysRun()) {
+                        unrun.add(changeSet);
+                    } else if (checkSums.get(key) != null && !changeSet.isCheckSumValid(CheckSum.parse(checkSums.get(key)))) {
+                        if (changeSet.shouldRunOnChange()) {
+                            unrun.add(changeSet);
+                        } else {
+                            invalidCheckSums.add(changeSet.toString(false));
+                        }
+                    }
+                }
+            }
+            commit(getConnection());
+        } catch (SQLException e) {
+            rollback(getConnection());
+            throw new LiquibaseException("Could not read the changesets applied from " + changed, e);
+        }
+
+        if (!invalidCheckSums.isEmpty()) {
+            throw new LiquibaseException("Checksums of changesets already applied have changed: " + invalidCheckSums);
+        }
+        if (unrun.isEmpty()) {
+            record(digests, mark);
+        }
+        return unrun;
+    }
+
+    @Override
+    protected String getTableSuffix() {
+        return "VALIDATION";
+    }
+
+    @Override
+    protected String getColumnDefinitions() {
+        return "ID " + type("VARCHAR(255)") + " NOT NULL, "
+                + "SCOPE " + type("VARCHAR(64)") + " NOT NULL, "
+                + "FILENAME " + type("VARCHAR(255)") + " NOT NULL, "
+                + "DIGEST " + type("VARCHAR(64)") + ", "
+                + "CHANGESETS " + type("BIGINT") + " NOT NULL, "
+                + "ORDEREXECUTED " + type("BIGINT") + " NOT NULL, "
+                + "ROWSDIGEST " + type("VARCHAR(64)") + " NOT NULL, "
+                + "DATEUPDATED " + type("datetime") + ", "
+                + "PRIMARY KEY (ID, SCOPE, FILENAME)";
+    }
+
+    /**
+     * Validates the whole changelog through the session, and records the state of a successful validation
+     */
+    private List<ChangeSet> validateFully() throws LiquibaseException {
+        List<ChangeSet> unrun = session.listUnrunChangeSets();
+        long[] mark = readMark();
+        if (unrun.isEmpty() && mark != null) {
+            record(digests(ChangeLogFingerprint.roots(changeLog, session.getDatabaseChangeLog())), mark);
+        }
+        return unrun;
+    }
+
+    private SortedMap<String, String> digests(Set<String> roots) throws LiquibaseException {
+        try {
+            return ChangeLogFingerprint.digests(resourceAccessor, roots);
+        } catch (IOException e) {
+            throw new LiquibaseException("Could not read the resources of changelog " + changeLog, e);
+        }
+    }
+
+    /**
+     * @return the number of rows and highest ORDEREXECUTED of the DATABASECHANGELOG table, or null if it cannot be read
+     */
+    private long[] readMark() {
+        Connection connection = getConnection();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), MAX(ORDEREXECUTED) FROM " + getDatabaseChangeLogTableName())) {
+            resultSet.next();
+            long[] mark = {resultSet.getLong(1), resultSet.getLong(2)};
+            commit(connection);
+            return mark;
+        } catch (SQLException e) {
+            logger.debug("Could not read the DATABASECHANGELOG table: {}", e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    /**
+     * Rows applied later have a higher ORDEREXECUTED, so the digest up to the recorded mark only changes when rows it covered
+     * were removed or altered (including changesets run again, which get a new ORDEREXECUTED)
+     * @param orderExecuted
+     * @return digest of the ID, AUTHOR and FILENAME of the DATABASECHANGELOG rows up to the ORDEREXECUTED, or null if they cannot be read
+     */
+    private String readRowsDigest(long orderExecuted) {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT ID, AUTHOR, FILENAME FROM " + getDatabaseChangeLogTableName()
+                + " WHERE ORDEREXECUTED <= ? ORDER BY ID, AUTHOR, FILENAME")) {
+            statement.setLong(1, orderExecuted);
+            MessageDigest digest = ResourceDigest.newDigest();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    for (int i = 1; i <= 3; i++) {
+                        String value = resultSet.getString(i);
+                        if (value != null) {
+                            digest.update(value.getBytes(StandardCharsets.UTF_8));
+                        }
+                        digest.update((byte) 0);
+                    }
+                }
+            }
+            commit(connection);
+            return ResourceDigest.toHex(digest.digest());
+        } catch (SQLException e) {
+            logger.debug("Could not read the DATABASECHANGELOG table: {}", e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    /**
+     * @return the state recorded by the last successful validation of the scope, or null if there is none
+     */
+    private State read() {
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT FILENAME, DIGEST, CHANGESETS, ORDEREXECUTED, ROWSDIGEST FROM " + getTableName()
+                + " WHERE ID = ? AND SCOPE = ?")) {
+            statement.setString(1, changeLog);
+            statement.setString(2, scope);
+            State state = new State();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    state.digests.put(resultSet.getString(1), resultSet.getString(2));
+                    state.changeSets = resultSet.getLong(3);
+                    state.orderExecuted = resultSet.getLong(4);
+                    state.rowsDigest = resultSet.getString(5);
+                }
+            }
+            commit(connection);
+            return state.digests.isEmpty() ? null : state;
+        } catch (SQLException e) {
+            logger.debug("No validation state available: {}", e.getMessage());
+            rollback(connection);
+            return null;
+        }
+    }
+
+    private void record(SortedMap<String, String> digests, long[] mark) throws LiquibaseException {
+        String rowsDigest = readRowsDigest(mark[1]);
+        if (rowsDigest == null) {
+            logger.debug("Not recording the validation state of changelog {}", changeLog);
+            return;
+        }
+        Connection connection = getConnection();
+        try {
+            write(connection, digests, mark, rowsDigest);
+        } catch (SQLException e) {
+            rollback(connection);
+            // most likely the table does not exist yet
+            try {
+                createTable(connection);
+                write(connection, digests, mark, rowsDigest);
+            } catch (SQLException ex) {
+                rollback(connection);
+                ex.addSuppressed(e);
+                throw new LiquibaseException("Could not record the validation state of changelog " + changeLog, ex);
+            }
+        }
+        logger.debug("Recorded the validation state of the {} files of changelog {}", digests.size(), changeLog);
+    }
+
+    private void write(Connection connection, SortedMap<String, String> digests, long[] mark, String rowsDigest) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + getTableName() + " WHERE ID = ? AND SCOPE = ?")) {
+            delete.setString(1, changeLog);
+            delete.setString(2, scope);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + getTableName()
+                + " (ID, SCOPE, FILENAME, DIGEST, CHANGESETS, ORDEREXECUTED, ROWSDIGEST, DATEUPDATED) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (Map.Entry<String, String> digest : digests.entrySet()) {
+                insert.setString(1, changeLog);
+                insert.setString(2, scope);
+                insert.setString(3, digest.getKey());
+                insert.setString(4, digest.getValue());
+                insert.setLong(5, mark[0]);
+                insert.setLong(6, mark[1]);
+                insert.setString(7, rowsDigest);
+                insert.setTimestamp(8, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        commit(connection);
+    }
+
+    private String getDatabaseChangeLogTableName() {
+        return database.escapeTableName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), database.getDatabaseChangeLogTableName());
+    }
+
+    private static boolean accepts(List<ChangeSetFilter> filters, ChangeSet changeSet) {
+        for (ChangeSetFilter filter : filters) {
+            if (!filter.accepts(changeSet).isAccepted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * State recorded by the last successful validation
+     */
+    private static class State {
+        private final Map<String, String> digests = new HashMap<>();
+        private long changeSets;
+        private long orderExecuted;
+        private String rowsDigest;
+    }
+}
@@ -0,0 +1,213 @@
+package liquibase.watchdog;
+
+import liquibase.LiquibaseConfig;
+import liquibase.LiquibaseMigrationExecutor;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.MigrationTimeoutException;
+import liquibase.jdbc.StatementTrackingConnection;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Watches the running migrations: logs the changesets running for longer than a threshold, and cancels the migrations
+ * exceeding their timeout.
+ *
+ * Cancelling a migration cancels the JDBC statements it is executing with {@link Statement#cancel()}, which makes the
+ * changeset fail; Liquibase then rolls it back and the changelog lock is released as for any other failure.  Only migrations
+ * blocked in the database can be cancelled this way, which covers the usual case of DDL waiting on a lock held by another
+ * application.
+ *
+ * @author Eric Benzacar
+ */
+public class MigrationWatchdog implements AutoCloseable {
+    // get a static slf4j logger for the class
+    protected static final Logger logger = getLogger(MigrationWatchdog.class);
+
+    private static final long TICK_MILLIS = 1000;
+
+    private final long timeoutNanos;
+    private final long globalTimeoutNanos;
+    private final long globalStarted = System.nanoTime();
+    private final long slowChangeSetNanos;
+    private final boolean cancellable;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param timeoutSeconds maximum duration of each migration, or 0 for no limit
+     * @param globalTimeoutSeconds maximum duration of all migrations, counted from now, or 0 for no limit
+     * @param slowChangeSetSeconds duration after which a running changeset is reported, or 0 to not report any
+     */
+    public MigrationWatchdog(int timeoutSeconds, int globalTimeoutSeconds, int slowChangeSetSeconds) {
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        this.globalTimeoutNanos = TimeUnit.SECONDS.toNanos(globalTimeoutSeconds);
+        this.slowChangeSetNanos = TimeUnit.SECONDS.toNanos(slowChangeSetSeconds);
+        this.cancellable = timeoutSeconds > 0 || globalTimeoutSeconds > 0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "liquibase-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param timeoutSeconds maximum duration of each migration, or 0 for no limit
+     * @param globalTimeoutSeconds maximum duration of all migrations, counted from now, or 0 for no limit
+     * @param slowChangeSetSeconds duration after which a running changeset is reported, or 0 to not report any
+     * @return a new watchdog, or null if there is nothing to watch, so no thread is started
+     */
+    public static MigrationWatchdog create(int timeoutSeconds, int globalTimeoutSeconds, int slowChangeSetSeconds) {
+        if (timeoutSeconds <= 0 && globalTimeoutSeconds <= 0 && slowChangeSetSeconds <= 0) {
+            return null;
+        }
+        return new MigrationWatchdog(timeoutSeconds, globalTimeoutSeconds, slowChangeSetSeconds);
+    }
+
+    /**
+     * Starts watching the migration of the config
+     * @param config
+     * @return the watch, to be closed once the migration has completed
+     */
+    public Watch watch(LiquibaseConfig config) {
+        Watch watch = new Watch(LiquibaseMigrationExecutor.describe(config));
+        watches.add(watch);
+        return watch;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void check() {
+        for (Watch watch : watches) {
+            try {
+                watch.check();
+            } catch (RuntimeException e) {
+                logger.warn("Could not check migration {}", watch.description, e);
+            }
+        }
+    }
+
+    /**
+     * Watch over the migration of a single config
+     */
+    public class Watch implements AutoCloseable {
+        private final String description;
+        private final long started = System.nanoTime();
+        private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+        private volatile ChangeSet changeSet;
+        private volatile long changeSetStarted;
+        private volatile long nextSlowReport;
+        private volatile String cancellation;
+
+        private Watch(String description) {
+            this.description = description;
+        }
+
+        /**
+         * @param connection
+         * @return the connection to use for the migration, whose statements can be cancelled by the watchdog
+         */
+        public Connection track(Connection connection) {
+            return cancellable ? StatementTrackingConnection.wrap(connection, running, null) : connection;
+        }
+
+        /**
+         * @return listener reporting the running changeset to the watchdog
+         */
+        public ChangeExecListener getListener() {
+            return new AbstractChangeExecListener() {
+                @Override
+                public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+                    changeSetStarted = System.nanoTime();
+                    nextSlowReport = slowChangeSetNanos;
+                    Watch.this.changeSet = changeSet;
+                }
+
+                @Override
+                public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+                    Watch.this.changeSet = null;
+                }
+
+                @Override
+                public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+                    Watch.this.changeSet = null;
+                }
+            };
+        }
+
+        public boolean isCancelled() {
+            return cancellation != null;
+        }
+
+        /**
+         * @param cause the failure of the migration
+         * @return exception reporting why and where the migration was cancelled
+         */
+        public MigrationTimeoutException timeoutException(Throwable cause) {
+            return new MigrationTimeoutException(String.format("Migration of %s was cancelled after %d s because %s", description,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started), cancellation), cause);
+        }
+
+        @Override
+        public void close() {
+            watches.remove(this);
+        }
+
+        private void check() {
+            long now = System.nanoTime();
+            ChangeSet current = changeSet;
+            if (current != null && slowChangeSetNanos > 0 && now - changeSetStarted >= nextSlowReport) {
+                logger.warn("Changeset {} of {} has been running for {} s", current.toString(false), description,
+                        TimeUnit.NANOSECONDS.toSeconds(now - changeSetStarted));
+                // report again at twice the duration, so a long changeset does not flood the log
+                nextSlowReport *= 2;
+            }
+            if (cancellation == null && timeoutNanos > 0 && now - started > timeoutNanos) {
+                cancel("its timeout of " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s expired");
+            } else if (cancellation == null && globalTimeoutNanos > 0 && now - globalStarted > globalTimeoutNanos) {
+                // also covers the migrations started after the global timeout expired
+                cancel("the global timeout of " + TimeUnit.NANOSECONDS.toSeconds(globalTimeoutNanos) + " s expired");
+            } else if (cancellation != null && current != null) {
+                // the changeset went on with another statement after the previous one was cancelled
+                cancelStatements();
+            }
+        }
+
+        private void cancel(String reason) {
+            if (cancellation == null) {
+                cancellation = reason;
+                ChangeSet current = changeSet;
+                logger.error("Cancelling the migration of {} because {}; {} statement(s) running{}", description, reason, running.size(),
+                        current == null ? "" : " in changeset " + current.toString(false));
+                cancelStatements();
+            }
+        }
+
+        private void cancelStatements() {
+            for (Statement statement : running) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    logger.warn("Could not cancel a statement of {}", description, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package liquibase;
+
+import liquibase.annotation.LiquibaseType;
+import liquibase.instrumentation.LiquibaseInstrumentation;
+import org.jboss.weld.environment.se.Weld;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.enterprise.inject.Produces;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class CDILiquibaseBootstrapTest {
+
+    private Weld weld;
+
+    @Before
+    public void setUp() {
+        weld = new Weld().disableDiscovery().beanClasses(InstrumentationProducer.class);
+        weld.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        weld.shutdown();
+    }
+
+    @Test
+    public void findsTheInstrumentationsOfInitAndLiveConfigs() {
+        List<LiquibaseInstrumentation> instrumentations = CDILiquibaseBootstrap.findInstrumentationBeans();
+        assertEquals(2, instrumentations.size());
+        assertTrue(instrumentations.contains(InstrumentationProducer.INIT));
+        assertTrue(instrumentations.contains(InstrumentationProducer.LIVE));
+    }
+
+    /**
+     * Produces an instrumentation for each qualifier, and an unqualified one which must be ignored
+     */
+    public static class InstrumentationProducer {
+        static final LiquibaseInstrumentation INIT = new LiquibaseInstrumentation() {
+        };
+        static final LiquibaseInstrumentation LIVE = new LiquibaseInstrumentation() {
+        };
+
+        @Produces
+        @LiquibaseType(init = true)
+        public LiquibaseInstrumentation init() {
+            return INIT;
+        }
+
+        @Produces
+        @LiquibaseType
+        public LiquibaseInstrumentation live() {
+            return LIVE;
+        }
+
+        @Produces
+        public LiquibaseInstrumentation unqualified() {
+            return new LiquibaseInstrumentation() {
+            };
+        }
+    }
+}
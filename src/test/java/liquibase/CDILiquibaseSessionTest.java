@@ -0,0 +1,149 @@
+package liquibase;
+
+import liquibase.database.Database;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class CDILiquibaseSessionTest {
+
+    private static final String CHANGELOG = "session/changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private LiquibaseConfig config;
+
+    @Before
+    public void setUp() {
+        config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+    }
+
+    @Test
+    public void updateAppliesPendingChangeSets() throws Exception {
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            assertEquals(2, session.listUnrunChangeSets().size());
+            session.update();
+            assertTrue(session.listUnexpectedChangeSets().isEmpty());
+        }
+        try (CDILiquibaseSession session = openSession(hsql.openDatabase())) {
+            assertTrue(session.listUnrunChangeSets().isEmpty());
+        }
+    }
+
+    @Test
+    public void updateRecordsADeploymentId() throws Exception {
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            session.update();
+        }
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT DISTINCT DEPLOYMENT_ID FROM DATABASECHANGELOG")) {
+            assertTrue(resultSet.next());
+            assertNotNull(resultSet.getString(1));
+            assertFalse(resultSet.next());
+        }
+    }
+
+    @Test
+    public void validationOnlyReadsTheLiquibaseTables() throws Exception {
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            assertEquals(2, session.listUnrunChangeSets().size());
+            assertTrue(session.listUnexpectedChangeSets().isEmpty());
+        }
+        try (Connection connection = hsql.openConnection()) {
+            assertFalse(exists(connection, "DATABASECHANGELOG"));
+            assertFalse(exists(connection, "DATABASECHANGELOGLOCK"));
+        }
+    }
+
+    @Test
+    public void validationUpgradesMissingChecksumsUnderTheLock() throws Exception {
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            session.update();
+        }
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE DATABASECHANGELOG SET MD5SUM = NULL");
+            connection.commit();
+        }
+        try (CDILiquibaseSession session = openSession(hsql.openDatabase())) {
+            assertTrue(session.listUnrunChangeSets().isEmpty());
+        }
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM DATABASECHANGELOG WHERE MD5SUM IS NULL")) {
+                resultSet.next();
+                assertEquals(0, resultSet.getInt(1));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT LOCKED FROM DATABASECHANGELOGLOCK")) {
+                resultSet.next();
+                assertFalse(resultSet.getBoolean(1));
+            }
+        }
+    }
+
+    @Test
+    public void closeReleasesTheServicesOfTheDatabase() throws Exception {
+        Database database = hsql.getDatabase();
+        Executor executor;
+        try (CDILiquibaseSession session = openSession(database)) {
+            session.enableBatching(10);
+            executor = ExecutorService.getInstance().getExecutor(database);
+            session.update();
+        }
+        assertNotSame(executor, ExecutorService.getInstance().getExecutor(database));
+        ExecutorService.getInstance().clearExecutor(database);
+    }
+
+    @Test
+    public void generateSqlLeavesTheDatabaseAndOtherExecutorsUntouched() throws Exception {
+        Database other = hsql.openDatabase();
+        Executor otherExecutor = ExecutorService.getInstance().getExecutor(other);
+
+        StringWriter output = new StringWriter();
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            session.generateSql(output);
+        }
+        assertTrue(output.toString(), output.toString().contains("Update Database Script"));
+        assertTrue(output.toString(), output.toString().contains("CREATE TABLE PUBLIC.PERSON"));
+        assertTrue(output.toString(), output.toString().contains("INSERT INTO PUBLIC.PERSON"));
+        try (Connection connection = hsql.openConnection();
+             ResultSet tables = connection.getMetaData().getTables(null, "PUBLIC", "PERSON", null)) {
+            assertFalse(tables.next());
+        }
+
+        assertSame(otherExecutor, ExecutorService.getInstance().getExecutor(other));
+        // the script did not leave the changesets recorded as applied
+        try (CDILiquibaseSession session = openSession(other)) {
+            assertEquals(2, session.listUnrunChangeSets().size());
+        }
+    }
+
+    private static boolean exists(Connection connection, String table) throws Exception {
+        try (ResultSet tables = connection.getMetaData().getTables(null, "PUBLIC", table, null)) {
+            return tables.next();
+        }
+    }
+
+    private CDILiquibaseSession openSession(Database database) throws Exception {
+        return new CDILiquibaseSession(config, new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database));
+    }
+}
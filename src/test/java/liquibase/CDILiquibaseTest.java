@@ -0,0 +1,79 @@
+package liquibase;
+
+import liquibase.configuration.LiquibaseConfiguration;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class CDILiquibaseTest {
+
+    private static final String CHANGELOG = "session/changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private LiquibaseConfig config;
+
+    @Before
+    public void setUp() {
+        config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        config.setDataSource(hsql.getDataSource());
+        config.setUseChangeLogFingerprint(true);
+    }
+
+    @After
+    public void tearDown() {
+        LiquibaseConfiguration.getInstance().reset();
+    }
+
+    @Test
+    public void validationDoesNotRecordTheFingerprint() throws Exception {
+        startup(CDIBootstrapConfiguration.ExecutionMode.UPDATE);
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE DATABASECHANGELOGFINGERPRINT");
+        }
+
+        CDILiquibase liquibase = startup(CDIBootstrapConfiguration.ExecutionMode.VALIDATE);
+        assertTrue(liquibase.isExecutionSuccessful());
+        try (Connection connection = hsql.openConnection()) {
+            assertFalse(exists(connection, "DATABASECHANGELOGFINGERPRINT"));
+        }
+    }
+
+    @Test
+    public void updateRecordsTheFingerprint() throws Exception {
+        CDILiquibase liquibase = startup(CDIBootstrapConfiguration.ExecutionMode.UPDATE);
+        assertTrue(liquibase.isExecutionSuccessful());
+        try (Connection connection = hsql.openConnection()) {
+            assertTrue(exists(connection, "DATABASECHANGELOGFINGERPRINT"));
+        }
+    }
+
+    private CDILiquibase startup(CDIBootstrapConfiguration.ExecutionMode executionMode) {
+        LiquibaseConfiguration.getInstance().getConfiguration(CDIBootstrapConfiguration.class)
+                .getProperty(CDIBootstrapConfiguration.EXECUTION_MODE).setValue(executionMode.name());
+        CDILiquibase liquibase = new CDILiquibase(config, config.getDataSource(), new ClassLoaderResourceAccessor());
+        liquibase.onStartup();
+        return liquibase;
+    }
+
+    private static boolean exists(Connection connection, String table) throws Exception {
+        try (ResultSet tables = connection.getMetaData().getTables(null, "PUBLIC", table, null)) {
+            return tables.next();
+        }
+    }
+}
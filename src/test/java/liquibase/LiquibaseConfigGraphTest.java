@@ -0,0 +1,95 @@
+package liquibase;
+
+import liquibase.exception.LiquibaseException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Eric Benzacar
+ */
+public class LiquibaseConfigGraphTest {
+
+    @Test
+    public void liveConfigsDependOnEveryInitConfigByDefault() throws Exception {
+        LiquibaseConfig init1 = config("init1");
+        LiquibaseConfig init2 = config("init2");
+        LiquibaseConfig live1 = config("live1");
+        LiquibaseConfig live2 = config("live2");
+
+        LiquibaseConfigGraph graph = LiquibaseConfigGraph.build(Arrays.asList(init1, init2), Arrays.asList(live1, live2));
+
+        assertEquals(Arrays.asList(init1, init2, live1, live2), graph.getConfigs());
+        assertTrue(graph.getDependencies(init1).isEmpty());
+        assertTrue(graph.getDependencies(init2).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(init1, init2)), graph.getDependencies(live1));
+        assertEquals(new HashSet<>(Arrays.asList(init1, init2)), graph.getDependencies(live2));
+    }
+
+    @Test
+    public void declaredDependenciesReplaceTheDefault() throws Exception {
+        LiquibaseConfig init = config("init");
+        LiquibaseConfig live1 = config("live1", "live2");
+        LiquibaseConfig live2 = config("live2");
+        LiquibaseConfig unnamed = config(null);
+
+        LiquibaseConfigGraph graph = LiquibaseConfigGraph.build(Collections.singletonList(init), Arrays.asList(live1, live2, unnamed));
+
+        assertEquals(Collections.singleton(live2), graph.getDependencies(live1));
+        assertEquals(Collections.singleton(init), graph.getDependencies(unnamed));
+        List<LiquibaseConfig> sorted = graph.getConfigs();
+        assertEquals(4, sorted.size());
+        assertTrue(sorted.indexOf(live2) < sorted.indexOf(live1));
+        assertTrue(sorted.indexOf(init) < sorted.indexOf(live2));
+    }
+
+    @Test
+    public void rejectsDuplicateNames() {
+        assertFails("Duplicate Liquibase configuration name db",
+                Collections.singletonList(config("db")), Collections.singletonList(config("db")));
+    }
+
+    @Test
+    public void rejectsUnknownDependencies() {
+        assertFails("Liquibase configuration live depends on unknown configuration missing",
+                Collections.emptyList(), Collections.singletonList(config("live", "missing")));
+    }
+
+    @Test
+    public void rejectsCycles() {
+        assertFails("Cyclic dependencies between Liquibase configurations; unresolved configurations: a, b",
+                Collections.emptyList(), Arrays.asList(config("a", "b"), config("b", "a"), config("c")));
+    }
+
+    @Test
+    public void rejectsDependenciesOnThemselves() {
+        assertFails("Cyclic dependencies between Liquibase configurations; unresolved configurations: a",
+                Collections.emptyList(), Collections.singletonList(config("a", "a")));
+    }
+
+    private static void assertFails(String message, List<LiquibaseConfig> initConfigs, List<LiquibaseConfig> liveConfigs) {
+        try {
+            LiquibaseConfigGraph.build(initConfigs, liveConfigs);
+            fail("expected a LiquibaseException");
+        } catch (LiquibaseException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static LiquibaseConfig config(String name, String... dependsOn) {
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.setName(name);
+        config.setChangeLog("db/changelog.xml");
+        if (dependsOn.length > 0) {
+            config.setDependsOn(new HashSet<>(Arrays.asList(dependsOn)));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,161 @@
+package liquibase.batch;
+
+import liquibase.Liquibase;
+import liquibase.change.Change;
+import liquibase.change.core.InsertDataChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.executor.ExecutorService;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.statement.core.InsertStatement;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Eric Benzacar
+ */
+public class BatchingJdbcExecutorTest {
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private Database database;
+    private BatchingJdbcExecutor executor;
+    private ChangeExecListener listener;
+    private ChangeSet changeSet;
+    private Change change;
+
+    @Before
+    public void setUp() throws Exception {
+        database = hsql.getDatabase();
+        executor = new BatchingJdbcExecutor(database, 3);
+        listener = executor.getFlushListener();
+        changeSet = new ChangeSet("1", "test", false, false, "batch.xml", null, null, null);
+        change = new InsertDataChange();
+        // outside of a changeset, so executed right away
+        executor.execute(new RawSqlStatement("CREATE TABLE PERSON (ID INT PRIMARY KEY)"));
+    }
+
+    @Test
+    public void statementsOutsideOfChangeSetsAreNotBatched() throws Exception {
+        executor.execute(insert(1));
+        assertEquals(1, count());
+    }
+
+    @Test
+    public void batchesTheStatementsOfAChangeUntilItRan() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        executor.execute(insert(1));
+        executor.execute(insert(2));
+        assertEquals(0, count());
+
+        listener.ran(change, changeSet, null, database);
+        assertEquals(2, count());
+    }
+
+    @Test
+    public void executesFullBatches() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        for (int i = 1; i <= 4; i++) {
+            executor.execute(insert(i));
+        }
+        assertEquals(3, count());
+
+        listener.ran(change, changeSet, null, database);
+        assertEquals(4, count());
+    }
+
+    @Test
+    public void flushesBeforeAQuery() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        executor.execute(insert(1));
+        executor.execute(insert(2));
+        assertEquals(2, executor.queryForInt(new RawSqlStatement("SELECT COUNT(*) FROM PERSON")));
+    }
+
+    @Test
+    public void flushesBeforeOtherStatements() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        executor.execute(insert(1));
+        executor.execute(new RawSqlStatement("CREATE TABLE OTHER (ID INT)"));
+        assertEquals(1, count());
+    }
+
+    @Test
+    public void discardsThePendingStatementsOfAFailedChangeSet() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        executor.execute(insert(1));
+        listener.runFailed(changeSet, null, database, new Exception("boom"));
+
+        listener.ran(change, changeSet, null, database);
+        executor.execute(new RawSqlStatement("CREATE TABLE OTHER (ID INT)"));
+        assertEquals(0, count());
+    }
+
+    @Test
+    public void discardsThePendingStatementsOfAChangeSetFailedWithoutError() throws Exception {
+        listener.willRun(changeSet, null, database, ChangeSet.RunStatus.NOT_RAN);
+        executor.execute(insert(1));
+        listener.ran(changeSet, null, database, ChangeSet.ExecType.FAILED);
+
+        executor.execute(insert(2));
+        assertEquals(Arrays.asList(2), ids());
+    }
+
+    @Test
+    public void continuesAfterAChangeSetWhichMayFail() throws Exception {
+        ExecutorService.getInstance().setExecutor(database, executor);
+        try {
+            Liquibase liquibase = new Liquibase("batch/changelog.xml", new ClassLoaderResourceAccessor(), database);
+            liquibase.setChangeExecListener(listener);
+            liquibase.update("");
+        } finally {
+            ExecutorService.getInstance().clearExecutor(database);
+        }
+
+        // the duplicate key failed the batch of changeset 2, which was rolled back as a whole
+        assertEquals(Arrays.asList(2, 3), ids());
+        try (Statement statement = hsql.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT ID, EXECTYPE FROM DATABASECHANGELOG ORDER BY ORDEREXECUTED")) {
+            List<String> execTypes = new ArrayList<>();
+            while (resultSet.next()) {
+                execTypes.add(resultSet.getString(1) + ":" + resultSet.getString(2));
+            }
+            // failed changesets are not recorded, so they are attempted again by the next update
+            assertEquals(Arrays.asList("1:EXECUTED", "3:EXECUTED"), execTypes);
+        }
+    }
+
+    private static InsertStatement insert(int id) {
+        return new InsertStatement(null, null, "PERSON").addColumnValue("ID", id);
+    }
+
+    private int count() throws SQLException {
+        return ids().size();
+    }
+
+    private List<Integer> ids() throws SQLException {
+        // same connection, so the uncommitted rows are visible
+        try (Statement statement = hsql.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT ID FROM PERSON ORDER BY ID")) {
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package liquibase.cache;
+
+import liquibase.change.core.CreateTableChange;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.parser.core.ParsedNode;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Eric Benzacar
+ */
+public class CachingXMLChangeLogParserTest {
+
+    private static final String CHANGELOG = "cache/changelog.xml";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ResourceAccessor resourceAccessor = new ClassLoaderResourceAccessor();
+    private CountingCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new CountingCache();
+    }
+
+    @Test
+    public void reusesTheFilesWithoutExpressions() throws Exception {
+        DatabaseChangeLog first = parse("FIRST");
+        // only the included file is cacheable, the changelog itself holds an expression
+        assertEquals(1, cache.misses);
+        assertEquals(1, cache.puts);
+        try (Stream<Path> entries = Files.list(folder.getRoot().toPath())) {
+            assertEquals(1, entries.count());
+        }
+
+        DatabaseChangeLog second = parse("SECOND");
+        assertEquals(1, cache.hits);
+        assertEquals(1, cache.puts);
+
+        assertEquals(2, second.getChangeSets().size());
+        assertEquals("PERSON", tableName(second, 0));
+        assertEquals("d\u00e9j\u00e0 vu", ((CreateTableChange) second.getChangeSets().get(0).getChanges().get(0)).getColumns().get(1).getRemarks());
+        // the expression is expanded against the parameters of each parse
+        assertEquals("FIRST", tableName(first, 1));
+        assertEquals("SECOND", tableName(second, 1));
+    }
+
+    @Test
+    public void parsesNormallyWithoutACache() throws Exception {
+        ChangeLogParameters parameters = new ChangeLogParameters();
+        parameters.set("tableName", "PLAIN");
+        CachingXMLChangeLogParser.install();
+        DatabaseChangeLog changeLog = ChangeLogParserFactory.getInstance().getParser(CHANGELOG, resourceAccessor)
+                .parse(CHANGELOG, parameters, resourceAccessor);
+        assertEquals("PLAIN", tableName(changeLog, 1));
+        assertEquals(0, cache.hits + cache.misses + cache.puts);
+    }
+
+    private DatabaseChangeLog parse(String tableName) throws Exception {
+        ChangeLogParameters parameters = new ChangeLogParameters();
+        parameters.set("tableName", tableName);
+        return CachingXMLChangeLogParser.withCache(cache, () -> ChangeLogParserFactory.getInstance().getParser(CHANGELOG, resourceAccessor)
+                .parse(CHANGELOG, parameters, resourceAccessor));
+    }
+
+    private static String tableName(DatabaseChangeLog changeLog, int index) {
+        return ((CreateTableChange) changeLog.getChangeSets().get(index).getChanges().get(0)).getTableName();
+    }
+
+    /**
+     * Cache in the temporary folder counting its accesses
+     */
+    private class CountingCache extends ChangeLogCache {
+        int hits;
+        int misses;
+        int puts;
+
+        CountingCache() {
+            super(folder.getRoot().toPath());
+        }
+
+        @Override
+        public ParsedNode get(String key) {
+            ParsedNode node = super.get(key);
+            if (node == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return node;
+        }
+
+        @Override
+        public void put(String key, ParsedNode node) {
+            puts++;
+            super.put(key, node);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package liquibase.cache;
+
+import liquibase.parser.core.ParsedNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class ParsedNodeCodecTest {
+
+    @Test
+    public void roundTripsATree() throws Exception {
+        char[] sql = new char[70000];
+        Arrays.fill(sql, 'x');
+        ParsedNode root = new ParsedNode("http://www.liquibase.org/xml/ns/dbchangelog", "databaseChangeLog");
+        ParsedNode changeSet = new ParsedNode(null, "changeSet");
+        changeSet.addChild(null, "id", "1");
+        changeSet.addChild(null, "comment", "d\u00e9j\u00e0 vu");
+        changeSet.addChild(null, "sql", new String(sql));
+        root.addChild(changeSet);
+        root.addChild(new ParsedNode(null, "empty"));
+        assertTrue(ParsedNodeCodec.isEncodable(root));
+
+        ParsedNode read = decode(encode(root));
+        assertEquals("http://www.liquibase.org/xml/ns/dbchangelog", read.getNamespace());
+        assertEquals("databaseChangeLog", read.getName());
+        assertNull(read.getValue());
+        assertEquals(2, read.getChildren().size());
+        ParsedNode readChangeSet = read.getChildren().get(0);
+        assertNull(readChangeSet.getNamespace());
+        assertEquals("1", readChangeSet.getChildValue(null, "id"));
+        assertEquals("d\u00e9j\u00e0 vu", readChangeSet.getChildValue(null, "comment"));
+        assertEquals(new String(sql), readChangeSet.getChildValue(null, "sql"));
+        assertEquals("empty", read.getChildren().get(1).getName());
+        assertTrue(read.getChildren().get(1).getChildren().isEmpty());
+    }
+
+    @Test
+    public void onlyEncodesStringValues() throws Exception {
+        ParsedNode root = new ParsedNode(null, "changeSet");
+        root.addChild(null, "runOrder", 1);
+        assertFalse(ParsedNodeCodec.isEncodable(root));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAnotherFormat() throws Exception {
+        decode(new byte[] {'L', 'B', 'C', 'X', 0, 0, 0, 1});
+    }
+
+    private static byte[] encode(ParsedNode node) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ParsedNodeCodec.write(node, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ParsedNode decode(byte[] bytes) throws IOException {
+        return ParsedNodeCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
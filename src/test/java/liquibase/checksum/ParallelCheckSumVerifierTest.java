@@ -0,0 +1,109 @@
+package liquibase.checksum;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.resource.FileSystemResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Eric Benzacar
+ */
+public class ParallelCheckSumVerifierTest {
+
+    private static final String CHANGELOG = "changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResourceAccessor resourceAccessor;
+    private LiquibaseConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        write(CHANGELOG, "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\"\n"
+                + "        xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+                + "        xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-3.6.xsd\">\n"
+                + "    <changeSet id=\"1\" author=\"test\">\n"
+                + "        <createTable tableName=\"VERIFIED\"><column name=\"ID\" type=\"INT\"/></createTable>\n"
+                + "    </changeSet>\n"
+                + "    <changeSet id=\"2\" author=\"test\">\n"
+                + "        <sqlFile path=\"data.sql\" relativeToChangelogFile=\"true\"/>\n"
+                + "    </changeSet>\n"
+                + "</databaseChangeLog>\n");
+        write("data.sql", "INSERT INTO VERIFIED (ID) VALUES (1);");
+        resourceAccessor = new FileSystemResourceAccessor(folder.getRoot().getAbsolutePath());
+        config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+    }
+
+    @Test
+    public void verifiesMatchingCheckSums() throws Exception {
+        DatabaseChangeLog changeLog = parse();
+        assertEquals(2, verifier().verify(hsql.getDatabase(), changeLog, ran(changeLog)));
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            assertEquals(changeSet.toString(false), 1, changeSet.getValidCheckSums().size());
+        }
+    }
+
+    @Test
+    public void referencedFileChangeIsNotMemoized() throws Exception {
+        List<RanChangeSet> ranChangeSets = ran(parse());
+        // memoizes the checksums of both changesets
+        assertEquals(2, verifier().verify(hsql.getDatabase(), parse(), ranChangeSets));
+
+        write("data.sql", "INSERT INTO VERIFIED (ID) VALUES (2);");
+        // only the changeset referencing the edited file mismatches, and is left to the Liquibase validation
+        DatabaseChangeLog changeLog = parse();
+        assertEquals(1, verifier().verify(hsql.getDatabase(), changeLog, ranChangeSets));
+        assertEquals(0, changeLog.getChangeSet(CHANGELOG, "test", "2").getValidCheckSums().size());
+    }
+
+    @Test
+    public void runOnChangeChangeSetsAreLeftToLiquibase() throws Exception {
+        write(CHANGELOG, new String(Files.readAllBytes(new File(folder.getRoot(), CHANGELOG).toPath()), StandardCharsets.UTF_8)
+                .replace("<changeSet id=\"1\" author=\"test\">", "<changeSet id=\"1\" author=\"test\" runOnChange=\"true\">"));
+        DatabaseChangeLog changeLog = parse();
+        assertEquals(1, verifier().verify(hsql.getDatabase(), changeLog, ran(changeLog)));
+    }
+
+    private ParallelCheckSumVerifier verifier() {
+        return new ParallelCheckSumVerifier(config, resourceAccessor, 2);
+    }
+
+    private DatabaseChangeLog parse() throws Exception {
+        return ChangeLogParserFactory.getInstance().getParser(CHANGELOG, resourceAccessor)
+                .parse(CHANGELOG, new ChangeLogParameters(hsql.getDatabase()), resourceAccessor);
+    }
+
+    private static List<RanChangeSet> ran(DatabaseChangeLog changeLog) {
+        List<RanChangeSet> ranChangeSets = new ArrayList<>();
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            ranChangeSets.add(new RanChangeSet(changeSet));
+        }
+        return ranChangeSets;
+    }
+
+    private void write(String name, String content) throws Exception {
+        Files.write(new File(folder.getRoot(), name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package liquibase.chunked;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Eric Benzacar
+ */
+public class ChunkedUpdateRunnerTest {
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private ChunkedUpdateRunner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        try (Statement statement = hsql.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE ITEM (ID BIGINT PRIMARY KEY, VAL INT DEFAULT 0 NOT NULL, DIVISOR INT DEFAULT 1 NOT NULL)");
+            for (int id = 1; id <= 25; id++) {
+                statement.execute("INSERT INTO ITEM (ID) VALUES (" + id + ")");
+            }
+        }
+        hsql.getConnection().commit();
+        runner = new ChunkedUpdateRunner(hsql.getDatabase());
+    }
+
+    @Test
+    public void updatesAllRanges() throws Exception {
+        runner.run(update());
+        assertEquals(25, count("VAL = 100"));
+        assertEquals("COMPLETED", checkpoint("STATUS"));
+        assertEquals("25", checkpoint("ROWSUPDATED"));
+    }
+
+    @Test
+    public void resumesFromLastCheckpoint() throws Exception {
+        execute("UPDATE ITEM SET DIVISOR = 0 WHERE ID = 15");
+        try {
+            runner.run(update());
+            fail("The range holding key 15 must fail");
+        } catch (LiquibaseException e) {
+            // the first range remains committed
+        }
+        assertEquals(10, count("VAL = 100"));
+        assertEquals("RUNNING", checkpoint("STATUS"));
+        assertEquals("10", checkpoint("LASTKEY"));
+
+        execute("UPDATE ITEM SET DIVISOR = 1 WHERE ID = 15");
+        runner.run(update());
+        // the first range was not updated twice
+        assertEquals(25, count("VAL = 100"));
+        assertEquals("25", checkpoint("ROWSUPDATED"));
+    }
+
+    @Test
+    public void deferredUpdateRunsOnce() throws Exception {
+        assertFalse(runner.hasDeferred());
+        assertEquals(0, runner.runDeferred());
+
+        runner.defer(update());
+        runner.defer(update());
+        assertEquals(0, count("VAL = 100"));
+        assertTrue(runner.hasDeferred());
+
+        assertEquals(1, new ChunkedUpdateRunner(hsql.openDatabase()).runDeferred());
+        assertEquals(25, count("VAL = 100"));
+        assertFalse(runner.hasDeferred());
+    }
+
+    @Test
+    public void missingTableLeavesTransactionIntact() throws Exception {
+        execute("UPDATE ITEM SET VAL = 1 WHERE ID = 1");
+        assertFalse(runner.exists());
+        assertFalse(runner.hasDeferred());
+        // the pending change was neither committed nor rolled back by the lookup
+        hsql.getConnection().rollback();
+        assertEquals(0, count("VAL = 1"));
+    }
+
+    private static ChunkedUpdate update() {
+        ChunkedUpdateChange change = new ChunkedUpdateChange();
+        change.setTableName("ITEM");
+        change.setKeyColumn("ID");
+        change.setSet("VAL = VAL + 100 / DIVISOR");
+        change.setChunkSize(10);
+        return change.toUpdate();
+    }
+
+    private int count(String where) throws SQLException {
+        try (Statement statement = hsql.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM ITEM WHERE " + where)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private String checkpoint(String column) throws SQLException {
+        try (Statement statement = hsql.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + column + " FROM " + runner.getTableName())) {
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = hsql.getConnection().createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
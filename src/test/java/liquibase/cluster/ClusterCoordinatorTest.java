@@ -0,0 +1,75 @@
+package liquibase.cluster;
+
+import liquibase.database.Database;
+import liquibase.exception.LiquibaseException;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Eric Benzacar
+ */
+public class ClusterCoordinatorTest {
+
+    private static final String CHANGELOG = "changelog.xml";
+    private static final long LEASE_MILLIS = 300;
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private Database otherNode;
+
+    @Before
+    public void setUp() throws Exception {
+        otherNode = hsql.openDatabase();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        otherNode.close();
+    }
+
+    @Test
+    public void followerSkipsCompletedDeployment() throws Exception {
+        ClusterCoordinator leader = new ClusterCoordinator(hsql.getDatabase(), CHANGELOG, "v1", LEASE_MILLIS);
+        assertTrue(leader.awaitLeadership(1, 10, 10, TimeUnit.SECONDS));
+        leader.complete(true);
+
+        assertFalse(new ClusterCoordinator(otherNode, CHANGELOG, "v1", LEASE_MILLIS).awaitLeadership(1, 10, 10, TimeUnit.MILLISECONDS));
+        assertTrue(new ClusterCoordinator(otherNode, CHANGELOG, "v2", LEASE_MILLIS).awaitLeadership(1, 10, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void staleLeaderIsTakenOver() throws Exception {
+        // the leader never refreshes its lease, as if it had crashed
+        assertTrue(new ClusterCoordinator(hsql.getDatabase(), CHANGELOG, "v1", LEASE_MILLIS).awaitLeadership(1, 10, 10, TimeUnit.SECONDS));
+
+        ClusterCoordinator follower = new ClusterCoordinator(otherNode, CHANGELOG, "v1", LEASE_MILLIS);
+        assertTrue(follower.awaitLeadership(5_000, 50, 50, TimeUnit.MILLISECONDS));
+        follower.complete(true);
+    }
+
+    @Test
+    public void heartbeatKeepsLeadership() throws Exception {
+        ClusterCoordinator leader = new ClusterCoordinator(hsql.getDatabase(), CHANGELOG, "v1", LEASE_MILLIS);
+        assertTrue(leader.awaitLeadership(1, 10, 10, TimeUnit.SECONDS));
+        leader.startHeartbeat(hsql::openDatabase);
+        try {
+            new ClusterCoordinator(otherNode, CHANGELOG, "v1", LEASE_MILLIS).awaitLeadership(LEASE_MILLIS * 4, 50, 50, TimeUnit.MILLISECONDS);
+            fail("The leader refreshing its lease must not be taken over");
+        } catch (LiquibaseException e) {
+            // timed out waiting for the leader
+        } finally {
+            leader.complete(true);
+        }
+        assertFalse(new ClusterCoordinator(otherNode, CHANGELOG, "v1", LEASE_MILLIS).awaitLeadership(1, 10, 10, TimeUnit.MILLISECONDS));
+    }
+}
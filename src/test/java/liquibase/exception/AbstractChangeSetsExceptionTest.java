@@ -0,0 +1,112 @@
+package liquibase.exception;
+
+import liquibase.util.StreamUtil;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class AbstractChangeSetsExceptionTest {
+
+    private static final String NL = StreamUtil.getLineSeparator();
+
+    @Test
+    public void listsEveryChangeSetUpToTheLimit() {
+        ChangeSetsException exception = new ChangeSetsException(names(20));
+        StringBuilder expected = new StringBuilder("20 changesets" + NL);
+        for (int i = 0; i < 20; i++) {
+            expected.append("     cs").append(i).append(NL);
+        }
+        assertEquals(expected.toString(), exception.getMessage());
+    }
+
+    @Test
+    public void summarisesTheChangeSetsBeyondTheLimit() {
+        ChangeSetsException exception = new ChangeSetsException(names(25));
+        assertEquals(AbstractChangeSetsException.DEFAULT_SUMMARY_LIMIT, exception.getSummaryLimit());
+        assertEquals(25, exception.getCount());
+
+        String[] lines = exception.getMessage().split(NL);
+        assertEquals(22, lines.length);
+        assertEquals("25 changesets", lines[0]);
+        assertEquals("     cs19", lines[20]);
+        assertEquals("     ... and 5 more", lines[21]);
+        assertEquals(20, exception.described);
+    }
+
+    @Test
+    public void honoursACustomLimit() {
+        ChangeSetsException exception = new ChangeSetsException(names(3), 1);
+        assertEquals("3 changesets" + NL + "     cs0" + NL + "     ... and 2 more" + NL, exception.getMessage());
+    }
+
+    @Test
+    public void buildsTheMessageOnce() {
+        ChangeSetsException exception = new ChangeSetsException(names(25));
+        String message = exception.getMessage();
+        assertSame(message, exception.getMessage());
+        assertEquals(20, exception.described);
+    }
+
+    @Test
+    public void keepsACopyOfTheChangeSets() {
+        List<String> changeSets = names(2);
+        ChangeSetsException exception = new ChangeSetsException(changeSets);
+        changeSets.add("cs2");
+        assertEquals(Arrays.asList("cs0", "cs1"), exception.getChangeSets());
+    }
+
+    @Test
+    public void writesEveryChangeSet() throws Exception {
+        ChangeSetsException exception = new ChangeSetsException(names(25));
+        StringWriter writer = new StringWriter();
+        exception.writeTo(writer);
+
+        String[] lines = writer.toString().split(NL);
+        assertEquals(26, lines.length);
+        assertEquals("25 changesets", lines[0]);
+        assertEquals("     cs24", lines[25]);
+        assertTrue(writer.toString().endsWith(NL));
+    }
+
+    private static List<String> names(int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add("cs" + i);
+        }
+        return names;
+    }
+
+    private static class ChangeSetsException extends AbstractChangeSetsException<String> {
+
+        private int described;
+
+        ChangeSetsException(List<String> changeSets) {
+            super(changeSets);
+        }
+
+        ChangeSetsException(List<String> changeSets, int summaryLimit) {
+            super(changeSets, summaryLimit);
+        }
+
+        @Override
+        protected String getHeader() {
+            return getCount() + " changesets";
+        }
+
+        @Override
+        protected String describe(String changeSet) {
+            described++;
+            return changeSet;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package liquibase.fingerprint;
+
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class ChangeLogFingerprintServiceTest {
+
+    private static final String CHANGELOG = "fingerprint/changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private final ResourceAccessor resourceAccessor = new ClassLoaderResourceAccessor();
+    private LiquibaseConfig config;
+
+    @Before
+    public void setUp() {
+        config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        config.setUseChangeLogFingerprint(true);
+    }
+
+    @Test
+    public void unchangedChangeLogIsUpToDate() {
+        ChangeLogFingerprintService service = new ChangeLogFingerprintService(hsql.getDatabase(), config, resourceAccessor);
+        assertFalse(service.isUpToDate());
+
+        service.record(changeLog(false));
+        assertTrue(service.isUpToDate());
+    }
+
+    @Test
+    public void changedConfigIsNotUpToDate() {
+        new ChangeLogFingerprintService(hsql.getDatabase(), config, resourceAccessor).record(changeLog(false));
+
+        config.setContexts("other");
+        assertFalse(new ChangeLogFingerprintService(hsql.getDatabase(), config, resourceAccessor).isUpToDate());
+    }
+
+    @Test
+    public void runAlwaysChangeLogIsNeverUpToDate() {
+        ChangeLogFingerprintService service = new ChangeLogFingerprintService(hsql.getDatabase(), config, resourceAccessor);
+        service.record(changeLog(true));
+        assertFalse(service.isUpToDate());
+    }
+
+    @Test
+    public void recordFailureIsNotThrown() throws Exception {
+        hsql.getConnection().close();
+        new ChangeLogFingerprintService(hsql.getDatabase(), config, resourceAccessor).record(changeLog(false));
+    }
+
+    private static DatabaseChangeLog changeLog(boolean runAlways) {
+        DatabaseChangeLog changeLog = new DatabaseChangeLog(CHANGELOG);
+        changeLog.addChangeSet(new ChangeSet("1", "test", false, false, CHANGELOG, null, null, changeLog));
+        changeLog.addChangeSet(new ChangeSet("2", "test", runAlways, false, CHANGELOG, null, null, changeLog));
+        return changeLog;
+    }
+}
@@ -0,0 +1,53 @@
+package liquibase.instrumentation;
+
+import liquibase.LiquibaseConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class JmxLiquibaseInstrumentationTest {
+
+    private MBeanServer mBeanServer;
+    private LiquibaseConfig config;
+    private ObjectName name;
+
+    @Before
+    public void setUp() throws Exception {
+        mBeanServer = MBeanServerFactory.newMBeanServer();
+        config = new LiquibaseConfig();
+        config.setName("test");
+        name = new ObjectName("liquibase:type=Migration,name=" + ObjectName.quote("test"));
+    }
+
+    @Test
+    public void statisticsAreRegisteredUntilClosed() throws Exception {
+        JmxLiquibaseInstrumentation instrumentation = new JmxLiquibaseInstrumentation(mBeanServer);
+        instrumentation.connectionAcquired(config, 2_000_000L);
+        assertTrue(mBeanServer.isRegistered(name));
+        assertEquals(2L, mBeanServer.getAttribute(name, "ConnectionAcquisitionMillis"));
+
+        instrumentation.close();
+        assertFalse(mBeanServer.isRegistered(name));
+    }
+
+    @Test
+    public void newMigrationReplacesStatistics() throws Exception {
+        JmxLiquibaseInstrumentation instrumentation = new JmxLiquibaseInstrumentation(mBeanServer);
+        instrumentation.connectionAcquired(config, 2_000_000L);
+        instrumentation.connectionAcquired(config, 5_000_000L);
+        assertEquals(5L, mBeanServer.getAttribute(name, "ConnectionAcquisitionMillis"));
+
+        instrumentation.close();
+        assertEquals(0, mBeanServer.queryNames(new ObjectName("liquibase:*"), null).size());
+    }
+}
@@ -0,0 +1,135 @@
+package liquibase.precompile;
+
+import liquibase.cache.ChangeLogCache;
+import liquibase.cache.PrecompiledChangeLogCache;
+import liquibase.cache.ResourceDigest;
+import liquibase.parser.core.ParsedNode;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Runs the processor the way a build does: the changelogs are copied to the class output before a class annotated with
+ * {@link PrecompileChangeLog} is compiled.
+ *
+ * @author Eric Benzacar
+ */
+public class ChangeLogPrecompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JavaCompiler compiler;
+    private Path classes;
+
+    @Before
+    public void setUp() throws Exception {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        // only available on a JDK
+        assumeNotNull(compiler);
+        classes = folder.newFolder("classes").toPath();
+        // under another directory than the test resources, which are also visible to the processor
+        copy("cache/changelog.xml", "db/changelog.xml");
+        copy("cache/tables.xml", "db/tables.xml");
+    }
+
+    @Test
+    public void precompilesTheChangeLogsOfTheAnnotation() throws Exception {
+        List<String> notes = compile("@liquibase.precompile.PrecompileChangeLog(\"db/changelog.xml\")\npublic class Stub {\n}\n");
+        assertEquals(Collections.singletonList("Precompiled 1 files of changelog db/changelog.xml"), notes);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, null)) {
+            PrecompiledChangeLogCache cache = new PrecompiledChangeLogCache(new ClassLoaderResourceAccessor(classLoader), null);
+
+            ParsedNode tables = cache.get(key("db/tables.xml"));
+            assertNotNull(tables);
+            assertEquals("databaseChangeLog", tables.getName());
+            ParsedNode changeSet = tables.getChild(null, "changeSet");
+            assertEquals("person", changeSet.getChildValue(null, "id"));
+
+            // depends on the changelog parameters, so left to be parsed at runtime
+            assertNull(cache.get(key("db/changelog.xml")));
+        }
+    }
+
+    @Test
+    public void reportsMissingChangeLogsAsErrors() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertFalse(run("@liquibase.precompile.PrecompileChangeLog(\"missing/changelog.xml\")\npublic class Stub {\n}\n", diagnostics));
+        boolean reported = false;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            reported |= diagnostic.getKind() == Diagnostic.Kind.ERROR
+                    && diagnostic.getMessage(null).equals("Could not precompile changelog missing/changelog.xml: "
+                    + "not found in the class output, where the resources must be copied before compiling");
+        }
+        assertTrue(diagnostics.getDiagnostics().toString(), reported);
+    }
+
+    /**
+     * @return the notes reported by the processor about the precompiled changelogs
+     */
+    private List<String> compile(String source) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(), run(source, diagnostics));
+        List<String> notes = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.NOTE && diagnostic.getMessage(null).startsWith("Precompiled")) {
+                notes.add(diagnostic.getMessage(null));
+            }
+        }
+        return notes;
+    }
+
+    private boolean run(String source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        File file = folder.newFile("Stub.java");
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(classes.toFile()));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path")), null, fileManager.getJavaFileObjects(file));
+            task.setProcessors(Collections.singletonList(new ChangeLogPrecompiler()));
+            return task.call();
+        }
+    }
+
+    private String key(String resource) throws IOException {
+        return ChangeLogCache.key(Files.readAllBytes(classes.resolve(resource)));
+    }
+
+    private void copy(String resource, String path) throws IOException {
+        Path target = classes.resolve(path);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            Files.write(target, ResourceDigest.read(in));
+        }
+    }
+}
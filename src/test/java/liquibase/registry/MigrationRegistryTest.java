@@ -0,0 +1,81 @@
+package liquibase.registry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class MigrationRegistryTest {
+
+    private final MigrationRegistry registry = MigrationRegistry.getInstance();
+
+    @After
+    public void tearDown() {
+        registry.invalidateAll();
+    }
+
+    @Test
+    public void connectionTargetsAreComparedByEquality() {
+        registry.register("jdbc:hsqldb:mem:a|SA", "f1");
+
+        assertTrue(registry.isMigrated(new String("jdbc:hsqldb:mem:a|SA"), "f1"));
+        assertFalse(registry.isMigrated("jdbc:hsqldb:mem:a|SA", "f2"));
+        assertFalse(registry.isMigrated("jdbc:hsqldb:mem:b|SA", "f1"));
+    }
+
+    @Test
+    public void dataSourceTargetsAreComparedByIdentity() {
+        Object dataSource = new EqualToAll();
+        registry.register(dataSource, "f1");
+        registry.register(dataSource, "f2");
+
+        assertTrue(registry.isMigrated(dataSource, "f1"));
+        assertTrue(registry.isMigrated(dataSource, "f2"));
+        assertFalse(registry.isMigrated(new EqualToAll(), "f1"));
+        // a data source never matches a connection identification, whatever its equals
+        assertFalse(registry.isMigrated(dataSource.toString(), "f1"));
+    }
+
+    @Test
+    public void invalidateForgetsTheTarget() {
+        Object dataSource = new Object();
+        Object other = new Object();
+        registry.register(dataSource, "f1");
+        registry.register(other, "f1");
+        registry.register("jdbc:hsqldb:mem:a|SA", "f1");
+
+        registry.invalidate(dataSource);
+        assertFalse(registry.isMigrated(dataSource, "f1"));
+        assertTrue(registry.isMigrated(other, "f1"));
+
+        registry.invalidate("jdbc:hsqldb:mem:a|SA");
+        assertFalse(registry.isMigrated("jdbc:hsqldb:mem:a|SA", "f1"));
+
+        registry.invalidateAll();
+        assertFalse(registry.isMigrated(other, "f1"));
+    }
+
+    /**
+     * Data source wrapper equal to any other, as some pools are
+     */
+    private static final class EqualToAll {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof EqualToAll;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "pool";
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package liquibase.report;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class RunReportFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheReportsAppended() throws Exception {
+        RunReportFile file = new RunReportFile(folder.getRoot().toPath().resolve("reports/runs.bin"));
+        assertTrue(file.read().isEmpty());
+
+        MigrationRunReport first = new MigrationRunReport(1000L, "node-1", "db.xml", "UPDATE", true, null, 5000L, 100L, 200L, 300L, 400L,
+                Arrays.asList(new MigrationRunReport.ChangeSetRun("db.xml::1::me", "EXECUTED", 1500L, 3L),
+                        new MigrationRunReport.ChangeSetRun("db.xml::2::me", RunReportCollector.FAILED, 10L, 0L)));
+        MigrationRunReport second = new MigrationRunReport(2000L, null, "db.xml", "UPDATE", false, "boom \u00e9", 7L, 0L, 0L, 0L, 0L,
+                Collections.emptyList());
+        file.append(first);
+        file.append(second);
+
+        List<MigrationRunReport> reports = file.read();
+        assertEquals(2, reports.size());
+        MigrationRunReport read = reports.get(0);
+        assertEquals(1000L, read.getStarted());
+        assertEquals("node-1", read.getHost());
+        assertEquals("db.xml", read.getConfig());
+        assertEquals("UPDATE", read.getMode());
+        assertTrue(read.isSuccessful());
+        assertNull(read.getFailure());
+        assertEquals(5000L, read.getNanos());
+        assertEquals(100L, read.getConnectionNanos());
+        assertEquals(200L, read.getParseNanos());
+        assertEquals(300L, read.getLockNanos());
+        assertEquals(400L, read.getValidationNanos());
+        assertEquals(2, read.getChangeSets().size());
+        assertEquals("db.xml::1::me", read.getChangeSets().get(0).getChangeSet());
+        assertEquals("EXECUTED", read.getChangeSets().get(0).getExecType());
+        assertEquals(1500L, read.getChangeSets().get(0).getNanos());
+        assertEquals(3L, read.getChangeSets().get(0).getRows());
+        assertEquals(1, read.getChangeSetsApplied());
+        assertEquals(3L, read.getRowsAffected());
+
+        read = reports.get(1);
+        assertNull(read.getHost());
+        assertFalse(read.isSuccessful());
+        assertEquals("boom \u00e9", read.getFailure());
+        assertTrue(read.getChangeSets().isEmpty());
+    }
+
+    @Test
+    public void ignoresATruncatedRecord() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("runs.bin");
+        RunReportFile file = new RunReportFile(path);
+        file.append(new MigrationRunReport(1000L, "node-1", "db.xml", "UPDATE", true, null, 1L, 0L, 0L, 0L, 0L, Collections.emptyList()));
+        // a record of 100 bytes cut short by a crash
+        try (OutputStream stream = Files.newOutputStream(path, StandardOpenOption.APPEND)) {
+            stream.write(new byte[] {0, 0, 0, 100, 1, 2, 3});
+        }
+
+        List<MigrationRunReport> reports = file.read();
+        assertEquals(1, reports.size());
+        assertEquals("db.xml", reports.get(0).getConfig());
+    }
+
+    @Test
+    public void readsTheReportsAppendedAfterATornRecord() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("runs.bin");
+        RunReportFile file = new RunReportFile(path);
+        file.append(report("first.xml"));
+
+        // the first half of a complete record, as left by a crash while appending it
+        Path other = folder.getRoot().toPath().resolve("other.bin");
+        new RunReportFile(other).append(report("torn.xml"));
+        byte[] record = Files.readAllBytes(other);
+        try (OutputStream stream = Files.newOutputStream(path, StandardOpenOption.APPEND)) {
+            stream.write(Arrays.copyOf(record, record.length / 2));
+        }
+
+        file.append(report("second.xml"));
+        file.append(report("third.xml"));
+
+        assertEquals(Arrays.asList("first.xml", "second.xml", "third.xml"), configs(file.read()));
+    }
+
+    @Test
+    public void ignoresInvalidLengths() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("runs.bin");
+        RunReportFile file = new RunReportFile(path);
+        // record markers followed by a negative and a huge length
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            stream.write(new byte[] {'L', 'B', 'R', 'R', (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 1, 2, 3, 4});
+            stream.write(new byte[] {'L', 'B', 'R', 'R', 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 2, 3, 4});
+        }
+        file.append(report("db.xml"));
+
+        assertEquals(Collections.singletonList("db.xml"), configs(file.read()));
+    }
+
+    @Test
+    public void skipsCorruptedRecords() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("runs.bin");
+        RunReportFile file = new RunReportFile(path);
+        file.append(report("first.xml"));
+        file.append(report("second.xml"));
+
+        // flip a byte in the content of the first record, which no longer matches its checksum
+        byte[] content = Files.readAllBytes(path);
+        content[12] ^= 0x55;
+        Files.write(path, content);
+
+        assertEquals(Collections.singletonList("second.xml"), configs(file.read()));
+    }
+
+    private static MigrationRunReport report(String config) {
+        return new MigrationRunReport(1000L, "node-1", config, "UPDATE", true, null, 1L, 0L, 0L, 0L, 0L, Collections.emptyList());
+    }
+
+    private static List<String> configs(List<MigrationRunReport> reports) {
+        List<String> configs = new ArrayList<>();
+        for (MigrationRunReport report : reports) {
+            configs.add(report.getConfig());
+        }
+        return configs;
+    }
+}
@@ -0,0 +1,50 @@
+package liquibase.report;
+
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class RunReportTableTest {
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    @Test
+    public void createsTheTableAndReadsTheSummaries() throws Exception {
+        RunReportTable table = new RunReportTable(hsql.getDatabase());
+        assertFalse(table.exists());
+
+        table.append(new MigrationRunReport(1000L, "node-1", "a.xml", "UPDATE", true, null, TimeUnit.MILLISECONDS.toNanos(1500), 0L, 0L,
+                0L, 0L, Collections.singletonList(new MigrationRunReport.ChangeSetRun("a.xml::1::me", "EXECUTED", 1L, 4L))));
+        table.append(new MigrationRunReport(2000L, "node-1", "b.xml", "VALIDATE", false, "boom", 0L, 0L, 0L, 0L, 0L,
+                Collections.emptyList()));
+        assertTrue(table.exists());
+
+        List<MigrationRunReport> reports = table.read(null);
+        assertEquals(2, reports.size());
+        assertEquals("a.xml", reports.get(0).getConfig());
+        assertEquals("b.xml", reports.get(1).getConfig());
+
+        reports = table.read("b.xml");
+        assertEquals(1, reports.size());
+        MigrationRunReport read = reports.get(0);
+        assertEquals(2000L, read.getStarted());
+        assertEquals("VALIDATE", read.getMode());
+        assertFalse(read.isSuccessful());
+        assertEquals("boom", read.getFailure());
+
+        // durations are kept in milliseconds
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), table.read("a.xml").get(0).getNanos());
+    }
+}
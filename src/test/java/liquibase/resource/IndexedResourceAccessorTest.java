@@ -0,0 +1,114 @@
+package liquibase.resource;
+
+import liquibase.cache.ResourceDigest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Eric Benzacar
+ */
+public class IndexedResourceAccessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CountingClassLoader classLoader;
+    private IndexedResourceAccessor resourceAccessor;
+
+    @Before
+    public void setUp() throws Exception {
+        File directory = folder.newFolder("classes");
+        write(new File(directory, "db/master.xml"), "master");
+        write(new File(directory, "db/changes/001.xml"), "directory 001");
+
+        File jar = folder.newFile("changes.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String[] entry : new String[][]{{"db/changes/001.xml", "jar 001"}, {"db/changes/002.xml", "jar 002"}}) {
+                out.putNextEntry(new JarEntry(entry[0]));
+                out.write(entry[1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        classLoader = new CountingClassLoader(new URL[]{directory.toURI().toURL(), jar.toURI().toURL()});
+        resourceAccessor = new IndexedResourceAccessor(classLoader, "db/");
+    }
+
+    @Test
+    public void lookupsAreServedFromTheIndex() throws Exception {
+        assertEquals(new HashSet<>(Arrays.asList("master")), read("db/master.xml"));
+        int indexed = classLoader.getResourcesCalls.get();
+
+        assertEquals(new HashSet<>(Arrays.asList("directory 001", "jar 001")), read("classpath:db/changes/001.xml"));
+        assertEquals(new HashSet<>(Arrays.asList("jar 002")), read("/db/changes/002.xml"));
+        assertNull(resourceAccessor.getResourcesAsStream("db/changes/003.xml"));
+        assertEquals(indexed, classLoader.getResourcesCalls.get());
+    }
+
+    @Test
+    public void listsIndexedDirectories() throws Exception {
+        assertEquals(new HashSet<>(Arrays.asList("db/changes/001.xml", "db/changes/002.xml")),
+                resourceAccessor.list("db/master.xml", "changes", true, false, false));
+        assertEquals(new HashSet<>(Arrays.asList("db/master.xml", "db/changes/", "db/changes/001.xml", "db/changes/002.xml")),
+                resourceAccessor.list(null, "db/", true, true, true));
+    }
+
+    @Test
+    public void pathsOutsideOfTheRootsAreDelegated() throws Exception {
+        write(new File(folder.getRoot(), "classes/other/file.txt"), "other");
+        assertEquals(new HashSet<>(Arrays.asList("other")), read("other/file.txt"));
+    }
+
+    private Set<String> read(String path) throws IOException {
+        Set<String> contents = new HashSet<>();
+        for (InputStream in : resourceAccessor.getResourcesAsStream(path)) {
+            try (InputStream stream = in) {
+                contents.add(new String(ResourceDigest.read(stream), StandardCharsets.UTF_8));
+            }
+        }
+        return contents;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Class loader counting the resource lookups
+     */
+    private static class CountingClassLoader extends URLClassLoader {
+        private final AtomicInteger getResourcesCalls = new AtomicInteger();
+
+        CountingClassLoader(URL[] urls) {
+            super(urls, null);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            getResourcesCalls.incrementAndGet();
+            return super.getResources(name);
+        }
+    }
+}
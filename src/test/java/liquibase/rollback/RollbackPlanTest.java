@@ -0,0 +1,121 @@
+package liquibase.rollback;
+
+import liquibase.CDILiquibaseSession;
+import liquibase.Liquibase;
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.LiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Eric Benzacar
+ */
+public class RollbackPlanTest {
+
+    private static final String CHANGELOG = "rollback/changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    @Test
+    public void appliesTheRollbackVisitorsOnly() throws Exception {
+        Database database = hsql.getDatabase();
+        List<ChangeSet> pending = parse(database).getChangeSets();
+
+        Map<String, List<String>> sql = RollbackPlan.compute(pending, Collections.emptyList(), database).getSql(pending);
+        assertEquals(Collections.singletonList("DROP TABLE PUBLIC.PERSON CASCADE"), sql.get(pending.get(0).toString(false)));
+        assertEquals(Collections.singletonList("DROP TABLE PUBLIC.ADDRESS"), sql.get(pending.get(1).toString(false)));
+    }
+
+    @Test
+    public void onlyRevertsTheChangeSetsRecordedAsRun() throws Exception {
+        Database database = hsql.getDatabase();
+        DatabaseChangeLog changeLog = parse(database);
+        ChangeSet person = changeLog.getChangeSets().get(0);
+        ChangeSet address = changeLog.getChangeSets().get(1);
+        RollbackPlan plan = RollbackPlan.compute(changeLog.getChangeSets(), Collections.emptyList(), database);
+        ChangeExecListener listener = plan.getListener();
+        ChangeLogHistoryServiceFactory.getInstance().getChangeLogService(database).init();
+        database.commit();
+
+        // person runs and is recorded
+        run(listener, changeLog, person, database, "CREATE TABLE PERSON (ID INT)");
+        database.markChangeSetExecStatus(person, ChangeSet.ExecType.EXECUTED);
+        database.commit();
+        // address runs, but recording it fails and is rolled back
+        run(listener, changeLog, address, database, "CREATE TABLE ADDRESS (ID INT)");
+        database.markChangeSetExecStatus(address, ChangeSet.ExecType.EXECUTED);
+
+        assertEquals(1, plan.rollback(database));
+        try (Connection connection = hsql.openConnection()) {
+            assertFalse(exists(connection, "PERSON"));
+            // the unrecorded changeset is reverted as a failed one, only when its DDL was committed
+            assertEquals(database.supportsDDLInTransactions(), exists(connection, "ADDRESS"));
+        }
+        try (CDILiquibaseSession session = openSession(hsql.openDatabase())) {
+            assertTrue(session.getRanChangeSets().isEmpty());
+        }
+    }
+
+    @Test
+    public void updateRevertsTheChangeSetsItApplied() throws Exception {
+        try (CDILiquibaseSession session = openSession(hsql.getDatabase())) {
+            session.update();
+            fail("the broken changeset must fail the update");
+        } catch (LiquibaseException expected) {
+            assertEquals(0, expected.getSuppressed().length);
+        }
+        try (Connection connection = hsql.openConnection()) {
+            assertFalse(exists(connection, "PERSON"));
+            assertFalse(exists(connection, "ADDRESS"));
+        }
+        try (CDILiquibaseSession session = openSession(hsql.openDatabase())) {
+            assertTrue(session.getRanChangeSets().isEmpty());
+            assertEquals(3, session.listUnrunChangeSets().size());
+        }
+    }
+
+    private static void run(ChangeExecListener listener, DatabaseChangeLog changeLog, ChangeSet changeSet, Database database, String sql)
+            throws Exception {
+        listener.willRun(changeSet, changeLog, database, ChangeSet.RunStatus.NOT_RAN);
+        ExecutorService.getInstance().getExecutor(database).execute(new RawSqlStatement(sql));
+        listener.ran(changeSet, changeLog, database, ChangeSet.ExecType.EXECUTED);
+    }
+
+    private DatabaseChangeLog parse(Database database) throws Exception {
+        return new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database).getDatabaseChangeLog();
+    }
+
+    private CDILiquibaseSession openSession(Database database) throws Exception {
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        config.setRollbackOnFailure(true);
+        return new CDILiquibaseSession(config, new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database));
+    }
+
+    private static boolean exists(Connection connection, String table) throws Exception {
+        try (ResultSet tables = connection.getMetaData().getTables(null, "PUBLIC", table, null)) {
+            return tables.next();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package liquibase.strategy;
+
+import liquibase.change.AddColumnConfig;
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.sql.visitor.AppendSqlVisitor;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.NotNullConstraint;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.AddColumnStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the strategy on HSQLDB, standing in for MySQL and PostgreSQL through {@link OnlineDdlExecutionStrategy#getDialect(Database)}.
+ *
+ * @author Eric Benzacar
+ */
+public class OnlineDdlExecutionStrategyTest {
+
+    private static final String MARKER = " /* visited */";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    private List<SqlVisitor> sqlVisitors;
+
+    @Before
+    public void setUp() throws Exception {
+        try (Statement statement = hsql.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE PERSON (ID INT PRIMARY KEY, NAME VARCHAR(100))");
+            for (int id = 1; id <= 5; id++) {
+                statement.execute("INSERT INTO PERSON (ID) VALUES (" + id + ")");
+            }
+        }
+        hsql.getConnection().commit();
+
+        AppendSqlVisitor visitor = new AppendSqlVisitor();
+        visitor.setValue(MARKER);
+        sqlVisitors = Collections.singletonList(visitor);
+    }
+
+    @Test
+    public void otherDatabasesAreLeftToLiquibase() throws Exception {
+        Database database = hsql.getDatabase();
+        assertFalse(new OnlineDdlExecutionStrategy(2).execute(new AddColumnStatement(null, null, "PERSON", "AGE", "INT", null),
+                sqlVisitors, ExecutorService.getInstance().getExecutor(database), database));
+    }
+
+    @Test
+    public void mySqlRewriteAppliesSqlVisitors() throws Exception {
+        StringWriter output = new StringWriter();
+        Database database = hsql.getDatabase();
+        assertTrue(strategy(OnlineDdlExecutionStrategy.Dialect.MYSQL, 0).execute(new AddColumnStatement(null, null, "PERSON", "AGE", "INT", null),
+                sqlVisitors, logging(output), database));
+
+        String sql = output.toString().trim();
+        assertTrue(sql, sql.startsWith("ALTER TABLE"));
+        assertTrue(sql, sql.contains(MARKER + ", ALGORITHM=INPLACE, LOCK=NONE"));
+    }
+
+    @Test
+    public void postgresCreatesIndexesConcurrentlyOutsideOfTransactions() throws Exception {
+        Database database = hsql.getDatabase();
+        AddColumnConfig column = new AddColumnConfig();
+        column.setName("NAME");
+        CreateIndexStatement createIndex = new CreateIndexStatement("IDX_PERSON_NAME", null, null, "PERSON", false, null, column);
+        OnlineDdlExecutionStrategy strategy = strategy(OnlineDdlExecutionStrategy.Dialect.POSTGRES, 0);
+
+        assertFalse(strategy.execute(createIndex, sqlVisitors, logging(new StringWriter()), database));
+
+        database.setAutoCommit(true);
+        StringWriter output = new StringWriter();
+        assertTrue(strategy.execute(createIndex, sqlVisitors, logging(output), database));
+        String sql = output.toString().trim();
+        assertTrue(sql, sql.startsWith("CREATE INDEX CONCURRENTLY IDX_PERSON_NAME"));
+        assertTrue(sql, sql.contains(MARKER));
+    }
+
+    @Test
+    public void notNullColumnIsBackfilledInChunks() throws Exception {
+        Database database = hsql.getDatabase();
+        AddColumnStatement addColumn = new AddColumnStatement(null, null, "PERSON", "STATUS", "VARCHAR(10)", "new", "current status",
+                new NotNullConstraint());
+        addColumn.setAddBeforeColumn("NAME");
+        RecordingExecutor executor = new RecordingExecutor(database);
+        assertTrue(strategy(OnlineDdlExecutionStrategy.Dialect.MYSQL, 2).execute(addColumn, Collections.emptyList(), executor, database));
+        database.commit();
+
+        assertEquals(Arrays.asList("new", "new", "new", "new", "new"), statuses());
+        try (ResultSet columns = hsql.getConnection().getMetaData().getColumns(null, "PUBLIC", "PERSON", null)) {
+            List<String> names = new ArrayList<>();
+            while (columns.next()) {
+                names.add(columns.getString("COLUMN_NAME"));
+            }
+            assertEquals(Arrays.asList("ID", "STATUS", "NAME"), names);
+        }
+
+        AddColumnStatement added = (AddColumnStatement) executor.statements.get(0);
+        assertTrue(added.isNullable());
+        assertEquals("NAME", added.getAddBeforeColumn());
+        assertEquals("current status", added.getRemarks());
+        // MODIFY redefines the column, so it must keep the default value and the comment
+        String modify = executor.mySqlOnly.get(0);
+        assertTrue(modify, modify.endsWith(" MODIFY STATUS VARCHAR(10) NOT NULL DEFAULT 'new' COMMENT 'current status'"));
+    }
+
+    @Test
+    public void backfillResumesOnAnExistingColumn() throws Exception {
+        try (Statement statement = hsql.getConnection().createStatement()) {
+            statement.execute("ALTER TABLE PERSON ADD COLUMN STATUS VARCHAR(10)");
+            statement.execute("UPDATE PERSON SET STATUS = 'old' WHERE ID = 1");
+        }
+        hsql.getConnection().commit();
+
+        Database database = hsql.getDatabase();
+        AddColumnStatement addColumn = new AddColumnStatement(null, null, "PERSON", "STATUS", "VARCHAR(10)", "new", new NotNullConstraint());
+        RecordingExecutor executor = new RecordingExecutor(database);
+        assertTrue(strategy(OnlineDdlExecutionStrategy.Dialect.MYSQL, 2).execute(addColumn, Collections.emptyList(), executor, database));
+        database.commit();
+
+        assertEquals(Arrays.asList("old", "new", "new", "new", "new"), statuses());
+        for (SqlStatement statement : executor.statements) {
+            assertFalse(statement instanceof AddColumnStatement);
+        }
+        assertEquals(1, executor.mySqlOnly.size());
+    }
+
+    private List<String> statuses() throws SQLException {
+        try (Statement statement = hsql.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT STATUS FROM PERSON ORDER BY ID")) {
+            List<String> statuses = new ArrayList<>();
+            while (resultSet.next()) {
+                statuses.add(resultSet.getString(1));
+            }
+            return statuses;
+        }
+    }
+
+    private Executor logging(StringWriter output) {
+        Database database = hsql.getDatabase();
+        return new LoggingExecutor(ExecutorService.getInstance().getExecutor(database), output, database);
+    }
+
+    /**
+     * Runs the statements on HSQLDB, except for the MySQL specific SQL which is only recorded
+     */
+    private static class RecordingExecutor extends JdbcExecutor {
+
+        private final List<SqlStatement> statements = new ArrayList<>();
+        private final List<String> mySqlOnly = new ArrayList<>();
+
+        RecordingExecutor(Database database) {
+            setDatabase(database);
+        }
+
+        @Override
+        public void execute(SqlStatement sql, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+            statements.add(sql);
+            if (sql instanceof RawSqlStatement && ((RawSqlStatement) sql).getSql().contains(" MODIFY ")) {
+                mySqlOnly.add(((RawSqlStatement) sql).getSql());
+            } else {
+                super.execute(sql, sqlVisitors);
+            }
+        }
+    }
+
+    private static OnlineDdlExecutionStrategy strategy(OnlineDdlExecutionStrategy.Dialect dialect, int backfillChunkSize) {
+        return new OnlineDdlExecutionStrategy(backfillChunkSize) {
+            @Override
+            protected Dialect getDialect(Database database) {
+                return dialect;
+            }
+        };
+    }
+}
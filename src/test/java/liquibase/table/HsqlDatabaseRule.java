@@ -0,0 +1,90 @@
+package liquibase.table;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.rules.ExternalResource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Provides each test with a {@link Database} on a private, in-memory HSQLDB database, standing in for the production databases.
+ *
+ * @author Eric Benzacar
+ */
+public class HsqlDatabaseRule extends ExternalResource {
+
+    private String url;
+    private Connection connection;
+    private Database database;
+
+    @Override
+    protected void before() throws Throwable {
+        // MVCC, so the reads of a test never block the writes of another connection
+        url = "jdbc:hsqldb:mem:" + UUID.randomUUID() + ";hsqldb.tx=mvcc";
+        connection = DriverManager.getConnection(url, "SA", "");
+        connection.setAutoCommit(false);
+        database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+    }
+
+    @Override
+    protected void after() {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            // the database is discarded anyway
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // already closed by the shutdown
+        }
+    }
+
+    /**
+     * @return the database of the test, with auto-commit disabled
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the underlying connection of {@link #getDatabase()}
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return a new connection to the same database, to be closed by the caller
+     * @throws SQLException
+     */
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, "SA", "");
+    }
+
+    /**
+     * @return a data source opening new connections to the same database
+     */
+    public DataSource getDataSource() {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUser("SA");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+
+    /**
+     * @return a new {@link Database} on its own connection to the same database, to be closed by the caller
+     * @throws Exception
+     */
+    public Database openDatabase() throws Exception {
+        return DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(openConnection()));
+    }
+}
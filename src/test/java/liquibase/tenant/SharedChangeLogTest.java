@@ -0,0 +1,84 @@
+package liquibase.tenant;
+
+import liquibase.CDILiquibaseSession;
+import liquibase.Liquibase;
+import liquibase.LiquibaseConfig;
+import liquibase.change.core.RawSQLChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class SharedChangeLogTest {
+
+    private static final String CHANGELOG = "tenant/changelog.xml";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    @Test
+    public void eachTargetExpandsItsOwnParameters() throws Exception {
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA TENANT AUTHORIZATION DBA");
+        }
+        SharedChangeLog shared = new SharedChangeLog();
+        Database tenant = hsql.openDatabase();
+        tenant.setDefaultSchemaName("TENANT");
+
+        try (CDILiquibaseSession first = openSession(hsql.getDatabase(), shared);
+             CDILiquibaseSession second = openSession(tenant, shared)) {
+            DatabaseChangeLog firstChangeLog = first.getDatabaseChangeLog();
+            // the included file has no expressions, and is shared once parsed for the first target
+            assertEquals(1, shared.size());
+            DatabaseChangeLog secondChangeLog = second.getDatabaseChangeLog();
+            assertEquals(1, shared.size());
+
+            assertEquals("CREATE TABLE PUBLIC.MARKER (ID INT)", sql(firstChangeLog));
+            assertEquals("CREATE TABLE TENANT.MARKER (ID INT)", sql(secondChangeLog));
+            assertEquals(2, secondChangeLog.getChangeSets().size());
+            assertNotSame(firstChangeLog.getChangeSets().get(0), secondChangeLog.getChangeSets().get(0));
+
+            first.update();
+            second.update();
+        }
+        try (Connection connection = hsql.openConnection()) {
+            assertTrue(exists(connection, "PUBLIC", "PERSON"));
+            assertTrue(exists(connection, "PUBLIC", "MARKER"));
+            assertTrue(exists(connection, "TENANT", "PERSON"));
+            assertTrue(exists(connection, "TENANT", "MARKER"));
+        }
+    }
+
+    private CDILiquibaseSession openSession(Database database, SharedChangeLog shared) throws Exception {
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        CDILiquibaseSession session = new CDILiquibaseSession(config, new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database));
+        session.setSharedChangeLog(shared);
+        return session;
+    }
+
+    private static String sql(DatabaseChangeLog changeLog) {
+        ChangeSet changeSet = changeLog.getChangeSet(CHANGELOG, "test", "marker");
+        return ((RawSQLChange) changeSet.getChanges().get(0)).getSql().trim();
+    }
+
+    private static boolean exists(Connection connection, String schema, String table) throws Exception {
+        try (ResultSet tables = connection.getMetaData().getTables(null, schema, table, null)) {
+            return tables.next();
+        }
+    }
+}
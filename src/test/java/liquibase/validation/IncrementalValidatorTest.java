@@ -0,0 +1,169 @@
+package liquibase.validation;
+
+import liquibase.CDILiquibaseSession;
+import liquibase.Liquibase;
+import liquibase.LiquibaseConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.resource.FileSystemResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.table.HsqlDatabaseRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Eric Benzacar
+ */
+public class IncrementalValidatorTest {
+
+    private static final String CHANGELOG = "changelog.xml";
+
+    private static final String CHANGESETS =
+            "    <changeSet id=\"1\" author=\"test\">\n"
+            + "        <createTable tableName=\"PERSON\">\n"
+            + "            <column name=\"ID\" type=\"INT\"/>\n"
+            + "        </createTable>\n"
+            + "    </changeSet>\n"
+            + "    <changeSet id=\"2\" author=\"test\" context=\"a\">\n"
+            + "        <insert tableName=\"PERSON\">\n"
+            + "            <column name=\"ID\" valueNumeric=\"1\"/>\n"
+            + "        </insert>\n"
+            + "    </changeSet>\n"
+            + "    <changeSet id=\"3\" author=\"test\" context=\"b\">\n"
+            + "        <insert tableName=\"PERSON\">\n"
+            + "            <column name=\"ID\" valueNumeric=\"2\"/>\n"
+            + "        </insert>\n"
+            + "    </changeSet>\n";
+
+    @Rule
+    public HsqlDatabaseRule hsql = new HsqlDatabaseRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResourceAccessor resourceAccessor;
+
+    @Before
+    public void setUp() throws Exception {
+        writeChangeLog(CHANGESETS);
+        resourceAccessor = new FileSystemResourceAccessor(folder.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void validatesOnlyTheFilesChangedSinceTheLastValidation() throws Exception {
+        update("a");
+        assertEquals(Collections.emptyList(), validate("a", false));
+        assertEquals(Collections.emptyList(), validate("a", true));
+
+        writeChangeLog(CHANGESETS
+                + "    <changeSet id=\"4\" author=\"test\">\n"
+                + "        <insert tableName=\"PERSON\">\n"
+                + "            <column name=\"ID\" valueNumeric=\"3\"/>\n"
+                + "        </insert>\n"
+                + "    </changeSet>\n");
+        assertEquals(Collections.singletonList("4"), validate("a", true));
+
+        update("a");
+        assertEquals(Collections.emptyList(), validate("a", true));
+    }
+
+    @Test
+    public void validatesFullyUntilAValidationSucceeded() throws Exception {
+        assertEquals(Arrays.asList("1", "2"), validate("a", false));
+        assertEquals(Arrays.asList("1", "2"), validate("a", false));
+    }
+
+    @Test
+    public void validatesFullyWhenTheContextsChange() throws Exception {
+        update("a");
+        assertEquals(Collections.emptyList(), validate("a", false));
+
+        // the changelog is unchanged, but the changesets of context b were never applied
+        assertEquals(Collections.singletonList("3"), validate("b", false));
+        assertEquals(Collections.singletonList("3"), validate("b", false));
+
+        // the state of the other contexts is kept
+        assertEquals(Collections.emptyList(), validate("a", true));
+    }
+
+    @Test
+    public void validatesFullyWhenAppliedChangeSetsWereRemoved() throws Exception {
+        update("a");
+        assertEquals(Collections.emptyList(), validate("a", false));
+
+        // replaced by another row, so the number of rows is unchanged
+        try (Connection connection = hsql.openConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM DATABASECHANGELOG WHERE ID = '2'");
+            statement.executeUpdate("INSERT INTO DATABASECHANGELOG (ID, AUTHOR, FILENAME, DATEEXECUTED, ORDEREXECUTED, EXECTYPE) "
+                    + "VALUES ('other', 'test', 'other.xml', CURRENT_TIMESTAMP, 100, 'EXECUTED')");
+            connection.commit();
+        }
+        assertEquals(Collections.singletonList("2"), validate("a", false));
+    }
+
+    @Test
+    public void keepsValidatingIncrementallyWhenChangeSetsWereAppended() throws Exception {
+        update("a");
+        assertEquals(Collections.emptyList(), validate("a", false));
+
+        update("b");
+        assertEquals(Collections.emptyList(), validate("a", true));
+        assertEquals(Collections.emptyList(), validate("a", true));
+    }
+
+    private void update(String contexts) throws Exception {
+        try (CDILiquibaseSession session = openSession(contexts)) {
+            session.update();
+        }
+    }
+
+    /**
+     * @param contexts
+     * @param incremental whether the validation is expected to only look at the changed files
+     * @return ids of the unrun changesets
+     */
+    private List<String> validate(String contexts, boolean incremental) throws Exception {
+        try (CDILiquibaseSession session = spy(openSession(contexts))) {
+            List<String> ids = new ArrayList<>();
+            for (ChangeSet changeSet : new IncrementalValidator(session, resourceAccessor).listUnrunChangeSets()) {
+                ids.add(changeSet.getId());
+            }
+            verify(session, incremental ? never() : times(1)).listUnrunChangeSets();
+            return ids;
+        }
+    }
+
+    private CDILiquibaseSession openSession(String contexts) throws Exception {
+        LiquibaseConfig config = new LiquibaseConfig();
+        config.setChangeLog(CHANGELOG);
+        config.setContexts(contexts);
+        return new CDILiquibaseSession(config, new Liquibase(CHANGELOG, resourceAccessor, hsql.openDatabase()));
+    }
+
+    private void writeChangeLog(String changeSets) throws IOException {
+        String changeLog = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\"\n"
+                + "                   xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+                + "                   xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-3.6.xsd\">\n"
+                + changeSets
+                + "</databaseChangeLog>\n";
+        Files.write(folder.getRoot().toPath().resolve(CHANGELOG), changeLog.getBytes(StandardCharsets.UTF_8));
+    }
+}
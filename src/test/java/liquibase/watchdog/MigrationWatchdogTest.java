@@ -0,0 +1,70 @@
+package liquibase.watchdog;
+
+import liquibase.LiquibaseConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eric Benzacar
+ */
+public class MigrationWatchdogTest {
+
+    private LiquibaseConfig config;
+
+    @Before
+    public void setUp() {
+        config = new LiquibaseConfig();
+        config.setName("test");
+    }
+
+    @Test
+    public void nothingToWatch() {
+        assertNull(MigrationWatchdog.create(0, 0, 0));
+        try (MigrationWatchdog watchdog = MigrationWatchdog.create(0, 0, 60)) {
+            assertNotNull(watchdog);
+        }
+    }
+
+    @Test
+    public void migrationTimeoutCancels() throws Exception {
+        try (MigrationWatchdog watchdog = MigrationWatchdog.create(1, 0, 0);
+             MigrationWatchdog.Watch watch = watchdog.watch(config)) {
+            assertFalse(watch.isCancelled());
+            assertTrue(awaitCancellation(watch));
+        }
+    }
+
+    @Test
+    public void globalTimeoutCancelsLaterMigrations() throws Exception {
+        try (MigrationWatchdog watchdog = MigrationWatchdog.create(0, 1, 0)) {
+            Thread.sleep(1500);
+            try (MigrationWatchdog.Watch watch = watchdog.watch(config)) {
+                assertTrue(awaitCancellation(watch));
+                assertTrue(watch.timeoutException(null).getMessage().contains("global timeout"));
+            }
+        }
+    }
+
+    @Test
+    public void unlimitedMigrationIsNotCancelled() throws Exception {
+        try (MigrationWatchdog watchdog = MigrationWatchdog.create(0, 0, 1);
+             MigrationWatchdog.Watch watch = watchdog.watch(config)) {
+            assertFalse(awaitCancellation(watch));
+        }
+    }
+
+    private static boolean awaitCancellation(MigrationWatchdog.Watch watch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!watch.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return watch.isCancelled();
+    }
+}